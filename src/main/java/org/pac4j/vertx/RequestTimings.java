@@ -0,0 +1,182 @@
+package org.pac4j.vertx;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.core.context.WebContext;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Lightweight recorder of the time spent in each phase of a request going through the pac4j handlers. A recorder is
+ * only attached to the routing context by handlers configured for timing, recording a phase for a request without a
+ * recorder costs a single context lookup.
+ *
+ * The breakdown can be emitted as a <code>Server-Timing</code> response header, and requests slower than a threshold
+ * are logged with their breakdown. Durations of a phase entered several times are summed. The phases of the handlers
+ * exclude the phases nested in them, such as the loading of the session, so that no time is counted twice.
+ */
+public class RequestTimings {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    public static final String QUEUE = "queue";
+    public static final String SESSION_LOAD = "session-load";
+    public static final String SESSION_SAVE = "session-save";
+    public static final String MATCHERS = "matchers";
+    public static final String AUTHORIZERS = "authorizers";
+    public static final String SECURITY = "security";
+    public static final String CALLBACK = "callback";
+    public static final String LOGOUT = "logout";
+    public static final String TOTAL = "total";
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestTimings.class);
+
+    private static final String CONTEXT_KEY = "pac4jRequestTimings";
+
+    private final long startNanos = System.nanoTime();
+    private String[] phases = new String[4];
+    private long[] durations = new long[4];
+    private int phaseCount = 0;
+    private long recordedNanos = 0;
+
+    /**
+     * Attach a recorder to the routing context if none is attached yet.
+     *
+     * @param routingContext the routing context
+     * @param serverTimingHeader true if a Server-Timing header should be added to the response
+     * @param slowRequestThreshold duration in milliseconds above which the request is logged, negative to disable
+     * @return the recorder of the request
+     */
+    public static RequestTimings start(final RoutingContext routingContext, final boolean serverTimingHeader,
+                                       final long slowRequestThreshold) {
+        final RequestTimings existing = routingContext.get(CONTEXT_KEY);
+        if (existing != null) {
+            return existing;
+        }
+        final RequestTimings timings = new RequestTimings();
+        routingContext.put(CONTEXT_KEY, timings);
+        if (serverTimingHeader) {
+            routingContext.addHeadersEndHandler(v ->
+                    routingContext.response().putHeader(SERVER_TIMING_HEADER, timings.toServerTiming()));
+        }
+        if (slowRequestThreshold >= 0) {
+            routingContext.addBodyEndHandler(v -> {
+                final long elapsedMillis = timings.elapsedNanos() / 1_000_000;
+                if (elapsedMillis > slowRequestThreshold) {
+                    LOG.warn("Slow request " + routingContext.request().method() + " " + routingContext.request().path()
+                            + " took " + elapsedMillis + "ms: " + timings);
+                }
+            });
+        }
+        return timings;
+    }
+
+    /**
+     * @param routingContext the routing context
+     * @return the recorder attached to the routing context, or null if the request is not timed
+     */
+    public static RequestTimings get(final RoutingContext routingContext) {
+        return routingContext.get(CONTEXT_KEY);
+    }
+
+    /**
+     * Run some work, recording its duration against a phase if the request is timed.
+     *
+     * @param context the web context of the request
+     * @param phase the phase name
+     * @param work the work to run
+     * @param <T> the result type
+     * @return the result of the work
+     */
+    public static <T> T time(final WebContext context, final String phase, final Supplier<T> work) {
+        final RequestTimings timings = context instanceof VertxWebContext
+                ? get(((VertxWebContext) context).getVertxRoutingContext()) : null;
+        if (timings == null) {
+            return work.get();
+        }
+        final long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            timings.record(phase, start);
+        }
+    }
+
+    /**
+     * Record the time elapsed since the given instant against a phase.
+     *
+     * @param phase the phase name
+     * @param phaseStartNanos the start of the phase as given by {@link System#nanoTime()}
+     */
+    public synchronized void record(final String phase, final long phaseStartNanos) {
+        add(phase, System.nanoTime() - phaseStartNanos);
+    }
+
+    /**
+     * Record the time elapsed since the given instant against a phase, less the time recorded against the phases
+     * nested in it meanwhile.
+     *
+     * @param phase the phase name
+     * @param phaseStartNanos the start of the phase as given by {@link System#nanoTime()}
+     * @param recordedAtStart the time recorded against all phases at the start of the phase, as given by
+     *                        {@link #recordedNanos()}
+     */
+    public synchronized void recordExclusive(final String phase, final long phaseStartNanos,
+                                             final long recordedAtStart) {
+        add(phase, Math.max(0, System.nanoTime() - phaseStartNanos - (recordedNanos - recordedAtStart)));
+    }
+
+    /**
+     * @return the time recorded so far against all phases, in nanoseconds
+     */
+    public synchronized long recordedNanos() {
+        return recordedNanos;
+    }
+
+    private void add(final String phase, final long duration) {
+        recordedNanos += duration;
+        for (int i = 0; i < phaseCount; i++) {
+            if (phases[i].equals(phase)) {
+                durations[i] += duration;
+                return;
+            }
+        }
+        if (phaseCount == phases.length) {
+            phases = Arrays.copyOf(phases, phaseCount * 2);
+            durations = Arrays.copyOf(durations, phaseCount * 2);
+        }
+        phases[phaseCount] = phase;
+        durations[phaseCount++] = duration;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the breakdown in the <code>Server-Timing</code> header syntax, durations being in milliseconds
+     */
+    public synchronized String toServerTiming() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < phaseCount; i++) {
+            appendMillis(builder.append(phases[i]).append(";dur="), durations[i]).append(", ");
+        }
+        return appendMillis(builder.append(TOTAL).append(";dur="), elapsedNanos()).toString();
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < phaseCount; i++) {
+            appendMillis(builder.append(phases[i]).append('='), durations[i]).append("ms ");
+        }
+        return appendMillis(builder.append(TOTAL).append('='), elapsedNanos()).append("ms").toString();
+    }
+
+    private static StringBuilder appendMillis(final StringBuilder builder, final long nanos) {
+        return builder.append(String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0));
+    }
+}
@@ -1,12 +1,17 @@
 package org.pac4j.vertx;
 
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
 import org.pac4j.core.profile.CommonProfile;
 import org.pac4j.core.profile.ProfileManager;
+import org.pac4j.core.util.Pac4jConstants;
 import org.pac4j.vertx.auth.Pac4JUserProfiles;
 import org.pac4j.vertx.auth.Pac4jUser;
+import org.pac4j.vertx.auth.TokenRefreshScheduler;
 import org.pac4j.vertx.context.session.VertxSessionStore;
 
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -15,6 +20,11 @@ import java.util.Optional;
  */
 public class VertxProfileManager extends ProfileManager<CommonProfile> {
 
+    // Profiles read from the session during the current request, shared by the profile managers of the request
+    private static final String MEMOIZED_PROFILES_KEY = "pac4jMemoizedProfiles";
+
+    private static volatile TokenRefreshScheduler tokenRefreshScheduler;
+
     private final VertxWebContext vertxWebContext;
 
     public VertxProfileManager(final VertxWebContext context) {
@@ -27,19 +37,88 @@ public class VertxProfileManager extends ProfileManager<CommonProfile> {
         this.vertxWebContext = context;
     }
 
+    public static TokenRefreshScheduler getTokenRefreshScheduler() {
+        return tokenRefreshScheduler;
+    }
+
+    /**
+     * Set the scheduler refreshing the tokens of the profiles saved in a session, null to disable background refresh.
+     *
+     * @param scheduler the token refresh scheduler
+     */
+    public static void setTokenRefreshScheduler(final TokenRefreshScheduler scheduler) {
+        tokenRefreshScheduler = scheduler;
+    }
+
+    /**
+     * Forget the profiles read from the session during a request, so that the next read loads them again.
+     *
+     * @param routingContext the routing context of the request
+     */
+    public static void forgetProfiles(final RoutingContext routingContext) {
+        routingContext.remove(MEMOIZED_PROFILES_KEY);
+    }
+
+    /**
+     * The profiles read from the session are memoized for the rest of the request, as the security logic, the
+     * authorizers and the application each read them, until they are saved or removed.
+     */
+    @Override
+    protected LinkedHashMap<String, CommonProfile> retrieveAll(final boolean readFromSession) {
+        if (!readFromSession) {
+            return retrieve(false);
+        }
+        final RoutingContext routingContext = vertxWebContext.getVertxRoutingContext();
+        final LinkedHashMap<String, CommonProfile> memoized = routingContext.get(MEMOIZED_PROFILES_KEY);
+        if (memoized != null) {
+            // Callers are free to modify the map they are given
+            return new LinkedHashMap<>(memoized);
+        }
+        final LinkedHashMap<String, CommonProfile> profiles = retrieve(true);
+        routingContext.put(MEMOIZED_PROFILES_KEY, new LinkedHashMap<>(profiles));
+        return profiles;
+    }
+
+    private LinkedHashMap<String, CommonProfile> retrieve(final boolean readFromSession) {
+        final LinkedHashMap<String, CommonProfile> profiles = super.retrieveAll(readFromSession);
+        if (readFromSession && Pac4JUserProfiles.getSerializationOptions().getProjection() != null) {
+            // The session only holds projected profiles, so keep the complete ones saved during this request
+            context.getRequestAttribute(Pac4jConstants.USER_PROFILES)
+                    .filter(Map.class::isInstance)
+                    .ifPresent(requestProfiles -> ((Map<String, CommonProfile>) requestProfiles)
+                            .forEach((name, profile) -> profiles.computeIfPresent(name, (key, sessionProfile) -> profile)));
+        }
+        return profiles;
+    }
+
     @Override
     protected void saveAll(final LinkedHashMap<String, CommonProfile> profiles, final boolean saveInSession) {
+        forgetProfiles(vertxWebContext.getVertxRoutingContext());
         super.saveAll(profiles, saveInSession);
 
         final Pac4jUser vertxUser = Optional.ofNullable(vertxWebContext.getVertxUser()).orElse(new Pac4jUser());
         vertxUser.setUserProfiles(profiles);
         vertxWebContext.setVertxUser(vertxUser);
+
+        final TokenRefreshScheduler scheduler = tokenRefreshScheduler;
+        final Session session = vertxWebContext.getVertxSession();
+        if (scheduler != null && saveInSession && session != null) {
+            scheduler.track(session.id(), VertxSessionStore.sessionKey(vertxWebContext, Pac4jConstants.USER_PROFILES),
+                    profiles);
+        }
     }
 
     @Override
     public void remove(boolean removeFromSession) {
+        forgetProfiles(vertxWebContext.getVertxRoutingContext());
         super.remove(removeFromSession);
 
         vertxWebContext.removeVertxUser();
+
+        final TokenRefreshScheduler scheduler = tokenRefreshScheduler;
+        final Session session = vertxWebContext.getVertxSession();
+        if (scheduler != null && removeFromSession && session != null) {
+            scheduler.untrack(session.id());
+        }
     }
 }
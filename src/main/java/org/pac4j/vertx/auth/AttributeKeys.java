@@ -0,0 +1,37 @@
+package org.pac4j.vertx.auth;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of attribute names shared by every compact profile of the node, so that the same attribute name held by many
+ * sessions is only held once on the heap. The pool is bounded so that arbitrary attribute names supplied by identity
+ * providers cannot make it grow without limit, names seen once the pool is full are simply not shared.
+ */
+public final class AttributeKeys {
+
+    private static final int MAX_KEYS = 16384;
+
+    private static final ConcurrentHashMap<String, String> KEYS = new ConcurrentHashMap<>();
+
+    private AttributeKeys() {
+    }
+
+    /**
+     * @param key the attribute name
+     * @return the shared instance equal to the given name, or the name itself if the pool is full
+     */
+    public static String intern(final String key) {
+        if (key == null) {
+            return null;
+        }
+        final String shared = KEYS.get(key);
+        if (shared != null) {
+            return shared;
+        }
+        if (KEYS.size() >= MAX_KEYS) {
+            return key;
+        }
+        final String previous = KEYS.putIfAbsent(key, key);
+        return previous != null ? previous : key;
+    }
+}
@@ -0,0 +1,174 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.json.JsonObject;
+import org.pac4j.core.context.Cookie;
+import org.pac4j.core.context.HttpConstants;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.SessionStore;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Web context exposing the authentication info given to a {@link Pac4jAuthProvider} to the pac4j direct clients, for
+ * entry points which have no HTTP request. Its string fields are the request parameters and its "headers" object the
+ * request headers. It has no session, and anything written to the response is dropped.
+ */
+final class AuthInfoWebContext implements WebContext {
+
+    static final String HEADERS = "headers";
+    static final String REMOTE_ADDRESS = "remoteAddress";
+
+    private static final SessionStore<AuthInfoWebContext> NO_SESSION = new NoSessionStore();
+
+    private final JsonObject authInfo;
+    private final JsonObject headers;
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    AuthInfoWebContext(final JsonObject authInfo) {
+        this.authInfo = authInfo;
+        final Object headers = authInfo.getValue(HEADERS);
+        this.headers = headers instanceof JsonObject ? (JsonObject) headers : new JsonObject();
+    }
+
+    @Override
+    public SessionStore getSessionStore() {
+        return NO_SESSION;
+    }
+
+    @Override
+    public Optional<String> getRequestParameter(final String name) {
+        final Object value = authInfo.getValue(name);
+        return value instanceof String ? Optional.of((String) value) : Optional.empty();
+    }
+
+    @Override
+    public Map<String, String[]> getRequestParameters() {
+        final Map<String, String[]> parameters = new HashMap<>();
+        authInfo.forEach(field -> {
+            if (field.getValue() instanceof String) {
+                parameters.put(field.getKey(), new String[] {(String) field.getValue()});
+            }
+        });
+        return parameters;
+    }
+
+    @Override
+    public Optional getRequestAttribute(final String name) {
+        return Optional.ofNullable(attributes.get(name));
+    }
+
+    @Override
+    public void setRequestAttribute(final String name, final Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public Optional<String> getRequestHeader(final String name) {
+        // Header names are case insensitive
+        for (final Map.Entry<String, Object> header : headers) {
+            if (header.getKey().equalsIgnoreCase(name) && header.getValue() instanceof String) {
+                return Optional.of((String) header.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return HttpConstants.HTTP_METHOD.GET.name();
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return authInfo.getString(REMOTE_ADDRESS);
+    }
+
+    @Override
+    public void setResponseHeader(final String name, final String value) {
+    }
+
+    @Override
+    public void setResponseContentType(final String content) {
+    }
+
+    @Override
+    public String getServerName() {
+        return null;
+    }
+
+    @Override
+    public int getServerPort() {
+        return -1;
+    }
+
+    @Override
+    public String getScheme() {
+        return null;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public String getFullRequestURL() {
+        return null;
+    }
+
+    @Override
+    public Collection<Cookie> getRequestCookies() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void addResponseCookie(final Cookie cookie) {
+    }
+
+    @Override
+    public String getPath() {
+        return null;
+    }
+
+    private static final class NoSessionStore implements SessionStore<AuthInfoWebContext> {
+
+        @Override
+        public String getOrCreateSessionId(final AuthInfoWebContext context) {
+            return null;
+        }
+
+        @Override
+        public Optional<Object> get(final AuthInfoWebContext context, final String key) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void set(final AuthInfoWebContext context, final String key, final Object value) {
+        }
+
+        @Override
+        public boolean destroySession(final AuthInfoWebContext context) {
+            return false;
+        }
+
+        @Override
+        public Optional getTrackableSession(final AuthInfoWebContext context) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<SessionStore<AuthInfoWebContext>> buildFromTrackableSession(final AuthInfoWebContext context,
+                                                                                   final Object trackableSession) {
+            return Optional.empty();
+        }
+
+        @Override
+        public boolean renewSession(final AuthInfoWebContext context) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of byte sizes with power of two buckets: the bucket of upper bound 2^n counts the sizes greater than
+ * 2^(n-1) and up to 2^n. Recording is lock-free and allocation-free.
+ */
+public class ByteSizeHistogram {
+
+    // Sizes up to 64 bytes share the first bucket, sizes above 16MB the last one
+    private static final int MIN_SHIFT = 6;
+    private static final int MAX_SHIFT = 24;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(MAX_SHIFT - MIN_SHIFT + 2);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+
+    public void record(final int bytes) {
+        final int shift = bytes <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(bytes - 1);
+        buckets.incrementAndGet(Math.min(Math.max(shift, MIN_SHIFT), MAX_SHIFT + 1) - MIN_SHIFT);
+        count.incrementAndGet();
+        total.addAndGet(bytes);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalBytes() {
+        return total.get();
+    }
+
+    /**
+     * @return the count of sizes, the total of sizes and the non-empty buckets keyed by their upper bound in bytes,
+     * the last bucket being keyed by "+Inf"
+     */
+    public JsonObject toJson() {
+        final JsonObject counts = new JsonObject();
+        for (int i = 0; i < buckets.length(); i++) {
+            final long bucketCount = buckets.get(i);
+            if (bucketCount > 0) {
+                final int shift = i + MIN_SHIFT;
+                counts.put(shift > MAX_SHIFT ? "+Inf" : String.valueOf(1L << shift), bucketCount);
+            }
+        }
+        return new JsonObject()
+                .put("count", getCount())
+                .put("totalBytes", getTotalBytes())
+                .put("buckets", counts);
+    }
+}
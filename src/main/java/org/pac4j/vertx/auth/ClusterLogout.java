@@ -0,0 +1,291 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.VertxProfileManager;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the logouts performed on this node to the other nodes of the cluster over the event bus, and applies
+ * those published by the other nodes: their sessions stop being tracked for token refresh, their profiles and user
+ * are removed from the node-local session store if there is one, and the registered listeners are notified so that
+ * application caches can be cleared.
+ *
+ * Logouts are held for a short delay so that a burst, such as a mass logout initiated by an identity provider, is
+ * published as a few messages. Each node acknowledges each message, and a logout completes once every other node
+ * acknowledged it, or once the acknowledgement timeout has elapsed.
+ *
+ * A node is a Vert.x instance: the instances of this class created on the same Vert.x instance share its node id, do
+ * not apply the logouts published by each other and are counted once. The other nodes are those which recently
+ * announced their presence on the event bus, so that nodes without a cluster logout are not waited for.
+ */
+public class ClusterLogout implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterLogout.class);
+
+    // Key under which vertx-web keeps the user of a session
+    private static final String SESSION_USER_HOLDER_KEY = "__vertx.userHolder";
+
+    // Local map holding the node id of this Vert.x instance per logout address
+    private static final String NODE_ID_MAP = "pac4j.clusterLogout.nodeIds";
+
+    // Number of presence announcements a node may miss before it is no longer waited for
+    private static final int PRESENCE_MISSED = 3;
+
+    private final Vertx vertx;
+    private final SessionStore localSessionStore;
+    private final ClusterLogoutOptions options;
+    private final String nodeId;
+    private final String ackAddress;
+    private final MessageConsumer<JsonObject> logoutConsumer;
+    private final MessageConsumer<JsonObject> ackConsumer;
+    private final MessageConsumer<JsonObject> presenceConsumer;
+    private final Map<String, Long> otherNodes = new ConcurrentHashMap<>();
+    private final long presenceTimerId;
+    private final List<Handler<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, Batch> published = new ConcurrentHashMap<>();
+    private final AtomicLong batchIds = new AtomicLong();
+
+    private Batch pending;
+
+    /**
+     * @param vertx the vertx instance
+     * @param localSessionStore the session store of this node when sessions are not shared by the nodes, null when
+     *                          they are, as the node performing a logout already updated the shared session
+     * @param options the options
+     */
+    public ClusterLogout(final Vertx vertx, final SessionStore localSessionStore, final ClusterLogoutOptions options) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("options", options);
+        CommonHelper.assertNotBlank("address", options.getAddress());
+        CommonHelper.assertTrue(options.getPresenceInterval() > 0, "presenceInterval must be positive");
+        this.vertx = vertx;
+        this.localSessionStore = localSessionStore;
+        this.options = options;
+        final LocalMap<String, String> nodeIds = vertx.sharedData().getLocalMap(NODE_ID_MAP);
+        final String newNodeId = UUID.randomUUID().toString();
+        final String existingNodeId = nodeIds.putIfAbsent(options.getAddress(), newNodeId);
+        this.nodeId = existingNodeId != null ? existingNodeId : newNodeId;
+        // Acknowledgements are sent to the instance which published the logout, not to any instance of its node
+        this.ackAddress = options.getAddress() + ".ack." + UUID.randomUUID().toString();
+        final EventBus eventBus = vertx.eventBus();
+        this.logoutConsumer = eventBus.consumer(options.getAddress(), this::applyLogouts);
+        this.ackConsumer = eventBus.consumer(ackAddress, this::acknowledged);
+        this.presenceConsumer = eventBus.consumer(presenceAddress(), this::present);
+        announcePresence();
+        this.presenceTimerId = vertx.setPeriodic(options.getPresenceInterval(), id -> announcePresence());
+    }
+
+    /**
+     * Register a listener receiving the ids of the sessions logged out by the other nodes.
+     *
+     * @param listener the listener, called on the event loop
+     * @return this
+     */
+    public ClusterLogout addListener(final Handler<Set<String>> listener) {
+        CommonHelper.assertNotNull("listener", listener);
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Publish the logout of a session to the other nodes.
+     *
+     * @param sessionId the id of the session logged out
+     * @param destroySession true if the other nodes must destroy the session, false if they only remove its profiles
+     * @return the future number of other nodes which acknowledged the logout, completed once all of them did or once
+     * the acknowledgement timeout elapsed
+     */
+    public Future<Integer> logout(final String sessionId, final boolean destroySession) {
+        CommonHelper.assertNotBlank("sessionId", sessionId);
+        final Batch full;
+        final Batch batch;
+        synchronized (this) {
+            if (pending == null) {
+                final Batch created = new Batch(batchIds.incrementAndGet());
+                created.timerId = vertx.setTimer(Math.max(1, options.getBatchDelay()), id -> flush(created));
+                pending = created;
+            }
+            batch = pending;
+            batch.sessions.merge(sessionId, destroySession, Boolean::logicalOr);
+            full = batch.sessions.size() >= options.getMaxBatchSize() ? batch : null;
+        }
+        if (full != null) {
+            vertx.cancelTimer(full.timerId);
+            flush(full);
+        }
+        return batch.promise.future();
+    }
+
+    @Override
+    public void close() {
+        final Batch last;
+        synchronized (this) {
+            last = pending;
+        }
+        if (last != null) {
+            vertx.cancelTimer(last.timerId);
+            flush(last);
+        }
+        vertx.cancelTimer(presenceTimerId);
+        logoutConsumer.unregister();
+        ackConsumer.unregister();
+        presenceConsumer.unregister();
+    }
+
+    private void flush(final Batch batch) {
+        synchronized (this) {
+            if (pending != batch) {
+                // Already flushed because it was full
+                return;
+            }
+            pending = null;
+        }
+        batch.expected = otherNodeCount();
+        if (batch.expected == 0) {
+            batch.promise.complete(0);
+            return;
+        }
+        published.put(batch.id, batch);
+        batch.timerId = vertx.setTimer(options.getAckTimeout(), id -> {
+            if (published.remove(batch.id) != null) {
+                LOG.warn("Logout of " + batch.sessions.size() + " sessions acknowledged by " + batch.acks.size()
+                        + " of " + batch.expected + " other nodes");
+                batch.promise.tryComplete(batch.acks.size());
+            }
+        });
+        final JsonObject sessions = new JsonObject();
+        batch.sessions.forEach(sessions::put);
+        vertx.eventBus().publish(options.getAddress(), new JsonObject()
+                .put("origin", nodeId)
+                .put("replyTo", ackAddress)
+                .put("batch", batch.id)
+                .put("sessions", sessions));
+    }
+
+    private int otherNodeCount() {
+        final long oldest = System.currentTimeMillis() - PRESENCE_MISSED * options.getPresenceInterval();
+        otherNodes.values().removeIf(lastSeen -> lastSeen < oldest);
+        return otherNodes.size();
+    }
+
+    private void announcePresence() {
+        if (vertx.isClustered()) {
+            vertx.eventBus().publish(presenceAddress(), new JsonObject().put("node", nodeId));
+        }
+    }
+
+    private void present(final Message<JsonObject> message) {
+        final String node = message.body().getString("node");
+        if (node != null && !nodeId.equals(node)) {
+            otherNodes.put(node, System.currentTimeMillis());
+        }
+    }
+
+    private void acknowledged(final Message<JsonObject> message) {
+        final Batch batch = published.get(message.body().getLong("batch"));
+        final String node = message.body().getString("node");
+        if (batch == null || node == null) {
+            return;
+        }
+        // Several instances of a node may acknowledge the same logout
+        batch.acks.add(node);
+        if (batch.acks.size() >= batch.expected && published.remove(batch.id) != null) {
+            vertx.cancelTimer(batch.timerId);
+            batch.promise.tryComplete(batch.acks.size());
+        }
+    }
+
+    private void applyLogouts(final Message<JsonObject> message) {
+        final JsonObject body = message.body();
+        if (nodeId.equals(body.getString("origin"))) {
+            return;
+        }
+        final JsonObject sessions = body.getJsonObject("sessions");
+        final TokenRefreshScheduler scheduler = VertxProfileManager.getTokenRefreshScheduler();
+        final Set<String> sessionIds = Collections.unmodifiableSet(sessions.fieldNames());
+        final List<Future> updates = new ArrayList<>();
+        for (final String sessionId : sessionIds) {
+            if (scheduler != null) {
+                scheduler.untrack(sessionId);
+            }
+            if (localSessionStore != null) {
+                updates.add(logoutLocalSession(sessionId, sessions.getBoolean(sessionId)));
+            }
+        }
+        for (final Handler<Set<String>> listener : listeners) {
+            try {
+                listener.handle(sessionIds);
+            } catch (final RuntimeException e) {
+                LOG.error("Logout listener failed", e);
+            }
+        }
+        CompositeFuture.join(updates).onComplete(done -> vertx.eventBus().send(body.getString("replyTo"),
+                new JsonObject().put("batch", body.getLong("batch")).put("node", nodeId)));
+    }
+
+    private Future<Void> logoutLocalSession(final String sessionId, final boolean destroySession) {
+        final Promise<Void> promise = Promise.promise();
+        localSessionStore.get(sessionId, loaded -> {
+            final Session session = loaded.succeeded() ? loaded.result() : null;
+            if (session == null) {
+                // Not held by this node
+                promise.complete();
+            } else if (destroySession) {
+                localSessionStore.delete(sessionId, promise);
+            } else {
+                // The profiles of every tenant the session is authenticated at
+                new ArrayList<>(session.data().keySet()).stream()
+                        .filter(VertxSessionStore::isProfilesKey)
+                        .forEach(session::remove);
+                session.remove(SESSION_USER_HOLDER_KEY);
+                localSessionStore.put(session, promise);
+            }
+        });
+        return promise.future();
+    }
+
+    private String presenceAddress() {
+        return options.getAddress() + ".presence";
+    }
+
+    private static final class Batch {
+
+        private final long id;
+        private final Map<String, Boolean> sessions = new LinkedHashMap<>();
+        private final Promise<Integer> promise = Promise.promise();
+        private final Set<String> acks = ConcurrentHashMap.newKeySet();
+        private volatile long timerId;
+        private volatile int expected;
+
+        private Batch(final long id) {
+            this.id = id;
+        }
+    }
+}
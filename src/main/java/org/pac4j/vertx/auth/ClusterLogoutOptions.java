@@ -0,0 +1,43 @@
+package org.pac4j.vertx.auth;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options for a {@link ClusterLogout}.
+ */
+@Accessors(chain = true)
+public class ClusterLogoutOptions {
+
+    /**
+     * Event bus address the logouts are published to. Every node of the cluster must use the same address.
+     */
+    @Getter @Setter
+    private String address = "pac4j.logout";
+
+    /**
+     * Maximum number of sessions logged out by a single message.
+     */
+    @Getter @Setter
+    private int maxBatchSize = 256;
+
+    /**
+     * Time in milliseconds logouts are held for, so that those of a burst are published together.
+     */
+    @Getter @Setter
+    private long batchDelay = 5;
+
+    /**
+     * Time in milliseconds after which a logout is considered done even if not every other node acknowledged it.
+     */
+    @Getter @Setter
+    private long ackTimeout = 2000;
+
+    /**
+     * Interval in milliseconds at which each node announces its presence to the others. A node which missed three
+     * announcements is no longer waited for.
+     */
+    @Getter @Setter
+    private long presenceInterval = 1000;
+}
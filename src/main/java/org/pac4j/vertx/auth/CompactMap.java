@@ -0,0 +1,136 @@
+package org.pac4j.vertx.auth;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable map backed by a single array of alternating keys and values, with keys shared through
+ * {@link AttributeKeys}. Lookups are linear, which for the handful of entries of a profile is as fast as hashing while
+ * avoiding the per-entry node and table overhead of a hash map. Iteration follows the insertion order of the source map.
+ *
+ * @param <V> the value type
+ */
+public final class CompactMap<V> extends AbstractMap<String, V> {
+
+    private static final CompactMap<?> EMPTY = new CompactMap<>(new Object[0]);
+
+    private final Object[] entries;
+
+    private CompactMap(final Object[] entries) {
+        this.entries = entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> CompactMap<V> empty() {
+        return (CompactMap<V>) EMPTY;
+    }
+
+    public static <V> CompactMap<V> of(final Map<String, ? extends V> source) {
+        return of(source, Function.identity());
+    }
+
+    /**
+     * Build a compact copy of a map, skipping null values.
+     *
+     * @param source the map to copy
+     * @param valueMapper the conversion applied to each value
+     * @param <T> the source value type
+     * @param <V> the value type
+     * @return the compact map
+     */
+    public static <T, V> CompactMap<V> of(final Map<String, T> source, final Function<? super T, ? extends V> valueMapper) {
+        if (source == null || source.isEmpty()) {
+            return empty();
+        }
+        final Object[] entries = new Object[source.size() * 2];
+        int i = 0;
+        for (final Map.Entry<String, T> entry : source.entrySet()) {
+            if (entry.getValue() != null) {
+                entries[i++] = AttributeKeys.intern(entry.getKey());
+                entries[i++] = valueMapper.apply(entry.getValue());
+            }
+        }
+        if (i == 0) {
+            return empty();
+        }
+        if (i < entries.length) {
+            final Object[] trimmed = new Object[i];
+            System.arraycopy(entries, 0, trimmed, 0, i);
+            return new CompactMap<>(trimmed);
+        }
+        return new CompactMap<>(entries);
+    }
+
+    @Override
+    public int size() {
+        return entries.length / 2;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        final int index = indexOf(key);
+        return index >= 0 ? (V) entries[index + 1] : null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new Iterator<Map.Entry<String, V>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < entries.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<String, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final Map.Entry<String, V> entry =
+                                new SimpleImmutableEntry<>((String) entries[index], (V) entries[index + 1]);
+                        index += 2;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+        };
+    }
+
+    private int indexOf(final Object key) {
+        // Shared keys usually match by identity, fall back on equality for keys from elsewhere
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i] == key) {
+                return i;
+            }
+        }
+        if (key != null) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (key.equals(entries[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,222 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.vertx.core.DefaultJsonConverter;
+import org.pac4j.vertx.core.JsonConverter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable, memory-compact view of a pac4j profile. Attributes are held in {@link CompactMap}s with shared attribute
+ * names, roles and permissions in plain arrays.
+ *
+ * The view shares nothing which can change with the profile it was built from. Strings, numbers, booleans and other
+ * immutable values are shared, dates, collections and maps are copied into forms which cannot be changed, and values of
+ * any other type, such as tokens, are copied through the {@link DefaultJsonConverter}.
+ */
+public final class CompactProfile {
+
+    private static final String[] NONE = new String[0];
+    private static final Set<Class<?>> IMMUTABLE_NUMBERS = new HashSet<>(Arrays.asList(Integer.class, Long.class,
+            Short.class, Byte.class, Double.class, Float.class, BigInteger.class, BigDecimal.class));
+
+    private final String type;
+    private final String id;
+    private final String clientName;
+    private final String linkedId;
+    private final boolean remembered;
+    private final String[] roles;
+    private final String[] permissions;
+    private final CompactMap<Object> attributes;
+    private final CompactMap<Object> authenticationAttributes;
+
+    private CompactProfile(final CommonProfile profile) {
+        this.type = AttributeKeys.intern(profile.getClass().getName());
+        this.id = profile.getId();
+        this.clientName = AttributeKeys.intern(profile.getClientName());
+        this.linkedId = profile.getLinkedId();
+        this.remembered = profile.isRemembered();
+        this.roles = toArray(profile.getRoles());
+        this.permissions = toArray(profile.getPermissions());
+        this.attributes = CompactMap.of(profile.getAttributes(), CompactProfile::freeze);
+        this.authenticationAttributes = CompactMap.of(profile.getAuthenticationAttributes(), CompactProfile::freeze);
+    }
+
+    public static CompactProfile of(final CommonProfile profile) {
+        return new CompactProfile(profile);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public String getLinkedId() {
+        return linkedId;
+    }
+
+    public boolean isRemembered() {
+        return remembered;
+    }
+
+    public List<String> getRoles() {
+        return Collections.unmodifiableList(Arrays.asList(roles));
+    }
+
+    public List<String> getPermissions() {
+        return Collections.unmodifiableList(Arrays.asList(permissions));
+    }
+
+    public boolean hasRole(final String role) {
+        return contains(roles, role);
+    }
+
+    public boolean hasPermission(final String permission) {
+        return contains(permissions, permission);
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    public Object getAttribute(final String name) {
+        return attributes.get(name);
+    }
+
+    public Map<String, Object> getAuthenticationAttributes() {
+        return authenticationAttributes;
+    }
+
+    /**
+     * @param value an attribute value
+     * @return the value itself if it cannot change, otherwise a copy of it which cannot change, as far as its type
+     *         allows
+     */
+    private static Object freeze(final Object value) {
+        if (value == null || isImmutable(value)) {
+            return value;
+        } else if (value instanceof Date) {
+            return new FrozenDate(((Date) value).getTime());
+        } else if (value instanceof JsonObject) {
+            return freeze(((JsonObject) value).getMap());
+        } else if (value instanceof JsonArray) {
+            return freeze(((JsonArray) value).getList());
+        } else if (value instanceof Map) {
+            final Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, element) -> copy.put(freeze(key), freeze(element)));
+            return Collections.unmodifiableMap(copy);
+        } else if (value instanceof Set) {
+            final Set<Object> copy = new LinkedHashSet<>();
+            ((Set<?>) value).forEach(element -> copy.add(freeze(element)));
+            return Collections.unmodifiableSet(copy);
+        } else if (value instanceof Collection) {
+            final List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            ((Collection<?>) value).forEach(element -> copy.add(freeze(element)));
+            return Collections.unmodifiableList(copy);
+        } else if (value instanceof Object[]) {
+            return freeze(Arrays.asList((Object[]) value));
+        }
+        final JsonConverter converter = DefaultJsonConverter.getInstance();
+        return converter.decodeObject(converter.encodeObject(value));
+    }
+
+    private static boolean isImmutable(final Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Enum || value instanceof UUID || value instanceof URI || value instanceof Locale
+                || IMMUTABLE_NUMBERS.contains(value.getClass())
+                || value.getClass().getName().startsWith("java.time.");
+    }
+
+    private static String[] toArray(final Set<String> values) {
+        if (values == null || values.isEmpty()) {
+            return NONE;
+        }
+        return values.stream().map(AttributeKeys::intern).toArray(String[]::new);
+    }
+
+    private static boolean contains(final String[] values, final String value) {
+        for (final String candidate : values) {
+            if (candidate.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy of a date attribute which cannot be changed.
+     */
+    private static final class FrozenDate extends Date {
+
+        private static final long serialVersionUID = 1L;
+
+        private FrozenDate(final long time) {
+            super(time);
+        }
+
+        @Override
+        public void setTime(final long time) {
+            throw new UnsupportedOperationException("Profile views cannot be changed");
+        }
+
+        @Override
+        @Deprecated
+        public void setYear(final int year) {
+            throw new UnsupportedOperationException("Profile views cannot be changed");
+        }
+
+        @Override
+        @Deprecated
+        public void setMonth(final int month) {
+            throw new UnsupportedOperationException("Profile views cannot be changed");
+        }
+
+        @Override
+        @Deprecated
+        public void setDate(final int date) {
+            throw new UnsupportedOperationException("Profile views cannot be changed");
+        }
+
+        @Override
+        @Deprecated
+        public void setHours(final int hours) {
+            throw new UnsupportedOperationException("Profile views cannot be changed");
+        }
+
+        @Override
+        @Deprecated
+        public void setMinutes(final int minutes) {
+            throw new UnsupportedOperationException("Profile views cannot be changed");
+        }
+
+        @Override
+        @Deprecated
+        public void setSeconds(final int seconds) {
+            throw new UnsupportedOperationException("Profile views cannot be changed");
+        }
+    }
+}
@@ -1,18 +1,62 @@
 package org.pac4j.vertx.auth;
 
+import io.vertx.core.Context;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.shareddata.impl.ClusterSerializable;
+import org.pac4j.core.exception.TechnicalException;
 import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.util.CommonHelper;
 import org.pac4j.vertx.core.DefaultJsonConverter;
+import org.pac4j.vertx.core.JsonConverter;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import static java.util.stream.Collectors.toMap;
 
+/**
+ * Map of pac4j profiles keyed by client name, which can be replicated as part of a clustered session.
+ *
+ * The serialized form is either the legacy form (the byte length of the profiles JSON followed by the JSON itself) or,
+ * when a negative header is read, a flagged form where the header carries the encoding flags and is followed by the
+ * payload length and the payload. Uncompressed payloads are written in the legacy form unless the per-profile format
+ * is enabled, so that they can still be read by older nodes during a rolling upgrade.
+ *
+ * Profiles read in the per-profile format are only decoded when first accessed, so that checking which clients a
+ * user has profiles from, or accessing one profile of several, does not pay for decoding all of them. Replacing or
+ * removing a profile which was not decoded yet discards its encoded form, without decoding it, so {@link #put} and
+ * {@link #remove(Object)} then return null.
+ */
 public class Pac4JUserProfiles extends LinkedHashMap<String, CommonProfile> implements ClusterSerializable {
 
+    private static final int FLAGGED_FORMAT = 0x80000000;
+    private static final int FLAG_COMPRESSED = 0x1;
+    private static final int FLAG_PER_PROFILE = 0x2;
+    private static final int FLAG_DEDUPLICATED = 0x4;
+
+    private static final ProfileSerializationStats SERIALIZATION_STATS = new ProfileSerializationStats();
+
+    private static volatile ProfileSerializationOptions serializationOptions = new ProfileSerializationOptions();
+
+    // Profiles read in the per-profile format and not decoded yet, keyed by client name
+    private transient volatile Map<String, byte[]> encodedProfiles;
+    // True if the encoded profiles are the keys of their content in the deduplication store
+    private transient boolean deduplicated;
+
     public Pac4JUserProfiles() {
         super();
     }
@@ -22,28 +66,157 @@ public class Pac4JUserProfiles extends LinkedHashMap<String, CommonProfile> impl
         putAll((LinkedHashMap<String, CommonProfile>)profiles);
     }
 
+    public static ProfileSerializationOptions getSerializationOptions() {
+        return serializationOptions;
+    }
+
+    /**
+     * Set the options used by this node when writing profiles to a buffer.
+     *
+     * @param options the serialization options
+     */
+    public static void setSerializationOptions(final ProfileSerializationOptions options) {
+        CommonHelper.assertNotNull("options", options);
+        serializationOptions = options;
+    }
+
+    /**
+     * @return the sizes of the profiles serialized and deserialized by this node
+     */
+    public static ProfileSerializationStats getSerializationStats() {
+        return SERIALIZATION_STATS;
+    }
+
+    /**
+     * Build the profiles to be held in the session, applying the configured projection if any.
+     *
+     * @param profiles the profiles being saved
+     * @return the profiles to persist
+     */
+    public static Pac4JUserProfiles forSession(final Object profiles) {
+        final ProfileSerializationOptions options = serializationOptions;
+        final Pac4JUserProfiles sessionProfiles = new Pac4JUserProfiles(profiles);
+        final ProfileProjection projection = options.getProjection();
+        if (projection != null) {
+            sessionProfiles.replaceAll((name, profile) -> projection.apply(profile));
+        }
+        if (options.isDeduplicate() && !Context.isOnEventLoopThread()) {
+            // Stored now, from the worker thread the pac4j logic runs on, so that the profiles are in the store before
+            // the session refers to them, and writing the session on the event loop does not have to store them
+            final ProfileDeduplication deduplication = deduplication(options);
+            sessionProfiles.forEach((name, profile) -> deduplication.store(project(
+                    (JsonObject) DefaultJsonConverter.getInstance().encodeObject(profile), projection)
+                    .toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        return sessionProfiles;
+    }
+
+    /**
+     * @return an immutable, memory-compact view of these profiles
+     */
+    public Map<String, CompactProfile> compact() {
+        return CompactMap.of(this, CompactProfile::of);
+    }
+
+    /**
+     * @return a copy of these profiles, each copied through the {@link DefaultJsonConverter}, sharing nothing with them
+     */
+    Pac4JUserProfiles copy() {
+        final Pac4JUserProfiles copy = new Pac4JUserProfiles();
+        forEach((name, profile) -> copy.put(name, copy(profile)));
+        return copy;
+    }
+
+    /**
+     * @param profile a profile
+     * @param <P> the type of the profile
+     * @return a copy of the profile, made through the {@link DefaultJsonConverter}
+     */
+    @SuppressWarnings("unchecked")
+    static <P extends CommonProfile> P copy(final P profile) {
+        final JsonConverter converter = DefaultJsonConverter.getInstance();
+        return (P) converter.decodeObject(converter.encodeObject(profile));
+    }
+
     @Override
     public void writeToBuffer(Buffer buff) {
-        final JsonObject profilesAsJson = new JsonObject();
-        this.forEach((name, profile) -> {
-            final JsonObject profileAsJson = (JsonObject) DefaultJsonConverter.getInstance().encodeObject(profile);
-            profilesAsJson.put(name, profileAsJson);
+        writeToBuffer(buff, true);
+    }
+
+    /**
+     * @param buff the buffer
+     * @param deduplicate false to write the profiles themselves even if deduplication is enabled
+     */
+    void writeToBuffer(final Buffer buff, final boolean deduplicate) {
+        write(buff, deduplicate, keySet(), name -> {
+            final CommonProfile profile = get(name);
+            return profile != null ? (JsonObject) DefaultJsonConverter.getInstance().encodeObject(profile) : null;
         });
+    }
+
+    private void write(final Buffer buff, final boolean allowDeduplication, final Collection<String> names,
+                       final Function<String, JsonObject> encoder) {
+        final ProfileSerializationOptions options = serializationOptions;
+        final ProfileProjection projection = options.getProjection();
 
-        final String json = profilesAsJson.toString();
-        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
-        buff.appendInt(jsonBytes.length).appendBytes(jsonBytes);
+        final boolean deduplicate = allowDeduplication && options.isDeduplicate();
+        final int format = deduplicate ? FLAG_PER_PROFILE | FLAG_DEDUPLICATED
+                : options.isPerProfile() || options.isDeduplicate() ? FLAG_PER_PROFILE : 0;
+        final byte[] payload = format != 0 ? perProfilePayload(names, encoder, projection, deduplicate)
+                : jsonPayload(names, encoder, projection);
+
+        if (options.isCompress() && payload.length >= options.getCompressionThreshold()) {
+            final byte[] compressedBytes = deflate(payload);
+            // Incompressible payloads are not worth the inflation cost on the reading side
+            if (compressedBytes.length < payload.length) {
+                buff.appendInt(FLAGGED_FORMAT | FLAG_COMPRESSED | format)
+                        .appendInt(compressedBytes.length)
+                        .appendInt(payload.length)
+                        .appendBytes(compressedBytes);
+                SERIALIZATION_STATS.recordWrite(12 + compressedBytes.length, true);
+                return;
+            }
+        }
+        if (format != 0) {
+            buff.appendInt(FLAGGED_FORMAT | format).appendInt(payload.length).appendBytes(payload);
+            SERIALIZATION_STATS.recordWrite(8 + payload.length, false);
+        } else {
+            buff.appendInt(payload.length).appendBytes(payload);
+            SERIALIZATION_STATS.recordWrite(4 + payload.length, false);
+        }
     }
 
     @Override
     public int readFromBuffer(int i, Buffer buffer) {
         int posLocal = i;
-        final int jsonByteCount = buffer.getInt(posLocal);
+        final int header = buffer.getInt(posLocal);
         posLocal += 4;
-        final byte[] jsonBytes = buffer.getBytes(posLocal, posLocal + jsonByteCount);
-        posLocal += jsonByteCount;
 
-        final String json = new String(jsonBytes, StandardCharsets.UTF_8);
+        final byte[] payload;
+        if (header >= 0) {
+            // Legacy form, the header is the byte count of the JSON
+            payload = buffer.getBytes(posLocal, posLocal + header);
+            posLocal += header;
+        } else {
+            final int payloadByteCount = buffer.getInt(posLocal);
+            posLocal += 4;
+            if ((header & FLAG_COMPRESSED) != 0) {
+                final int jsonByteCount = buffer.getInt(posLocal);
+                posLocal += 4;
+                payload = inflate(buffer.getBytes(posLocal, posLocal + payloadByteCount), jsonByteCount);
+            } else {
+                payload = buffer.getBytes(posLocal, posLocal + payloadByteCount);
+            }
+            posLocal += payloadByteCount;
+        }
+        SERIALIZATION_STATS.recordRead(posLocal - i);
+
+        if (header < 0 && (header & FLAG_PER_PROFILE) != 0) {
+            readPerProfilePayload(payload, (header & FLAG_DEDUPLICATED) != 0);
+            return posLocal;
+        }
+
+        final String json = new String(payload, StandardCharsets.UTF_8);
         final JsonObject profiles = new JsonObject(json);
 
         this.clear();
@@ -55,6 +228,367 @@ public class Pac4JUserProfiles extends LinkedHashMap<String, CommonProfile> impl
         return posLocal;
     }
 
+    private static byte[] jsonPayload(final Collection<String> names, final Function<String, JsonObject> encoder,
+                                      final ProfileProjection projection) {
+        final JsonObject profilesAsJson = new JsonObject();
+        // Encoding a profile may decode it, and drop it if it is no longer in the deduplication store
+        for (final String name : new ArrayList<>(names)) {
+            final JsonObject profileAsJson = encoder.apply(name);
+            if (profileAsJson != null) {
+                profilesAsJson.put(name, project(profileAsJson, projection));
+            }
+        }
+        return profilesAsJson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The per-profile payload is the number of profiles followed, for each profile, by the byte length of its client
+     * name, the name, the byte length of its JSON and the JSON, or of the key of its JSON in the deduplication store.
+     */
+    private synchronized byte[] perProfilePayload(final Collection<String> names,
+                                                  final Function<String, JsonObject> encoder,
+                                                  final ProfileProjection projection,
+                                                  final boolean deduplicate) {
+        final ProfileDeduplication deduplication = deduplicate ? deduplication(serializationOptions) : null;
+        // The count is set once known, as profiles lost from the deduplication store are skipped
+        final Buffer payload = Buffer.buffer().appendInt(0);
+        int count = 0;
+        for (final String name : names) {
+            final byte[] encoded = encodedProfiles != null ? encodedProfiles.get(name) : null;
+            final byte[] profileBytes;
+            if (encoded != null) {
+                // Profiles never accessed since they were read are written back as they were read
+                if (deduplicate) {
+                    profileBytes = deduplicated ? encoded : deduplication.store(encoded);
+                } else {
+                    profileBytes = deduplicated ? fetch(encoded) : encoded;
+                }
+            } else {
+                final JsonObject profileAsJson = encoder.apply(name);
+                final byte[] json = profileAsJson != null
+                        ? project(profileAsJson, projection).toString().getBytes(StandardCharsets.UTF_8) : null;
+                profileBytes = json != null && deduplicate ? deduplication.store(json) : json;
+            }
+            if (profileBytes == null) {
+                continue;
+            }
+            final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            payload.appendInt(nameBytes.length).appendBytes(nameBytes)
+                    .appendInt(profileBytes.length).appendBytes(profileBytes);
+            count++;
+        }
+        return payload.setInt(0, count).getBytes();
+    }
+
+    /**
+     * @return the JSON of a profile from the deduplication store, null if the store no longer holds it
+     */
+    private static byte[] fetch(final byte[] key) {
+        return deduplication(serializationOptions).fetch(key);
+    }
+
+    private static ProfileDeduplication deduplication(final ProfileSerializationOptions options) {
+        final ProfileDeduplication deduplication = options.getDeduplication();
+        if (deduplication == null) {
+            throw new TechnicalException("Profiles are deduplicated, or were read from a session referring to a "
+                    + "deduplication store, but no deduplication is configured");
+        }
+        return deduplication;
+    }
+
+    private synchronized void readPerProfilePayload(final byte[] payload, final boolean deduplicated) {
+        final ByteBuffer in = ByteBuffer.wrap(payload);
+        final int count = in.getInt();
+        final Map<String, byte[]> encoded = new HashMap<>(count * 2);
+        super.clear();
+        for (int n = 0; n < count; n++) {
+            final byte[] nameBytes = new byte[in.getInt()];
+            in.get(nameBytes);
+            final byte[] profileBytes = new byte[in.getInt()];
+            in.get(profileBytes);
+            final String name = new String(nameBytes, StandardCharsets.UTF_8);
+            // Keeps the position of the profile in the map until it is decoded
+            super.put(name, null);
+            encoded.put(name, profileBytes);
+        }
+        this.deduplicated = deduplicated;
+        encodedProfiles = encoded.isEmpty() ? null : encoded;
+    }
+
+    private static JsonObject project(final JsonObject profileAsJson, final ProfileProjection projection) {
+        return projection != null ? projection.apply(profileAsJson) : profileAsJson;
+    }
+
+    /**
+     * Decode a profile read from a buffer, if it was not decoded yet.
+     */
+    private CommonProfile decode(final Object name) {
+        // Profiles held in a local session are shared by the event loops, so the decoded profiles are only read
+        // without locking once the volatile write clearing the pending ones has published them all
+        if (encodedProfiles == null) {
+            return super.get(name);
+        }
+        synchronized (this) {
+            final Map<String, byte[]> pending = encodedProfiles;
+            final byte[] encoded = pending != null ? pending.remove(name) : null;
+            if (encoded == null) {
+                return super.get(name);
+            }
+            if (!super.containsKey(name)) {
+                // Removed through the key set before being decoded
+                if (pending.isEmpty()) {
+                    encodedProfiles = null;
+                }
+                return null;
+            }
+            final byte[] profileBytes = deduplicated ? fetch(encoded) : encoded;
+            final CommonProfile profile = profileBytes != null ? (CommonProfile) DefaultJsonConverter.getInstance()
+                    .decodeObject(new JsonObject(new String(profileBytes, StandardCharsets.UTF_8))) : null;
+            if (profile != null) {
+                super.put((String) name, profile);
+            } else {
+                super.remove(name);
+            }
+            // Cleared only once the last profile is in the map, as readers then stop locking
+            if (pending.isEmpty()) {
+                encodedProfiles = null;
+            }
+            return profile;
+        }
+    }
+
+    private void decodeAll() {
+        if (encodedProfiles != null) {
+            synchronized (this) {
+                if (encodedProfiles != null) {
+                    new ArrayList<>(keySet()).forEach(this::decode);
+                    // Whatever is left was removed through the key set before being decoded
+                    encodedProfiles = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Discard the encoded form of a profile which is being replaced or removed, so that it is not decoded over it.
+     */
+    private void discardEncoded(final Object name) {
+        final Map<String, byte[]> pending = encodedProfiles;
+        if (pending != null && pending.remove(name) != null && pending.isEmpty()) {
+            encodedProfiles = null;
+        }
+    }
+
+    // Profiles read in the per-profile format are decoded on first access, so every access to the values goes
+    // through decode or decodeAll. Looking up the client names does not decode anything.
+
+    @Override
+    public CommonProfile get(final Object key) {
+        return decode(key);
+    }
+
+    @Override
+    public CommonProfile getOrDefault(final Object key, final CommonProfile defaultValue) {
+        final CommonProfile profile = decode(key);
+        return profile != null ? profile : defaultValue;
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        decodeAll();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Collection<CommonProfile> values() {
+        decodeAll();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, CommonProfile>> entrySet() {
+        decodeAll();
+        return super.entrySet();
+    }
+
+    @Override
+    public void forEach(final BiConsumer<? super String, ? super CommonProfile> action) {
+        decodeAll();
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(final BiFunction<? super String, ? super CommonProfile, ? extends CommonProfile> function) {
+        decodeAll();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public CommonProfile put(final String key, final CommonProfile value) {
+        if (encodedProfiles == null) {
+            return super.put(key, value);
+        }
+        synchronized (this) {
+            final CommonProfile previous = super.put(key, value);
+            // Discarded only once the new profile is in the map, as readers may then stop locking
+            discardEncoded(key);
+            return previous;
+        }
+    }
+
+    @Override
+    public void putAll(final Map<? extends String, ? extends CommonProfile> profiles) {
+        if (encodedProfiles == null) {
+            super.putAll(profiles);
+            return;
+        }
+        synchronized (this) {
+            profiles.forEach(this::put);
+        }
+    }
+
+    @Override
+    public CommonProfile remove(final Object key) {
+        if (encodedProfiles == null) {
+            return super.remove(key);
+        }
+        synchronized (this) {
+            final CommonProfile previous = super.remove(key);
+            discardEncoded(key);
+            return previous;
+        }
+    }
+
+    @Override
+    public CommonProfile putIfAbsent(final String key, final CommonProfile value) {
+        decode(key);
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        decode(key);
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(final String key, final CommonProfile oldValue, final CommonProfile newValue) {
+        decode(key);
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public CommonProfile replace(final String key, final CommonProfile value) {
+        decode(key);
+        return super.replace(key, value);
+    }
+
+    @Override
+    public CommonProfile computeIfAbsent(final String key,
+                                         final Function<? super String, ? extends CommonProfile> mappingFunction) {
+        decode(key);
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public CommonProfile computeIfPresent(final String key,
+            final BiFunction<? super String, ? super CommonProfile, ? extends CommonProfile> remappingFunction) {
+        decode(key);
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public CommonProfile compute(final String key,
+            final BiFunction<? super String, ? super CommonProfile, ? extends CommonProfile> remappingFunction) {
+        decode(key);
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public CommonProfile merge(final String key, final CommonProfile value,
+            final BiFunction<? super CommonProfile, ? super CommonProfile, ? extends CommonProfile> remappingFunction) {
+        decode(key);
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this) {
+            encodedProfiles = null;
+        }
+        super.clear();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        decodeAll();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        decodeAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        decodeAll();
+        return super.toString();
+    }
+
+    @Override
+    public Object clone() {
+        decodeAll();
+        return super.clone();
+    }
+
+    private Object writeReplace() {
+        // Java serialization reads the entries directly
+        decodeAll();
+        return this;
+    }
+
+    private static byte[] deflate(final byte[] input) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2);
+            final byte[] chunk = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(final byte[] input, final int outputLength) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            final byte[] output = new byte[outputLength];
+            int count = 0;
+            while (count < outputLength && !inflater.finished()) {
+                final int inflated = inflater.inflate(output, count, outputLength - count);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += inflated;
+            }
+            if (count != outputLength) {
+                throw new TechnicalException("Truncated compressed profiles payload");
+            }
+            return output;
+        } catch (final DataFormatException e) {
+            throw new TechnicalException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
     private static class MappedPair<T, U> {
         public final T key;
         public final U value;
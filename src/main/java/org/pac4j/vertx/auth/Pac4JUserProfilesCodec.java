@@ -0,0 +1,44 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.util.Map;
+
+/**
+ * Event bus codec for {@link Pac4JUserProfiles}, delivering the profiles as an immutable map of
+ * {@link CompactProfile}s. Local deliveries receive a compact view of the profiles sent, built without serializing
+ * them, so neither the projection nor the compression of the serialization options apply. Cluster deliveries use the
+ * same wire format as clustered sessions.
+ */
+public class Pac4JUserProfilesCodec implements MessageCodec<Pac4JUserProfiles, Map<String, CompactProfile>> {
+
+    public static final String NAME = "pac4j-user-profiles";
+
+    @Override
+    public void encodeToWire(final Buffer buffer, final Pac4JUserProfiles profiles) {
+        profiles.writeToBuffer(buffer);
+    }
+
+    @Override
+    public Map<String, CompactProfile> decodeFromWire(final int pos, final Buffer buffer) {
+        final Pac4JUserProfiles profiles = new Pac4JUserProfiles();
+        profiles.readFromBuffer(pos, buffer);
+        return profiles.compact();
+    }
+
+    @Override
+    public Map<String, CompactProfile> transform(final Pac4JUserProfiles profiles) {
+        return profiles.compact();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
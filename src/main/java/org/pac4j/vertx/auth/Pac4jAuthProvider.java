@@ -3,21 +3,146 @@ package org.pac4j.vertx.auth;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.AuthProvider;
 import io.vertx.ext.auth.User;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.client.DirectClient;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.exception.CredentialsException;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.jwt.VertxJwtBearerAuthenticator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 
 /**
- * Vert.x authprovider for pac4j libraries. In the case of this auth provider we will always
- * just delegate to pac4j via the handler, so this should be sufficient
+ * Vert.x authprovider for pac4j libraries. Built without clients, it always delegates to pac4j via the handlers.
+ *
+ * Built with the pac4j clients, it authenticates the auth info against a direct client, for entry points such as
+ * WebSocket upgrades, event bus bridges or TCP services which have no routing context to run the security handler
+ * on. The client is named by the "client" field of the auth info and must be one of the allowed clients of the
+ * options. It finds the credentials in the string fields of the auth info, taken as request parameters, or in its
+ * "headers" object. Clients declared non-blocking run on the calling thread, the others on a worker thread. Bearer
+ * tokens meant for the client of a {@link VertxJwtBearerAuthenticator}, given as a "token" field or an
+ * "Authorization" header, are verified on the event loop, provided that client is allowed.
  *
  * @author Jeremy Prime
  * @since 2.0.0
  */
 public class Pac4jAuthProvider implements AuthProvider {
+
+  public static final String CLIENT = "client";
+  public static final String TOKEN = "token";
+
+  private static final String BEARER_PREFIX = "Bearer ";
+
+  private final Vertx vertx;
+  private final Clients clients;
+  private final Pac4jAuthProviderOptions options;
+
+  public Pac4jAuthProvider() {
+    this.vertx = null;
+    this.clients = null;
+    this.options = null;
+  }
+
+  public Pac4jAuthProvider(final Vertx vertx, final Clients clients, final Pac4jAuthProviderOptions options) {
+    CommonHelper.assertNotNull("vertx", vertx);
+    CommonHelper.assertNotNull("clients", clients);
+    CommonHelper.assertNotNull("options", options);
+    this.vertx = vertx;
+    this.clients = clients;
+    this.options = options;
+  }
+
   @Override
   public void authenticate(JsonObject jsonObject, Handler<AsyncResult<User>> handler) {
-    // We'll just let the handler delegate back to pac4j, we don't need to do any more than that
-    handler.handle(Future.failedFuture("Delegate to pac4j subsystem for authentication"));
+    if (clients == null) {
+      // We'll just let the handler delegate back to pac4j, we don't need to do any more than that
+      handler.handle(Future.failedFuture("Delegate to pac4j subsystem for authentication"));
+      return;
+    }
+
+    final String clientName = jsonObject.getValue(CLIENT) instanceof String
+        ? jsonObject.getString(CLIENT) : options.getDefaultClient();
+    final VertxJwtBearerAuthenticator jwtAuthenticator = options.getJwtBearerAuthenticator();
+    if (jwtAuthenticator != null && (clientName == null || clientName.equals(jwtAuthenticator.getClientName()))
+        && options.getAllowedClients().contains(jwtAuthenticator.getClientName())) {
+      final Optional<String> token = bearerToken(new AuthInfoWebContext(jsonObject));
+      if (token.isPresent()) {
+        jwtAuthenticator.authenticate(token.get(), authenticated -> handler.handle(authenticated.succeeded()
+            ? Future.succeededFuture(user(authenticated.result())) : Future.failedFuture(authenticated.cause())));
+        return;
+      }
+    }
+    if (clientName == null) {
+      handler.handle(Future.failedFuture(new CredentialsException("No client named in the auth info")));
+      return;
+    }
+    if (!options.getAllowedClients().contains(clientName)) {
+      handler.handle(Future.failedFuture(new CredentialsException("Client not allowed: " + clientName)));
+      return;
+    }
+    final Optional<Client> client = clients.findClient(clientName);
+    if (!client.isPresent() || !(client.get() instanceof DirectClient)) {
+      handler.handle(Future.failedFuture(new CredentialsException("No direct client named " + clientName)));
+      return;
+    }
+
+    final DirectClient<Credentials> directClient = (DirectClient<Credentials>) client.get();
+    final AuthInfoWebContext context = new AuthInfoWebContext(jsonObject);
+    if (options.getNonBlockingClients().contains(clientName)) {
+      final Promise<User> promise = Promise.promise();
+      authenticate(directClient, context, promise);
+      handler.handle(promise.future());
+    } else {
+      vertx.executeBlocking(promise -> authenticate(directClient, context, promise), false, handler);
+    }
+  }
+
+  private static void authenticate(final DirectClient<Credentials> client, final AuthInfoWebContext context,
+                                   final Promise<User> promise) {
+    try {
+      // Credentials which fail validation are not returned by the client
+      final Optional<Credentials> credentials = client.getCredentials(context);
+      if (!credentials.isPresent()) {
+        promise.fail(new CredentialsException("Invalid credentials for client " + client.getName()));
+        return;
+      }
+      final Optional<UserProfile> profile = client.getUserProfile(credentials.get(), context);
+      if (!profile.isPresent() || !(profile.get() instanceof CommonProfile)) {
+        promise.fail(new CredentialsException("No profile built by client " + client.getName()));
+        return;
+      }
+      promise.complete(user((CommonProfile) profile.get()));
+    } catch (final RuntimeException e) {
+      promise.fail(e);
+    }
+  }
+
+  private static Optional<String> bearerToken(final AuthInfoWebContext context) {
+    final Optional<String> token = context.getRequestParameter(TOKEN);
+    if (token.isPresent()) {
+      return token;
+    }
+    return context.getRequestHeader(HttpHeaders.AUTHORIZATION.toString())
+        .filter(authorization -> authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length()))
+        .map(authorization -> authorization.substring(BEARER_PREFIX.length()).trim());
+  }
+
+  private static Pac4jUser user(final CommonProfile profile) {
+    final Map<String, CommonProfile> profiles = new LinkedHashMap<>();
+    profiles.put(profile.getClientName(), profile);
+    final Pac4jUser user = new Pac4jUser();
+    user.setUserProfiles(profiles);
+    return user;
   }
 }
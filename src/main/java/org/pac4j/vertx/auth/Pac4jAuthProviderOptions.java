@@ -0,0 +1,45 @@
+package org.pac4j.vertx.auth;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.pac4j.vertx.jwt.VertxJwtBearerAuthenticator;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Options for a {@link Pac4jAuthProvider} authenticating credentials against direct clients.
+ */
+@Accessors(chain = true)
+public class Pac4jAuthProviderOptions {
+
+    /**
+     * Names of the direct clients the credentials may be authenticated against, whether named in their "client"
+     * field, taken as the default client or verified by the bearer token authenticator. Credentials for any other
+     * client are rejected, so that the auth info cannot select a client such as the anonymous one. Empty by default,
+     * rejecting all credentials.
+     */
+    @Getter @Setter
+    private Set<String> allowedClients = new HashSet<>();
+
+    /**
+     * Name of the client authenticating the credentials which do not name one in their "client" field.
+     */
+    @Getter @Setter
+    private String defaultClient;
+
+    /**
+     * Names of the direct clients whose credentials extractor, authenticator and profile creator never block, which
+     * are run on the calling thread rather than on a worker thread.
+     */
+    @Getter @Setter
+    private Set<String> nonBlockingClients = new HashSet<>();
+
+    /**
+     * Authenticator verifying the bearer tokens meant for its client on the event loop, null to leave them to the
+     * clients.
+     */
+    @Getter @Setter
+    private VertxJwtBearerAuthenticator jwtBearerAuthenticator;
+}
@@ -0,0 +1,24 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.eventbus.EventBus;
+
+/**
+ * Registration of the event bus codecs of the pac4j user types, so that users and profiles can be sent between
+ * verticles without converting them to JSON.
+ */
+public final class Pac4jCodecs {
+
+    private Pac4jCodecs() {
+    }
+
+    /**
+     * Register {@link Pac4jUserCodec} and {@link Pac4JUserProfilesCodec} as the default codecs of their types. To be
+     * called once per Vert.x instance.
+     *
+     * @param eventBus the event bus
+     */
+    public static void registerDefaultCodecs(final EventBus eventBus) {
+        eventBus.registerDefaultCodec(Pac4jUser.class, new Pac4jUserCodec());
+        eventBus.registerDefaultCodec(Pac4JUserProfiles.class, new Pac4JUserProfilesCodec());
+    }
+}
@@ -5,19 +5,13 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
-import io.vertx.core.shareddata.impl.ClusterSerializable;
 import io.vertx.ext.auth.AbstractUser;
 import io.vertx.ext.auth.AuthProvider;
 import org.pac4j.core.profile.CommonProfile;
-import org.pac4j.vertx.core.DefaultJsonConverter;
 
-import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
-import static java.util.stream.Collectors.toMap;
-
 /**
  * @author Jeremy Prime
  * @since 2.0.0
@@ -25,7 +19,6 @@ import static java.util.stream.Collectors.toMap;
 public class Pac4jUser extends AbstractUser {
 
     private final Pac4JUserProfiles profiles = new Pac4JUserProfiles();
-    private JsonObject principal;
 
     public Pac4jUser() {
         // I think this noop default constructor is required for deserialization from a clustered session
@@ -44,8 +37,22 @@ public class Pac4jUser extends AbstractUser {
 
     }
 
+    /**
+     * The principal maps each client name to the attributes of its profile as strings. It is built on each call, so
+     * that it follows the changes made to the profiles handed out by {@link #pac4jUserProfiles()}.
+     *
+     * @return the principal
+     */
     @Override
     public JsonObject principal() {
+        final JsonObject principal = new JsonObject();
+        profiles.forEach((name, profile) -> {
+            final JsonObject jsonProfile = new JsonObject();
+            profile.getAttributes()
+                    .forEach((attributeName, attributeValue) ->
+                            jsonProfile.put(attributeName, attributeValue.toString()));
+            principal.put(name, jsonProfile);
+        });
         return principal;
     }
 
@@ -56,40 +63,44 @@ public class Pac4jUser extends AbstractUser {
     @Override
     public void writeToBuffer(Buffer buff) {
         super.writeToBuffer(buff);
-        profiles.writeToBuffer(buff);
+        // Users are read back on the event loop, where deduplicated profiles could not be fetched
+        profiles.writeToBuffer(buff, false);
     }
 
     @Override
     public int readFromBuffer(int pos, Buffer buffer) {
         int posLocal = super.readFromBuffer(pos, buffer);
-        profiles.readFromBuffer(posLocal, buffer);
-        updatePrincipal();
-        return posLocal;
+        return profiles.readFromBuffer(posLocal, buffer);
     }
 
+    /**
+     * @return the profiles of this user, changes made to them being kept
+     */
     public Map<String, CommonProfile> pac4jUserProfiles() {
         return profiles;
     }
 
-    public void setUserProfiles(final Map<String, CommonProfile> userProfiles) {
-        Objects.requireNonNull(userProfiles);
-        profiles.clear();
-        profiles.putAll(userProfiles);
-        updatePrincipal();
+    /**
+     * @return an immutable, memory-compact snapshot of the profiles of this user
+     */
+    public Map<String, CompactProfile> compactProfiles() {
+        return profiles.compact();
     }
 
     /**
-     * Update the principal, to be called on any modification of the profiles map internally.
+     * @return a new user holding copies of the profiles of this one, sharing nothing with it
      */
-    private void updatePrincipal() {
+    Pac4jUser copy() {
+        final Pac4jUser user = new Pac4jUser();
+        user.profiles.putAll(profiles.copy());
+        return user;
+    }
 
-        principal = new JsonObject();
-        profiles.forEach((name, profile) -> {
-            final JsonObject jsonProfile = new JsonObject();
-            profile.getAttributes()
-                    .forEach((attributeName, attributeValue) ->
-                            jsonProfile.put(attributeName, attributeValue.toString()));
-            principal.put(name, jsonProfile);
-        });
+    public void setUserProfiles(final Map<String, CommonProfile> userProfiles) {
+        Objects.requireNonNull(userProfiles);
+        if (userProfiles != profiles) {
+            profiles.clear();
+            profiles.putAll(userProfiles);
+        }
     }
 }
@@ -0,0 +1,40 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Event bus codec for {@link Pac4jUser}. Local deliveries receive a new user holding copies of the profiles of the one
+ * sent, as profiles can be changed. Cluster deliveries use the same wire format as clustered sessions.
+ */
+public class Pac4jUserCodec implements MessageCodec<Pac4jUser, Pac4jUser> {
+
+    public static final String NAME = "pac4j-user";
+
+    @Override
+    public void encodeToWire(final Buffer buffer, final Pac4jUser user) {
+        user.writeToBuffer(buffer);
+    }
+
+    @Override
+    public Pac4jUser decodeFromWire(final int pos, final Buffer buffer) {
+        final Pac4jUser user = new Pac4jUser();
+        user.readFromBuffer(pos, buffer);
+        return user;
+    }
+
+    @Override
+    public Pac4jUser transform(final Pac4jUser user) {
+        return user.copy();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
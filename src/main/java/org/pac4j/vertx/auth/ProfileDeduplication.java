@@ -0,0 +1,170 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.store.Store;
+import org.pac4j.core.util.CommonHelper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Store of the deduplicated profiles of {@link Pac4JUserProfiles}, each serialized profile being kept once in a pac4j
+ * store, keyed by a hash of its content.
+ *
+ * The profiles this node recently stored or fetched are cached, up to a maximum count beyond which the least recently
+ * used are evicted. The store is never called on an event loop: profiles are stored on a worker thread when written
+ * from an event loop, and the profiles saved to a session are stored straight away, from the worker thread the pac4j
+ * logic runs on, so that they are in the store before the session refers to them. A profile missing from the cache
+ * when first accessed on an event loop cannot be fetched, so the profiles of deduplicated sessions must be accessed
+ * off the event loop first, as the pac4j handlers do.
+ */
+public class ProfileDeduplication {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileDeduplication.class);
+
+    private static final String CONTENT_KEY_PREFIX = "pac4j-profile:";
+
+    private final Vertx vertx;
+    private final Store<String, String> store;
+    private final long refreshInterval;
+    private final Map<String, Cached> cache;
+
+    /**
+     * @param vertx the vertx instance
+     * @param store the store of the profiles. It must be shared by the nodes and keep entries at least as long as the
+     *              sessions referring to them live, and must stay configured as long as such sessions may be read,
+     *              even once deduplication is disabled
+     * @param refreshInterval interval in milliseconds during which this node does not store a profile again once it
+     *                        stored it, as sessions are written on every request. Profiles are stored again
+     *                        afterwards to extend their lifetime in stores with a time to live
+     * @param maxCachedProfiles maximum number of profiles cached by this node
+     */
+    public ProfileDeduplication(final Vertx vertx, final Store<String, String> store, final long refreshInterval,
+                                final int maxCachedProfiles) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("store", store);
+        CommonHelper.assertTrue(maxCachedProfiles > 0, "maxCachedProfiles must be positive");
+        this.vertx = vertx;
+        this.store = store;
+        this.refreshInterval = refreshInterval;
+        this.cache = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Cached> eldest) {
+                return size() > maxCachedProfiles;
+            }
+        };
+    }
+
+    public ProfileDeduplication(final Vertx vertx, final Store<String, String> store) {
+        this(vertx, store, 60 * 1000, 10000);
+    }
+
+    /**
+     * @return the number of profiles cached by this node
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Store the JSON of a profile, unless this node recently did.
+     *
+     * @param json the JSON of the profile
+     * @return the key of the JSON in the store
+     */
+    byte[] store(final byte[] json) {
+        final String key = CONTENT_KEY_PREFIX + contentHash(json);
+        final long now = System.currentTimeMillis();
+        final boolean stale;
+        synchronized (cache) {
+            final Cached cached = cache.get(key);
+            stale = cached == null || now - cached.storedAt > refreshInterval;
+            if (stale) {
+                cache.put(key, new Cached(json, now));
+            }
+        }
+        if (stale) {
+            final String value = new String(json, StandardCharsets.UTF_8);
+            if (Context.isOnEventLoopThread()) {
+                vertx.executeBlocking(promise -> {
+                    store.set(key, value);
+                    promise.complete();
+                }, false, stored -> {
+                    if (stored.failed()) {
+                        forget(key);
+                        LOG.warn("Unable to store profile " + key, stored.cause());
+                    }
+                });
+            } else {
+                store.set(key, value);
+            }
+        }
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param key the key of the JSON of a profile
+     * @return the JSON of the profile, null if the store no longer holds it
+     */
+    byte[] fetch(final byte[] key) {
+        final String contentKey = new String(key, StandardCharsets.UTF_8);
+        synchronized (cache) {
+            final Cached cached = cache.get(contentKey);
+            if (cached != null) {
+                return cached.json;
+            }
+        }
+        if (Context.isOnEventLoopThread()) {
+            throw new TechnicalException("Profile " + contentKey + " is not cached by this node and cannot be fetched "
+                    + "on the event loop: access the profiles of deduplicated sessions off the event loop first");
+        }
+        final Optional<String> json = store.get(contentKey);
+        if (!json.isPresent()) {
+            LOG.warn("Profile " + contentKey + " is no longer in the deduplication store");
+            return null;
+        }
+        final byte[] fetched = json.get().getBytes(StandardCharsets.UTF_8);
+        synchronized (cache) {
+            // Fetched profiles are not known to have been stored recently, so are stored again when next written
+            cache.putIfAbsent(contentKey, new Cached(fetched, 0));
+        }
+        return fetched;
+    }
+
+    private void forget(final String key) {
+        synchronized (cache) {
+            cache.remove(key);
+        }
+    }
+
+    private static String contentHash(final byte[] json) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private static final class Cached {
+
+        private final byte[] json;
+        private final long storedAt;
+
+        private Cached(final byte[] json, final long storedAt) {
+            this.json = json;
+            this.storedAt = storedAt;
+        }
+    }
+}
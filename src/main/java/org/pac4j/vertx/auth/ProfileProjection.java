@@ -0,0 +1,106 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.json.JsonObject;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.vertx.core.DefaultJsonConverter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selection of the profile attributes which are kept when profiles are saved to the session or serialized to the
+ * cluster. The profiles used during the request which authenticated the user are not affected.
+ *
+ * An empty include list retains every attribute which is not excluded. A projection registered for a client name
+ * replaces this projection entirely for the profiles of that client.
+ */
+@Accessors(chain = true)
+public class ProfileProjection {
+
+    private static final String VALUE = "value";
+    private static final String ATTRIBUTES = "attributes";
+    private static final String CLIENT_NAME = "clientName";
+
+    @Getter @Setter @NonNull
+    private Set<String> includedAttributes = new HashSet<>();
+
+    @Getter @Setter @NonNull
+    private Set<String> excludedAttributes = new HashSet<>();
+
+    @Getter @Setter @NonNull
+    private Map<String, ProfileProjection> clientProjections = new HashMap<>();
+
+    public ProfileProjection include(final String... attributeNames) {
+        includedAttributes.addAll(Arrays.asList(attributeNames));
+        return this;
+    }
+
+    public ProfileProjection exclude(final String... attributeNames) {
+        excludedAttributes.addAll(Arrays.asList(attributeNames));
+        return this;
+    }
+
+    public ProfileProjection forClient(final String clientName, final ProfileProjection projection) {
+        clientProjections.put(clientName, projection);
+        return this;
+    }
+
+    /**
+     * @param clientName the name of the client which built the profile, may be null
+     * @param attributeName the attribute name
+     * @return true if the attribute is kept for profiles of the given client
+     */
+    public boolean retains(final String clientName, final String attributeName) {
+        final ProfileProjection projection = resolve(clientName);
+        return !projection.excludedAttributes.contains(attributeName)
+                && (projection.includedAttributes.isEmpty() || projection.includedAttributes.contains(attributeName));
+    }
+
+    /**
+     * Apply the projection to a profile.
+     *
+     * @param profile the profile to project, which is left untouched
+     * @return the profile itself if it has no attribute to remove, otherwise a copy holding the retained attributes
+     */
+    public CommonProfile apply(final CommonProfile profile) {
+        final String clientName = profile.getClientName();
+        if (profile.getAttributes().keySet().stream().allMatch(name -> retains(clientName, name))) {
+            return profile;
+        }
+        final JsonObject encoded = (JsonObject) DefaultJsonConverter.getInstance().encodeObject(profile);
+        return (CommonProfile) DefaultJsonConverter.getInstance().decodeObject(apply(encoded));
+    }
+
+    /**
+     * Apply the projection in place to a profile encoded by {@link DefaultJsonConverter}.
+     *
+     * @param encodedProfile the encoded profile
+     * @return the encoded profile
+     */
+    public JsonObject apply(final JsonObject encodedProfile) {
+        final JsonObject value = encodedProfile.getJsonObject(VALUE);
+        final JsonObject attributes = value != null ? value.getJsonObject(ATTRIBUTES) : null;
+        if (attributes != null) {
+            final String clientName = value.getString(CLIENT_NAME);
+            attributes.getMap().keySet().removeIf(name -> !retains(clientName, name));
+        }
+        return encodedProfile;
+    }
+
+    private ProfileProjection resolve(final String clientName) {
+        if (clientName != null) {
+            final ProfileProjection clientProjection = clientProjections.get(clientName);
+            if (clientProjection != null) {
+                return clientProjection;
+            }
+        }
+        return this;
+    }
+}
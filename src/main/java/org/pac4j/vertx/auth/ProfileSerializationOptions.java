@@ -0,0 +1,59 @@
+package org.pac4j.vertx.auth;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options controlling how {@link Pac4JUserProfiles} are persisted to the session and written when a session is
+ * replicated across the cluster or a user is sent over the event bus. Payloads written with any combination of these
+ * options can always be read back, whatever the options of the reading node.
+ */
+@Accessors(chain = true)
+public class ProfileSerializationOptions {
+
+    /**
+     * True if serialized profiles above the compression threshold should be deflated. Disabled by default, in which
+     * case the payload is written in the original uncompressed format.
+     */
+    @Getter @Setter
+    private boolean compress = false;
+
+    /**
+     * Size in bytes of the uncompressed profiles payload from which compression is applied. Smaller payloads are
+     * written as is, as the CPU cost of compressing them outweighs the bytes saved.
+     */
+    @Getter @Setter
+    private int compressionThreshold = 1024;
+
+    /**
+     * True if each profile should be written separately, so that the reading node only decodes a profile when it is
+     * first accessed, and writes the profiles it did not access back as it read them. Disabled by default, as nodes
+     * older than this format cannot read it: only enable it once every node of the cluster can.
+     */
+    @Getter @Setter
+    private boolean perProfile = false;
+
+    /**
+     * True if each serialized profile should be kept once in the deduplication store, keyed by a hash of its content,
+     * sessions only holding the keys of their profiles, so that the identical profiles of the many sessions of a user
+     * are only stored once. Disabled by default. Enabling it implies the per-profile format. Users written by
+     * {@link Pac4jUser} are not deduplicated.
+     */
+    @Getter @Setter
+    private boolean deduplicate = false;
+
+    /**
+     * Store of the deduplicated profiles, with the cache of the profiles this node recently stored or fetched. It must
+     * stay configured as long as sessions referring to it may be read, even once deduplication is disabled.
+     */
+    @Getter @Setter
+    private ProfileDeduplication deduplication = null;
+
+    /**
+     * Attributes to keep when profiles are saved to the session or serialized. By default (null) all attributes are
+     * kept.
+     */
+    @Getter @Setter
+    private ProfileProjection projection = null;
+}
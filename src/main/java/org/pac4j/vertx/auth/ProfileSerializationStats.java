@@ -0,0 +1,49 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sizes of the profiles written to and read from buffers by this node, as serialized, so compressed payloads are
+ * counted at their compressed size.
+ */
+public class ProfileSerializationStats {
+
+    private final ByteSizeHistogram written = new ByteSizeHistogram();
+    private final ByteSizeHistogram read = new ByteSizeHistogram();
+    private final AtomicLong compressed = new AtomicLong();
+
+    public ByteSizeHistogram getWritten() {
+        return written;
+    }
+
+    public ByteSizeHistogram getRead() {
+        return read;
+    }
+
+    /**
+     * @return the number of profiles written in compressed form
+     */
+    public long getCompressed() {
+        return compressed.get();
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("written", written.toJson())
+                .put("read", read.toJson())
+                .put("compressed", getCompressed());
+    }
+
+    void recordWrite(final int bytes, final boolean wasCompressed) {
+        written.record(bytes);
+        if (wasCompressed) {
+            compressed.incrementAndGet();
+        }
+    }
+
+    void recordRead(final int bytes) {
+        read.record(bytes);
+    }
+}
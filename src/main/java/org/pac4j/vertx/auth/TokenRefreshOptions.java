@@ -0,0 +1,37 @@
+package org.pac4j.vertx.auth;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options for a {@link TokenRefreshScheduler}.
+ */
+@Accessors(chain = true)
+public class TokenRefreshOptions {
+
+    /**
+     * Time in milliseconds before the expiry of its access token at which a profile is refreshed.
+     */
+    @Getter @Setter
+    private long refreshAhead = 60 * 1000;
+
+    /**
+     * Maximum random time in milliseconds by which a refresh is brought forward, so that profiles saved together
+     * are not all refreshed at the same instant.
+     */
+    @Getter @Setter
+    private long jitter = 10 * 1000;
+
+    /**
+     * Maximum number of refreshes running at the same time. Refreshes falling due beyond this are deferred.
+     */
+    @Getter @Setter
+    private int maxConcurrentRefreshes = 4;
+
+    /**
+     * Interval in milliseconds at which due refreshes are looked for.
+     */
+    @Getter @Setter
+    private long checkInterval = 1000;
+}
@@ -0,0 +1,300 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.oidc.client.OidcClient;
+import org.pac4j.oidc.credentials.OidcCredentials;
+import org.pac4j.oidc.credentials.authenticator.OidcAuthenticator;
+import org.pac4j.oidc.profile.OidcProfile;
+
+import java.io.Closeable;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes the access tokens of session-held profiles in the background shortly before they expire, so that
+ * requests do not have to wait for the renewal performed by pac4j once a profile has expired.
+ *
+ * Sessions are tracked when their profiles are saved through a {@link org.pac4j.vertx.VertxProfileManager} once the
+ * scheduler has been registered with {@link org.pac4j.vertx.VertxProfileManager#setTokenRefreshScheduler}. Only
+ * OpenID Connect profiles holding a refresh token can be renewed by pac4j, so other profiles are left untouched.
+ * The refreshed profiles replace those of the session only if these were not saved again in the meantime.
+ */
+public class TokenRefreshScheduler implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TokenRefreshScheduler.class);
+    private static final int MIN_PURGE_SIZE = 1024;
+    private static final int MAX_STORE_ATTEMPTS = 3;
+
+    private final Vertx vertx;
+    private final SessionStore sessionStore;
+    private final Clients clients;
+    private final TokenRefreshOptions options;
+    private final long timerId;
+
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final PriorityQueue<Tracked> queue = new PriorityQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public TokenRefreshScheduler(final Vertx vertx, final SessionStore sessionStore, final Clients clients,
+                                 final TokenRefreshOptions options) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("sessionStore", sessionStore);
+        CommonHelper.assertNotNull("clients", clients);
+        CommonHelper.assertNotNull("options", options);
+        this.vertx = vertx;
+        this.sessionStore = sessionStore;
+        this.clients = clients;
+        this.options = options;
+        this.timerId = vertx.setPeriodic(options.getCheckInterval(), id -> runDueRefreshes());
+    }
+
+    /**
+     * Track the profiles just saved in a session, replacing any refresh previously scheduled for that session.
+     *
+     * @param sessionId the id of the session holding the profiles
+     * @param profiles the profiles of the session
+     */
+    public void track(final String sessionId, final Map<String, CommonProfile> profiles) {
+        track(sessionId, Pac4jConstants.USER_PROFILES, profiles);
+    }
+
+    /**
+     * Track the profiles just saved in a session under a given key, replacing any refresh previously scheduled for
+     * that session.
+     *
+     * @param sessionId the id of the session holding the profiles
+     * @param sessionKey the key of the profiles in the session, qualified by tenant for multi-tenant applications
+     * @param profiles the profiles of the session
+     */
+    public void track(final String sessionId, final String sessionKey, final Map<String, CommonProfile> profiles) {
+        final long expiry = earliestExpiry(profiles);
+        if (expiry == Long.MAX_VALUE) {
+            untrack(sessionId);
+            return;
+        }
+        final long jitter = options.getJitter() > 0 ? ThreadLocalRandom.current().nextLong(options.getJitter()) : 0;
+        final Tracked entry = new Tracked(sessionId, sessionKey, expiry - options.getRefreshAhead() - jitter);
+        tracked.put(sessionId, entry);
+        synchronized (queue) {
+            queue.add(entry);
+            // Entries of sessions tracked again or untracked are otherwise only discarded once they fall due
+            if (queue.size() > 2 * tracked.size() + MIN_PURGE_SIZE) {
+                queue.removeIf(queued -> tracked.get(queued.sessionId) != queued);
+            }
+        }
+    }
+
+    /**
+     * Stop refreshing the profiles of a session.
+     *
+     * @param sessionId the id of the session
+     */
+    public void untrack(final String sessionId) {
+        // The queue entry is discarded once it falls due
+        tracked.remove(sessionId);
+    }
+
+    /**
+     * @return the number of sessions whose profiles are due to be refreshed
+     */
+    public int size() {
+        return tracked.size();
+    }
+
+    @Override
+    public void close() {
+        vertx.cancelTimer(timerId);
+        tracked.clear();
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    private void runDueRefreshes() {
+        final long now = System.currentTimeMillis();
+        while (inFlight.get() < options.getMaxConcurrentRefreshes()) {
+            final Tracked entry;
+            synchronized (queue) {
+                final Tracked head = queue.peek();
+                if (head == null || head.due > now) {
+                    return;
+                }
+                entry = queue.poll();
+            }
+            if (tracked.remove(entry.sessionId, entry)) {
+                inFlight.incrementAndGet();
+                refresh(entry.sessionId, entry.sessionKey);
+            }
+        }
+    }
+
+    private void refresh(final String sessionId, final String sessionKey) {
+        sessionStore.get(sessionId, loaded -> {
+            final Session session = loaded.succeeded() ? loaded.result() : null;
+            final Map<String, CommonProfile> current = profiles(session, sessionKey);
+            if (current == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            vertx.<Pac4JUserProfiles>executeBlocking(promise -> promise.complete(refreshAll(current)), false,
+                    refreshed -> {
+                        inFlight.decrementAndGet();
+                        if (refreshed.failed()) {
+                            // Left to pac4j to renew once the profile has expired
+                            LOG.warn("Unable to refresh the profiles of session " + sessionId, refreshed.cause());
+                        } else if (refreshed.result() != null) {
+                            store(sessionId, sessionKey, current, refreshed.result(), MAX_STORE_ATTEMPTS);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Store refreshed profiles in a session, unless the profiles they were refreshed from were replaced in the
+     * meantime. The session is loaded again rather than reused, as clustered stores load a copy of it, and storing it
+     * is retried when the store rejects it for having been written by another node since it was loaded.
+     */
+    private void store(final String sessionId, final String sessionKey, final Map<String, CommonProfile> original,
+                       final Pac4JUserProfiles refreshed, final int attempts) {
+        sessionStore.get(sessionId, loaded -> {
+            final Session session = loaded.succeeded() ? loaded.result() : null;
+            final Map<String, CommonProfile> current = profiles(session, sessionKey);
+            if (current == null || !unchanged(original, refreshed, current)) {
+                LOG.debug("Profiles of session " + sessionId + " saved while being refreshed");
+                return;
+            }
+            final Pac4JUserProfiles profiles = new Pac4JUserProfiles(current);
+            profiles.putAll(refreshed);
+            session.put(sessionKey, profiles);
+            sessionStore.put(session, stored -> {
+                if (stored.succeeded()) {
+                    track(sessionId, sessionKey, profiles);
+                } else if (attempts > 1) {
+                    store(sessionId, sessionKey, original, refreshed, attempts - 1);
+                } else {
+                    LOG.debug("Refreshed profiles of session " + sessionId + " not stored: " + stored.cause());
+                }
+            });
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, CommonProfile> profiles(final Session session, final String sessionKey) {
+        final Object profiles = session != null ? session.get(sessionKey) : null;
+        return profiles instanceof Map ? (Map<String, CommonProfile>) profiles : null;
+    }
+
+    /**
+     * @return true if each refreshed profile of the session still holds the access token it was refreshed from, or
+     *         the refreshed one when an earlier attempt to store the session changed the session loaded from a local
+     *         store
+     */
+    private static boolean unchanged(final Map<String, CommonProfile> original,
+                                     final Map<String, CommonProfile> refreshed,
+                                     final Map<String, CommonProfile> current) {
+        for (final String name : refreshed.keySet()) {
+            final String token = accessToken(current.get(name));
+            if (token == null || !token.equals(accessToken(original.get(name)))
+                    && !token.equals(accessToken(refreshed.get(name)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String accessToken(final CommonProfile profile) {
+        if (profile instanceof OidcProfile && ((OidcProfile) profile).getAccessToken() != null) {
+            return ((OidcProfile) profile).getAccessToken().getValue();
+        }
+        return null;
+    }
+
+    /**
+     * @return the refreshed profiles only, keyed by client name, or null if none was due
+     */
+    private Pac4JUserProfiles refreshAll(final Map<String, CommonProfile> profiles) {
+        final long threshold = System.currentTimeMillis() + options.getRefreshAhead() + options.getJitter();
+        final Pac4JUserProfiles refreshed = new Pac4JUserProfiles();
+        for (final Map.Entry<String, CommonProfile> entry : profiles.entrySet()) {
+            final long expiry = expiry(entry.getValue());
+            if (expiry != Long.MAX_VALUE && expiry <= threshold) {
+                refresh((OidcProfile) entry.getValue()).ifPresent(profile -> refreshed.put(entry.getKey(), profile));
+            }
+        }
+        return refreshed.isEmpty() ? null : Pac4JUserProfiles.forSession(refreshed);
+    }
+
+    private Optional<OidcProfile> refresh(final OidcProfile profile) {
+        final Optional<Client> client = clients.findClient(profile.getClientName());
+        if (!client.isPresent() || !(client.get() instanceof OidcClient)) {
+            return Optional.empty();
+        }
+        final OidcClient<?> oidcClient = (OidcClient<?>) client.get();
+        oidcClient.init();
+
+        final OidcCredentials credentials = new OidcCredentials();
+        credentials.setRefreshToken(profile.getRefreshToken());
+        new OidcAuthenticator(oidcClient.getConfiguration(), oidcClient).refresh(credentials);
+
+        final OidcProfile refreshed = Pac4JUserProfiles.copy(profile);
+        refreshed.setTokenExpirationAdvance(profile.getTokenExpirationAdvance());
+        refreshed.setAccessToken(credentials.getAccessToken());
+        if (credentials.getRefreshToken() != null) {
+            refreshed.setRefreshToken(credentials.getRefreshToken());
+        }
+        if (credentials.getIdToken() != null) {
+            refreshed.setIdTokenString(credentials.getIdToken().serialize());
+        }
+        return Optional.of(refreshed);
+    }
+
+    private static long earliestExpiry(final Map<String, CommonProfile> profiles) {
+        long earliest = Long.MAX_VALUE;
+        for (final CommonProfile profile : profiles.values()) {
+            earliest = Math.min(earliest, expiry(profile));
+        }
+        return earliest;
+    }
+
+    private static long expiry(final CommonProfile profile) {
+        if (profile instanceof OidcProfile && ((OidcProfile) profile).getRefreshToken() != null) {
+            final Date expiration = ((OidcProfile) profile).getExpiration();
+            if (expiration != null) {
+                return expiration.getTime();
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static final class Tracked implements Comparable<Tracked> {
+
+        private final String sessionId;
+        private final String sessionKey;
+        private final long due;
+
+        private Tracked(final String sessionId, final String sessionKey, final long due) {
+            this.sessionId = sessionId;
+            this.sessionKey = sessionKey;
+            this.due = due;
+        }
+
+        @Override
+        public int compareTo(final Tracked other) {
+            return Long.compare(due, other.due);
+        }
+    }
+}
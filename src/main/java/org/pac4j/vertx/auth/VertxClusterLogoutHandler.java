@@ -0,0 +1,32 @@
+package org.pac4j.vertx.auth;
+
+import org.pac4j.core.logout.handler.DefaultLogoutHandler;
+import org.pac4j.core.store.Store;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.VertxWebContext;
+
+import java.util.Optional;
+
+/**
+ * pac4j logout handler also publishing the back-channel logouts requested by an identity provider to the other nodes
+ * of the cluster, since the node receiving the request may not be the one holding the session when sessions are
+ * node-local. Logouts requested in a burst are published together by the {@link ClusterLogout}.
+ */
+public class VertxClusterLogoutHandler extends DefaultLogoutHandler<VertxWebContext> {
+
+    private final ClusterLogout clusterLogout;
+
+    public VertxClusterLogoutHandler(final Store<String, Object> store, final ClusterLogout clusterLogout) {
+        super(store);
+        CommonHelper.assertNotNull("clusterLogout", clusterLogout);
+        this.clusterLogout = clusterLogout;
+    }
+
+    @Override
+    public void destroySessionBack(final VertxWebContext context, final String key) {
+        // Looked up first, as the session is forgotten once destroyed
+        final Optional<Object> trackableSession = getStore().get(key);
+        super.destroySessionBack(context, key);
+        trackableSession.ifPresent(sessionId -> clusterLogout.logout((String) sessionId, isDestroySession()));
+    }
+}
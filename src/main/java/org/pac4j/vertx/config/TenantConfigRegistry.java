@@ -0,0 +1,214 @@
+package org.pac4j.vertx.config;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.core.util.InitializableObject;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Registry of the pac4j configurations of many tenants. The configuration of a tenant is built and its clients
+ * initialised on a worker thread when the tenant is first used, then cached until it is evicted, either as the least
+ * recently used configuration once the maximum number of tenants is reached, or after being idle. Tenants found to be
+ * unknown are remembered as such for a short time, in a separate bounded cache, so that requests for made-up tenants
+ * neither call the configuration factory each time nor evict the configurations of known tenants.
+ */
+public class TenantConfigRegistry implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TenantConfigRegistry.class);
+
+    private final Vertx vertx;
+    private final Function<String, Config> configFactory;
+    private final int maxTenants;
+    private final long idleTimeout;
+    private final long unknownTenantTtl;
+    private final long timerId;
+
+    // All maps are guarded by the tenants map
+    private final LinkedHashMap<String, Tenant> tenants;
+    // Time until which each tenant is known to be unknown
+    private final LinkedHashMap<String, Long> unknownTenants;
+    private final Map<String, List<Waiter>> pending = new HashMap<>();
+
+    /**
+     * @param vertx the vertx API
+     * @param configFactory builds the configuration of a tenant, returning null for an unknown tenant. It is called on
+     *                      a worker thread, so may block
+     * @param options the registry options
+     */
+    public TenantConfigRegistry(final Vertx vertx, final Function<String, Config> configFactory,
+                                final TenantConfigRegistryOptions options) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("configFactory", configFactory);
+        CommonHelper.assertNotNull("options", options);
+        CommonHelper.assertTrue(options.getMaxTenants() > 0, "maxTenants must be positive");
+        CommonHelper.assertTrue(options.getMaxUnknownTenants() > 0, "maxUnknownTenants must be positive");
+        this.vertx = vertx;
+        this.configFactory = configFactory;
+        this.maxTenants = options.getMaxTenants();
+        this.idleTimeout = options.getIdleTimeout();
+        this.unknownTenantTtl = options.getUnknownTenantTtl();
+        this.tenants = new LinkedHashMap<String, Tenant>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Tenant> eldest) {
+                return size() > maxTenants;
+            }
+        };
+        final int maxUnknownTenants = options.getMaxUnknownTenants();
+        this.unknownTenants = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                return size() > maxUnknownTenants;
+            }
+        };
+        this.timerId = idleTimeout > 0 ? vertx.setPeriodic(Math.max(1, idleTimeout / 2), id -> evictIdle()) : -1;
+    }
+
+    /**
+     * Get the configuration of a tenant, building it if it is not cached.
+     *
+     * @param tenant the tenant
+     * @param handler called on the context of the caller with the configuration, or a null result for an unknown
+     *                tenant
+     */
+    public void getConfig(final String tenant, final Handler<AsyncResult<Config>> handler) {
+        CommonHelper.assertNotNull("tenant", tenant);
+        final Tenant cached;
+        boolean unknown = false;
+        boolean build = false;
+        synchronized (tenants) {
+            cached = tenants.get(tenant);
+            if (cached != null) {
+                cached.lastAccess = System.currentTimeMillis();
+            } else if (isKnownUnknown(tenant)) {
+                unknown = true;
+            } else {
+                // Requests arriving while the tenant is being built wait for the same build
+                final List<Waiter> waiters = pending.computeIfAbsent(tenant, t -> new ArrayList<>());
+                build = waiters.isEmpty();
+                waiters.add(new Waiter(vertx.getOrCreateContext(), handler));
+            }
+        }
+        if (cached != null) {
+            handler.handle(Future.succeededFuture(cached.config));
+        } else if (unknown) {
+            handler.handle(Future.succeededFuture());
+        } else if (build) {
+            vertx.<Config>executeBlocking(future -> future.complete(buildConfig(tenant)), false, asyncResult -> {
+                final List<Waiter> waiters;
+                synchronized (tenants) {
+                    waiters = pending.remove(tenant);
+                    if (asyncResult.succeeded() && asyncResult.result() != null) {
+                        tenants.put(tenant, new Tenant(asyncResult.result()));
+                    } else if (asyncResult.succeeded() && unknownTenantTtl > 0) {
+                        unknownTenants.put(tenant, System.currentTimeMillis() + unknownTenantTtl);
+                    }
+                }
+                if (asyncResult.failed()) {
+                    LOG.error("Failed to build the configuration of tenant " + tenant, asyncResult.cause());
+                }
+                waiters.forEach(waiter -> waiter.context.runOnContext(v -> waiter.handler.handle(asyncResult)));
+            });
+        }
+    }
+
+    /**
+     * Evict the configuration of a tenant, which is built again on its next request, or forget that it is unknown.
+     *
+     * @param tenant the tenant
+     */
+    public void evict(final String tenant) {
+        synchronized (tenants) {
+            tenants.remove(tenant);
+            unknownTenants.remove(tenant);
+        }
+    }
+
+    public int size() {
+        synchronized (tenants) {
+            return tenants.size();
+        }
+    }
+
+    public int getMaxTenants() {
+        return maxTenants;
+    }
+
+    @Override
+    public void close() {
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+
+    // Called holding the tenants map
+    private boolean isKnownUnknown(final String tenant) {
+        final Long until = unknownTenants.get(tenant);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            unknownTenants.remove(tenant);
+            return false;
+        }
+        return true;
+    }
+
+    private Config buildConfig(final String tenant) {
+        final Config config = configFactory.apply(tenant);
+        if (config == null) {
+            return null;
+        }
+        CommonHelper.assertNotNull("config.getClients()", config.getClients());
+        // Initialise now rather than on the first request of each client, which would block an event loop
+        for (final Client client : config.getClients().findAllClients()) {
+            if (client instanceof InitializableObject) {
+                ((InitializableObject) client).init();
+            }
+        }
+        LOG.debug("Built the configuration of tenant " + tenant);
+        return config;
+    }
+
+    private void evictIdle() {
+        final long idleSince = System.currentTimeMillis() - idleTimeout;
+        synchronized (tenants) {
+            tenants.values().removeIf(tenant -> tenant.lastAccess < idleSince);
+            final long now = System.currentTimeMillis();
+            unknownTenants.values().removeIf(until -> until < now);
+        }
+    }
+
+    private static class Tenant {
+        private final Config config;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Tenant(final Config config) {
+            this.config = config;
+        }
+    }
+
+    private static class Waiter {
+        private final Context context;
+        private final Handler<AsyncResult<Config>> handler;
+
+        private Waiter(final Context context, final Handler<AsyncResult<Config>> handler) {
+            this.context = context;
+            this.handler = handler;
+        }
+    }
+}
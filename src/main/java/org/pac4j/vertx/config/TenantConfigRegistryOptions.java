@@ -0,0 +1,38 @@
+package org.pac4j.vertx.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options for a {@link TenantConfigRegistry}.
+ */
+@Accessors(chain = true)
+public class TenantConfigRegistryOptions {
+
+    /**
+     * Maximum number of tenant configurations held, the least recently used one being evicted beyond.
+     */
+    @Getter @Setter
+    private int maxTenants = 100;
+
+    /**
+     * Time in milliseconds after which the configuration of a tenant which received no request is evicted, zero or
+     * negative to only evict on size.
+     */
+    @Getter @Setter
+    private long idleTimeout = 30 * 60 * 1000;
+
+    /**
+     * Time in milliseconds for which a tenant the configuration factory returned no configuration for is answered as
+     * unknown without calling the factory again, zero or negative to call it on every request.
+     */
+    @Getter @Setter
+    private long unknownTenantTtl = 60 * 1000;
+
+    /**
+     * Maximum number of unknown tenants remembered, the least recently requested one being forgotten beyond.
+     */
+    @Getter @Setter
+    private int maxUnknownTenants = 10000;
+}
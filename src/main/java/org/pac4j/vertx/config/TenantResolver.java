@@ -0,0 +1,57 @@
+package org.pac4j.vertx.config;
+
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Resolves the tenant a request is addressed to.
+ */
+@FunctionalInterface
+public interface TenantResolver {
+
+    /**
+     * Key of the routing context under which the tenant resolved for a request is kept, which qualifies the keys of
+     * the session entries pac4j reads and writes for the request.
+     */
+    String TENANT_KEY = "pac4jTenant";
+
+    /**
+     * @param routingContext the routing context of the request
+     * @return the tenant, or null if the request is not addressed to any tenant
+     */
+    String resolve(RoutingContext routingContext);
+
+    /**
+     * @return a resolver using the host name of the request, without port
+     */
+    static TenantResolver host() {
+        return routingContext -> {
+            final String host = routingContext.request().host();
+            if (host == null) {
+                return null;
+            }
+            // Keep IPv6 literals whole, only strip a trailing port
+            final int portSeparator = host.lastIndexOf(':');
+            return portSeparator > host.lastIndexOf(']') ? host.substring(0, portSeparator) : host;
+        };
+    }
+
+    /**
+     * @param name the header name
+     * @return a resolver using the value of a request header
+     */
+    static TenantResolver header(final String name) {
+        return routingContext -> routingContext.request().getHeader(name);
+    }
+
+    /**
+     * @param index the index of the segment, starting from 0
+     * @return a resolver using a segment of the request path
+     */
+    static TenantResolver pathSegment(final int index) {
+        return routingContext -> {
+            final String[] segments = routingContext.request().path().split("/");
+            // The path starts with a slash, so the first segment is empty
+            return index + 1 < segments.length && !segments[index + 1].isEmpty() ? segments[index + 1] : null;
+        };
+    }
+}
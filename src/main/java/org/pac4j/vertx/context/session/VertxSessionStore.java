@@ -4,7 +4,10 @@ import org.pac4j.core.context.session.SessionStore;
 import org.pac4j.core.exception.TechnicalException;
 import org.pac4j.core.profile.CommonProfile;
 import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.RequestTimings;
+import org.pac4j.vertx.VertxProfileManager;
 import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.config.TenantResolver;
 
 import java.util.LinkedHashMap;
 import java.util.Optional;
@@ -16,9 +19,14 @@ import org.pac4j.vertx.auth.Pac4JUserProfiles;
 /**
  * Vert.x implementation of pac4j SessionStore interface to access the existing vertx-web session.
  *
+ * For requests addressed to a tenant, as resolved by a {@link org.pac4j.vertx.handler.impl.TenantHandler}, the keys
+ * are qualified by the tenant.
  */
 public class VertxSessionStore implements SessionStore<VertxWebContext> {
 
+    private static final String TENANT_KEY_PREFIX = "pac4j.tenant.";
+    private static final char TENANT_KEY_SEPARATOR = '/';
+
     private final io.vertx.ext.web.sstore.SessionStore sessionStore;
 
     private final Session providedSession;
@@ -49,37 +57,74 @@ public class VertxSessionStore implements SessionStore<VertxWebContext> {
         return null;
     }
 
+    /**
+     * @param context the web context of the request
+     * @param key the key of a pac4j session entry
+     * @return the key of the entry in the vertx-web session, qualified by the tenant of the request if any
+     */
+    public static String sessionKey(final VertxWebContext context, final String key) {
+        final String tenant = context.getVertxRoutingContext().get(TenantResolver.TENANT_KEY);
+        return tenant != null ? TENANT_KEY_PREFIX + tenant + TENANT_KEY_SEPARATOR + key : key;
+    }
+
+    /**
+     * @param sessionKey the key of an entry in the vertx-web session
+     * @return true if the entry holds the profiles of the session, for any tenant or none
+     */
+    public static boolean isProfilesKey(final String sessionKey) {
+        return sessionKey.equals(Pac4jConstants.USER_PROFILES) || sessionKey.startsWith(TENANT_KEY_PREFIX)
+                && sessionKey.endsWith(TENANT_KEY_SEPARATOR + Pac4jConstants.USER_PROFILES);
+    }
+
     @Override
     public Optional<Object> get(final VertxWebContext context, final String key) {
-        final Session vertxSession = getVertxSession(context);
-        if (vertxSession != null) {
-            return Optional.ofNullable(vertxSession.get(key));
-        }
-        return Optional.empty();
+        return RequestTimings.time(context, RequestTimings.SESSION_LOAD, () -> {
+            final Session vertxSession = getVertxSession(context);
+            if (vertxSession != null) {
+                return Optional.ofNullable(vertxSession.get(sessionKey(context, key)));
+            }
+            return Optional.empty();
+        });
     }
 
     @Override
     public void set(final VertxWebContext context, final String key, final Object value) {
-        final Session vertxSession = getVertxSession(context);
-        if (vertxSession != null) {
-            if (key.equals(Pac4jConstants.USER_PROFILES)) {
-                vertxSession.put(key, new Pac4JUserProfiles(value));
-            } else {
-                vertxSession.put(key, value);
+        RequestTimings.time(context, RequestTimings.SESSION_SAVE, () -> {
+            final Session vertxSession = getVertxSession(context);
+            if (vertxSession != null) {
+                if (key.equals(Pac4jConstants.USER_PROFILES)) {
+                    forgetProfiles(context);
+                    final Pac4JUserProfiles profiles = Pac4JUserProfiles.forSession(value);
+                    // Locked as the token refresh scheduler replaces the profiles only if they were not saved since
+                    synchronized (vertxSession) {
+                        vertxSession.put(sessionKey(context, key), profiles);
+                    }
+                } else {
+                    vertxSession.put(sessionKey(context, key), value);
+                }
             }
-        }
+            return null;
+        });
     }
 
     @Override
     public boolean destroySession(final VertxWebContext context) {
         final Session vertxSession = getVertxSession(context);
         if (vertxSession != null) {
+            forgetProfiles(context);
             vertxSession.destroy();
             return true;
         }
         return false;
     }
 
+    private void forgetProfiles(final VertxWebContext context) {
+        // Profiles memoized for the request come from the request session, not from a session provided for logout
+        if (providedSession == null) {
+            VertxProfileManager.forgetProfiles(context.getVertxRoutingContext());
+        }
+    }
+
     @Override
     public Optional<Object> getTrackableSession(final VertxWebContext context) {
         final Session vertxSession = getVertxSession(context);
@@ -0,0 +1,138 @@
+package org.pac4j.vertx.core.store;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters kept by a pac4j store, updated as entries are read, written and removed so that reading them never scans
+ * the store. The byte count is the size of the entries in the backing file for file stores, and a rough estimate of
+ * their heap footprint for map stores.
+ */
+public class StoreStats implements Shareable {
+
+    // Rough heap footprint of an entry of unknown type, and of the map node holding an entry
+    private static final long UNKNOWN_SIZE = 64;
+    private static final long ENTRY_OVERHEAD = 48;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong removes = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private volatile LongSupplier entries = () -> -1;
+    private volatile LongSupplier bytes = estimatedBytes::get;
+
+    /**
+     * @return the number of entries held, -1 if the store cannot tell without a remote call
+     */
+    public long getEntries() {
+        return entries.getAsLong();
+    }
+
+    /**
+     * @return the number of bytes taken by the entries held, see the class description
+     */
+    public long getBytes() {
+        return bytes.getAsLong();
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getRemoves() {
+        return removes.get();
+    }
+
+    /**
+     * @return the number of bytes written, counting only the writes whose size is known to the store
+     */
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("entries", getEntries())
+                .put("bytes", getBytes())
+                .put("reads", getReads())
+                .put("hits", getHits())
+                .put("writes", getWrites())
+                .put("removes", getRemoves())
+                .put("writtenBytes", getWrittenBytes());
+    }
+
+    void setEntries(final LongSupplier entries) {
+        this.entries = entries;
+    }
+
+    void setBytes(final LongSupplier bytes) {
+        this.bytes = bytes;
+    }
+
+    void recordRead(final boolean hit) {
+        reads.incrementAndGet();
+        if (hit) {
+            hits.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param bytes the size of the entry written, -1 if unknown
+     * @param replacedBytes the size of the entry it replaced, 0 if there was none, -1 if unknown
+     */
+    void recordWrite(final long bytes, final long replacedBytes) {
+        writes.incrementAndGet();
+        if (bytes >= 0) {
+            writtenBytes.addAndGet(bytes);
+            if (replacedBytes >= 0) {
+                estimatedBytes.addAndGet(bytes - replacedBytes);
+            }
+        }
+    }
+
+    /**
+     * @param bytes the size of the entry removed, 0 if there was none, -1 if unknown
+     */
+    void recordRemove(final long bytes) {
+        removes.incrementAndGet();
+        if (bytes >= 0) {
+            estimatedBytes.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * @param key the key of an entry
+     * @param value the value of the entry, null if there is none
+     * @return a rough estimate of the heap footprint of the entry, zero if there is no value
+     */
+    static long estimateSize(final Object key, final Object value) {
+        return value == null ? 0 : ENTRY_OVERHEAD + estimateSize(key) + estimateSize(value);
+    }
+
+    private static long estimateSize(final Object object) {
+        if (object instanceof String) {
+            return 40 + 2L * ((String) object).length();
+        } else if (object instanceof byte[]) {
+            return 16 + ((byte[]) object).length;
+        } else if (object instanceof Buffer) {
+            return 32 + ((Buffer) object).length();
+        } else if (object instanceof Number || object instanceof Boolean) {
+            return 16;
+        }
+        return UNKNOWN_SIZE;
+    }
+}
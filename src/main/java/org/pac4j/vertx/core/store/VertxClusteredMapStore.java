@@ -4,9 +4,16 @@ import io.vertx.rxjava.core.Vertx;
 import io.vertx.rxjava.core.shareddata.AsyncMap;
 import org.pac4j.core.exception.TechnicalException;
 import org.pac4j.core.store.Store;
+import org.pac4j.core.util.CommonHelper;
 import rx.Observable;
 import rx.functions.Func1;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -15,31 +22,52 @@ import java.util.concurrent.TimeoutException;
 
 /**
  * Pac4j shared store implementation based on vert.x clustered shared data.
+ *
+ * Entries are held in the cluster-wide map named {@link #PAC4J_SHARED_DATA_KEY} unless a namespace or several shards
+ * are configured, in which case they are held in maps named after the namespace and suffixed with the shard index.
  */
 public class VertxClusteredMapStore<K, V> extends VertxMapStoreBase implements Store<K, V> {
 
     private final Vertx rxVertx;
     private final int blockingTimeoutSeconds;
+    private final String[] mapNames;
+    private final StoreStats stats;
 
     public VertxClusteredMapStore(final io.vertx.core.Vertx vertx) {
         this(vertx, 1);
     }
 
     public VertxClusteredMapStore(final io.vertx.core.Vertx vertx, final int timeoutSeconds) {
+        this(vertx, new VertxClusteredMapStoreOptions().setTimeoutSeconds(timeoutSeconds));
+    }
+
+    public VertxClusteredMapStore(final io.vertx.core.Vertx vertx, final VertxClusteredMapStoreOptions options) {
+        CommonHelper.assertNotNull("options", options);
+        CommonHelper.assertTrue(options.getShardCount() > 0, "shardCount must be positive");
         rxVertx = Vertx.newInstance(vertx);
-        blockingTimeoutSeconds = timeoutSeconds;
+        blockingTimeoutSeconds = options.getTimeoutSeconds();
+        final String baseName = options.getNamespace() != null
+                ? PAC4J_SHARED_DATA_KEY + "." + options.getNamespace() : PAC4J_SHARED_DATA_KEY;
+        mapNames = new String[options.getShardCount()];
+        for (int shard = 0; shard < mapNames.length; shard++) {
+            mapNames[shard] = mapNames.length > 1 ? baseName + "." + shard : baseName;
+        }
+        // The size of the cluster-wide map is only known through a remote call
+        stats = sharedStats(vertx, options.getNamespace() != null
+                ? "clustered." + options.getNamespace() : "clustered");
+        stats.setBytes(() -> -1);
     }
 
     @Override
     public Optional<V> get(K key) {
-        voidAsyncOpToBlocking(map -> map.getObservable((key)));
-
         final CompletableFuture<V> valueFuture = new CompletableFuture<>();
-        rxVertx.sharedData().<K, V>getClusterWideMapObservable(PAC4J_SHARED_DATA_KEY)
+        rxVertx.sharedData().<K, V>getClusterWideMapObservable(mapName(key))
                 .flatMap(map -> map.getObservable(key))
                 .subscribe(valueFuture::complete);
         try {
-            return Optional.ofNullable(valueFuture.get(blockingTimeoutSeconds, TimeUnit.SECONDS));
+            final V value = valueFuture.get(blockingTimeoutSeconds, TimeUnit.SECONDS);
+            stats.recordRead(value != null);
+            return Optional.ofNullable(value);
         } catch (InterruptedException|ExecutionException|TimeoutException e) {
             throw new TechnicalException(e);
         }
@@ -47,18 +75,104 @@ public class VertxClusteredMapStore<K, V> extends VertxMapStoreBase implements S
 
     @Override
     public void set(K key, V value) {
-        voidAsyncOpToBlocking(map -> map.putObservable(key, value));
+        voidAsyncOpToBlockingOn(mapName(key), map -> map.putObservable(key, value));
+        // Entries are encoded by the cluster manager, out of sight of the store
+        stats.recordWrite(-1, -1);
     }
 
     @Override
     public void remove(K key) {
-        voidAsyncOpToBlocking(map -> map.removeObservable(key));
+        voidAsyncOpToBlockingOn(mapName(key), map -> map.removeObservable(key));
+        stats.recordRemove(-1);
+    }
+
+    /**
+     * Get several entries in one round trip, the gets being issued together rather than one after the other.
+     *
+     * @param keys the keys of the entries
+     * @return the values found, keyed by their key
+     */
+    public Map<K, V> getAll(final Collection<K> keys) {
+        final Map<K, V> values = new HashMap<>();
+        awaitAll(Observable.from(byMapName(keys).entrySet())
+                .flatMap(shard -> rxVertx.sharedData().<K, V>getClusterWideMapObservable(shard.getKey())
+                        .flatMap(map -> Observable.from(shard.getValue())
+                                .flatMap(key -> map.getObservable(key)
+                                        .map(value -> new AbstractMap.SimpleEntry<>(key, value)))))
+                .toList())
+                .forEach(entry -> {
+                    stats.recordRead(entry.getValue() != null);
+                    if (entry.getValue() != null) {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                });
+        return values;
+    }
+
+    /**
+     * Set several entries in one round trip, the puts being issued together rather than one after the other.
+     *
+     * @param entries the entries to set
+     */
+    public void setAll(final Map<K, V> entries) {
+        awaitAll(Observable.from(byMapName(entries.keySet()).entrySet())
+                .flatMap(shard -> rxVertx.sharedData().<K, V>getClusterWideMapObservable(shard.getKey())
+                        .flatMap(map -> Observable.from(shard.getValue())
+                                .flatMap(key -> map.putObservable(key, entries.get(key)))))
+                .toList());
+        entries.forEach((key, value) -> stats.recordWrite(-1, -1));
+    }
+
+    /**
+     * Remove several entries in one round trip, the removals being issued together rather than one after the other.
+     *
+     * @param keys the keys of the entries
+     */
+    public void removeAll(final Collection<K> keys) {
+        awaitAll(Observable.from(byMapName(keys).entrySet())
+                .flatMap(shard -> rxVertx.sharedData().<K, V>getClusterWideMapObservable(shard.getKey())
+                        .flatMap(map -> Observable.from(shard.getValue()).flatMap(map::removeObservable)))
+                .toList());
+        keys.forEach(key -> stats.recordRemove(-1));
     }
 
+    /**
+     * @return the operations made by this node on the cluster-wide maps, shared by all the clustered map stores of the
+     * vertx instance with the same namespace
+     */
+    public StoreStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Run an operation on the cluster-wide map of the store.
+     *
+     * @deprecated the map depends on the key once the store is sharded, so use
+     *             {@link #voidAsyncOpToBlocking(Object, Func1)} instead
+     * @throws TechnicalException if the store is sharded
+     */
+    @Deprecated
     public void voidAsyncOpToBlocking(Func1<AsyncMap, Observable> asyncOp) {
+        if (mapNames.length > 1) {
+            throw new TechnicalException("The map of a sharded store depends on the key of the operation");
+        }
+        voidAsyncOpToBlockingOn(mapNames[0], asyncOp);
+    }
+
+    /**
+     * Run an operation on the cluster-wide map holding the entry of a key.
+     *
+     * @param key the key of the entry the operation is about
+     * @param asyncOp the operation
+     */
+    public void voidAsyncOpToBlocking(final K key, final Func1<AsyncMap, Observable> asyncOp) {
+        voidAsyncOpToBlockingOn(mapName(key), asyncOp);
+    }
+
+    private void voidAsyncOpToBlockingOn(final String mapName, final Func1<AsyncMap, Observable> asyncOp) {
         CompletableFuture<Void> future = new CompletableFuture<>();
 
-        rxVertx.sharedData().getClusterWideMapObservable(PAC4J_SHARED_DATA_KEY)
+        rxVertx.sharedData().getClusterWideMapObservable(mapName)
                 .map(asyncOp)
                 .subscribe(result -> future.complete(null));
 
@@ -68,4 +182,35 @@ public class VertxClusteredMapStore<K, V> extends VertxMapStoreBase implements S
             throw new TechnicalException(e);
         }
     }
+
+    /**
+     * @return the name of the cluster-wide map holding the entry of a key
+     */
+    private String mapName(final K key) {
+        if (mapNames.length == 1) {
+            return mapNames[0];
+        }
+        // Spread the bits of hash codes, such as those of strings, which differ mostly in their low bits
+        final int mixed = key.hashCode() * 0x9E3779B9;
+        return mapNames[Math.floorMod(mixed ^ (mixed >>> 16), mapNames.length)];
+    }
+
+    private Map<String, List<K>> byMapName(final Collection<K> keys) {
+        final Map<String, List<K>> byMapName = new HashMap<>();
+        keys.forEach(key -> byMapName.computeIfAbsent(mapName(key), name -> new ArrayList<>()).add(key));
+        return byMapName;
+    }
+
+    /**
+     * Wait for operations issued together, within the timeout of a single operation.
+     */
+    private <T> T awaitAll(final Observable<T> operations) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        operations.subscribe(future::complete, future::completeExceptionally);
+        try {
+            return future.get(blockingTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException|ExecutionException|TimeoutException e) {
+            throw new TechnicalException(e);
+        }
+    }
 }
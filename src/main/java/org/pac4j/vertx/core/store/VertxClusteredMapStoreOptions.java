@@ -0,0 +1,33 @@
+package org.pac4j.vertx.core.store;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options for a {@link VertxClusteredMapStore}.
+ */
+@Accessors(chain = true)
+public class VertxClusteredMapStoreOptions {
+
+    /**
+     * Namespace of the entries, such as "state", "tokens" or "replay", held in cluster-wide maps of their own which
+     * the cluster manager can configure separately. Null for the entries shared by the stores without a namespace.
+     */
+    @Getter @Setter
+    private String namespace;
+
+    /**
+     * Number of cluster-wide maps the entries are spread across by the hash of their key, so that the ownership and
+     * locks of a hot namespace are not concentrated on one map. Keys must then have a hash code which is the same on
+     * every node, as strings do. All the stores of a namespace must use the same count.
+     */
+    @Getter @Setter
+    private int shardCount = 1;
+
+    /**
+     * Time in seconds after which an operation on the cluster-wide maps fails.
+     */
+    @Getter @Setter
+    private int timeoutSeconds = 1;
+}
@@ -4,32 +4,142 @@ import io.vertx.core.Vertx;
 import io.vertx.core.shareddata.LocalMap;
 import org.pac4j.core.store.Store;
 
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Implementation of pac4j store based on vert.x LocalMap implementation. If the store is to be cluster-wide then
  * the clustered map implementation should be used instead.
+ *
+ * Entries set with a time to live are removed once expired, so that entries which are never read or removed again do
+ * not accumulate in the local map for the lifetime of the vertx instance.
  */
-public class VertxLocalMapStore<K, V> extends VertxMapStoreBase implements Store<K, V> {
+public class VertxLocalMapStore<K, V> extends VertxMapStoreBase implements Store<K, V>, Closeable {
 
+    private static final String EXPIRIES_KEY = PAC4J_SHARED_DATA_KEY + ".expiries";
+    private static final long MIN_PURGE_INTERVAL = 1000;
+
+    private final Vertx vertx;
     private final LocalMap<K, V> store;
+    // Expiry time of the entries set with a time to live, shared by the local map stores of the vertx instance
+    private final LocalMap<K, Long> expiries;
+    private final long timeToLive;
+    private final long timerId;
+    private final StoreStats stats;
 
     public VertxLocalMapStore(final Vertx vertx) {
+        this(vertx, -1);
+    }
+
+    /**
+     * @param vertx the vertx instance
+     * @param timeToLive time to live in milliseconds of the entries from the time they are set, zero or negative for
+     *                   entries which never expire
+     */
+    public VertxLocalMapStore(final Vertx vertx, final long timeToLive) {
+        this.vertx = vertx;
+        this.timeToLive = timeToLive;
         store = vertx.sharedData().getLocalMap(PAC4J_SHARED_DATA_KEY);
+        expiries = vertx.sharedData().getLocalMap(EXPIRIES_KEY);
+        stats = sharedStats(vertx, "local");
+        stats.setEntries(store::size);
+        timerId = timeToLive > 0
+                ? vertx.setPeriodic(Math.max(MIN_PURGE_INTERVAL, timeToLive), id -> purgeExpired()) : -1;
     }
 
     @Override
     public Optional<V> get(K key) {
-        return Optional.ofNullable(store.get(key));
+        V value = store.get(key);
+        if (value != null) {
+            final Long expiresAt = expiries.get(key);
+            if (isExpired(expiresAt)) {
+                expire(key, expiresAt, value);
+                value = null;
+            }
+        }
+        stats.recordRead(value != null);
+        return Optional.ofNullable(value);
     }
 
     @Override
     public void set(K key, V value) {
-        store.put(key, value);
+        // The expiry is updated first, so that the new value is never seen with the expiry of the previous one
+        if (timeToLive > 0) {
+            expiries.put(key, System.currentTimeMillis() + timeToLive);
+        } else {
+            expiries.remove(key);
+        }
+        final V previous = store.put(key, value);
+        stats.recordWrite(StoreStats.estimateSize(key, value), StoreStats.estimateSize(key, previous));
     }
 
     @Override
     public void remove(K key) {
-        store.remove(key);
+        final V previous = store.remove(key);
+        expiries.remove(key);
+        stats.recordRemove(StoreStats.estimateSize(key, previous));
+    }
+
+    /**
+     * @param keys the keys of the entries
+     * @return the values found, keyed by their key
+     */
+    public Map<K, V> getAll(final Collection<K> keys) {
+        final Map<K, V> values = new HashMap<>();
+        keys.forEach(key -> get(key).ifPresent(value -> values.put(key, value)));
+        return values;
+    }
+
+    /**
+     * @param entries the entries to set
+     */
+    public void setAll(final Map<K, V> entries) {
+        entries.forEach(this::set);
+    }
+
+    /**
+     * @param keys the keys of the entries
+     */
+    public void removeAll(final Collection<K> keys) {
+        keys.forEach(this::remove);
+    }
+
+    /**
+     * @return the stats of the local map, shared by all the local map stores of the vertx instance
+     */
+    public StoreStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Stop purging the expired entries. Entries are still found expired when read.
+     */
+    @Override
+    public void close() {
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+
+    private void purgeExpired() {
+        for (final Map.Entry<K, Long> expiry : expiries.entrySet()) {
+            if (isExpired(expiry.getValue())) {
+                expire(expiry.getKey(), expiry.getValue(), store.get(expiry.getKey()));
+            }
+        }
+    }
+
+    private void expire(final K key, final Long expiresAt, final V value) {
+        // Entries set again in the meantime have a new expiry and are left alone
+        if (expiries.remove(key, expiresAt) && value != null && store.remove(key, value)) {
+            stats.recordRemove(StoreStats.estimateSize(key, value));
+        }
+    }
+
+    private static boolean isExpired(final Long expiresAt) {
+        return expiresAt != null && expiresAt <= System.currentTimeMillis();
     }
 }
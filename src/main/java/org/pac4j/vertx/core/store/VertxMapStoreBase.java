@@ -1,8 +1,25 @@
 package org.pac4j.vertx.core.store;
 
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+
 /**
  *
  */
 public class VertxMapStoreBase {
     public static final String PAC4J_SHARED_DATA_KEY = "pac4jSharedData";
+
+    private static final String STATS_KEY = PAC4J_SHARED_DATA_KEY + ".stats";
+
+    /**
+     * @param vertx the vertx instance the store belongs to
+     * @param kind the kind of store
+     * @return the stats shared by all the stores of that kind of the vertx instance, as they share the same map
+     */
+    protected static StoreStats sharedStats(final Vertx vertx, final String kind) {
+        final LocalMap<String, StoreStats> stats = vertx.sharedData().getLocalMap(STATS_KEY);
+        final StoreStats created = new StoreStats();
+        final StoreStats existing = stats.putIfAbsent(kind, created);
+        return existing != null ? existing : created;
+    }
 }
@@ -0,0 +1,520 @@
+package org.pac4j.vertx.core.store;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.store.Store;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.core.DefaultJsonConverter;
+import org.pac4j.vertx.core.JsonConverter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Pac4j store implementation persisting its entries to an append-only, memory-mapped file, so that pac4j state such
+ * as in-flight OIDC states and nonces or SAML replay caches survives a restart of the node.
+ *
+ * Reads are served from an in-memory index. Writes are appended to the mapped file and flushed to disk in batches
+ * every sync interval. On startup the index is rebuilt by a single scan of the file, skipping expired entries and
+ * deferring the decoding of values until they are first read. Once enough of the file is taken by expired, removed or
+ * overwritten records, it is compacted by copying the live records to a new file.
+ *
+ * Keys and values are encoded with the {@link DefaultJsonConverter}, so must be supported by it.
+ */
+public class VertxMappedFileStore<K, V> implements Store<K, V>, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VertxMappedFileStore.class);
+
+    private static final int MAGIC = 0x50344A53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    // Each record is its body length and the CRC of its body, followed by the body
+    private static final int RECORD_HEADER_SIZE = 8;
+    // The body is the record type, the expiry time, the key length, the key and the value if any
+    private static final int BODY_HEADER_SIZE = 13;
+    private static final byte SET = 1;
+    private static final byte REMOVE = 2;
+    private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+    private final Vertx vertx;
+    private final JsonConverter converter = DefaultJsonConverter.getInstance();
+    private final Path path;
+    private final long timeToLive;
+    private final int initialSize;
+    private final double compactionRatio;
+    private final long minCompactionSize;
+    private final long timerId;
+
+    private final Map<K, Entry<V>> index = new ConcurrentHashMap<>();
+    // Guards the file, the mapped buffer and the accounting of dead bytes
+    private final Object lock = new Object();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    // The buffer being flushed to disk outside of the lock, if any
+    private MappedByteBuffer flushing;
+    private int writePosition;
+    private long deadBytes = 0;
+    private boolean dirty = false;
+    private final StoreStats stats = new StoreStats();
+
+    public VertxMappedFileStore(final Vertx vertx) {
+        this(vertx, new VertxMappedFileStoreOptions());
+    }
+
+    public VertxMappedFileStore(final Vertx vertx, final VertxMappedFileStoreOptions options) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("options", options);
+        CommonHelper.assertNotBlank("path", options.getPath());
+        this.vertx = vertx;
+        this.path = Paths.get(options.getPath());
+        this.timeToLive = options.getTimeToLive();
+        this.initialSize = Math.max(options.getInitialSize(), HEADER_SIZE);
+        this.compactionRatio = options.getCompactionRatio();
+        this.minCompactionSize = options.getMinCompactionSize();
+
+        try {
+            open();
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        }
+
+        stats.setEntries(index::size);
+        stats.setBytes(this::liveBytes);
+
+        timerId = vertx.setPeriodic(options.getSyncInterval(), id -> vertx.executeBlocking(future -> {
+            sync();
+            compactIfNeeded();
+            future.complete();
+        }, true, asyncResult -> {
+            if (asyncResult.failed()) {
+                LOG.error("Failed to sync pac4j store " + path, asyncResult.cause());
+            }
+        }));
+    }
+
+    @Override
+    public Optional<V> get(final K key) {
+        final Entry<V> entry = index.get(key);
+        stats.recordRead(entry != null);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            synchronized (lock) {
+                if (index.remove(key, entry)) {
+                    deadBytes += entry.size;
+                }
+            }
+            return Optional.empty();
+        }
+        final V value = entry.value;
+        if (value != null) {
+            return Optional.of(value);
+        }
+        // Recovered entries are only decoded when first read
+        synchronized (lock) {
+            final Entry<V> current = index.get(key);
+            if (current == null) {
+                return Optional.empty();
+            }
+            if (current.isExpired(System.currentTimeMillis())) {
+                index.remove(key);
+                deadBytes += current.size;
+                return Optional.empty();
+            }
+            if (current.value == null) {
+                current.value = (V) decode(readValue(current));
+            }
+            return Optional.of(current.value);
+        }
+    }
+
+    @Override
+    public void set(final K key, final V value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        final byte[] keyBytes = encode(key);
+        final byte[] valueBytes = encode(value);
+        final long expiresAt = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : 0;
+        final int size = RECORD_HEADER_SIZE + BODY_HEADER_SIZE + keyBytes.length + valueBytes.length;
+        final Entry<V> previous;
+        synchronized (lock) {
+            final int offset = append(SET, expiresAt, keyBytes, valueBytes);
+            previous = index.put(key, new Entry<>(offset, size, keyBytes.length, expiresAt, value));
+            if (previous != null) {
+                deadBytes += previous.size;
+            }
+        }
+        stats.recordWrite(size, previous != null ? previous.size : 0);
+    }
+
+    @Override
+    public void remove(final K key) {
+        final Entry<V> previous;
+        synchronized (lock) {
+            previous = index.remove(key);
+            if (previous != null) {
+                final byte[] keyBytes = encode(key);
+                append(REMOVE, 0, keyBytes, null);
+                // The removal record itself is only needed until the next compaction
+                deadBytes += previous.size + RECORD_HEADER_SIZE + BODY_HEADER_SIZE + keyBytes.length;
+            }
+        }
+        stats.recordRemove(previous != null ? previous.size : 0);
+    }
+
+    /**
+     * @return the stats of this store, whose byte count is the size of the live records in the file
+     */
+    public StoreStats getStats() {
+        return stats;
+    }
+
+    private long liveBytes() {
+        synchronized (lock) {
+            return (writePosition - HEADER_SIZE) - deadBytes;
+        }
+    }
+
+    /**
+     * Flush the writes made since the last flush to disk.
+     */
+    public void sync() {
+        final MappedByteBuffer toFlush;
+        synchronized (lock) {
+            if (!dirty || buffer == null) {
+                return;
+            }
+            dirty = false;
+            toFlush = buffer;
+            flushing = toFlush;
+        }
+        try {
+            toFlush.force();
+        } finally {
+            synchronized (lock) {
+                flushing = null;
+                // Replaced while being flushed, so left mapped until now
+                if (toFlush != buffer) {
+                    unmap(toFlush);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        vertx.cancelTimer(timerId);
+        synchronized (lock) {
+            if (buffer == null) {
+                return;
+            }
+            buffer.force();
+            retire(buffer);
+            buffer = null;
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                throw new TechnicalException(e);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new TechnicalException("pac4j store file " + path + " is too large to be mapped");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialSize, fileSize));
+
+        if (fileSize < HEADER_SIZE || buffer.getInt(0) == 0) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            writePosition = HEADER_SIZE;
+            dirty = true;
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new TechnicalException(path + " is not a pac4j store file");
+        } else {
+            writePosition = recover();
+        }
+    }
+
+    /**
+     * Rebuild the index by replaying the records of the file, stopping at the first incomplete or corrupt record.
+     *
+     * @return the position after the last valid record
+     */
+    private int recover() {
+        final long now = System.currentTimeMillis();
+        final CRC32 crc = new CRC32();
+        int position = HEADER_SIZE;
+        int recovered = 0;
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            final int bodyLength = buffer.getInt(position);
+            if (bodyLength < BODY_HEADER_SIZE || position + RECORD_HEADER_SIZE + bodyLength > buffer.capacity()) {
+                break;
+            }
+            final ByteBuffer body = slice(position + RECORD_HEADER_SIZE, bodyLength);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                LOG.warn("Discarding corrupt record at " + position + " of pac4j store " + path);
+                break;
+            }
+            final int size = RECORD_HEADER_SIZE + bodyLength;
+            final byte type = buffer.get(position + RECORD_HEADER_SIZE);
+            final long expiresAt = buffer.getLong(position + RECORD_HEADER_SIZE + 1);
+            final int keyLength = buffer.getInt(position + RECORD_HEADER_SIZE + 9);
+            final K key = (K) decode(bytes(position + RECORD_HEADER_SIZE + BODY_HEADER_SIZE, keyLength));
+
+            final Entry<V> previous;
+            if (type == SET && (expiresAt == 0 || expiresAt > now)) {
+                previous = index.put(key, new Entry<>(position, size, keyLength, expiresAt, null));
+            } else {
+                previous = index.remove(key);
+                deadBytes += size;
+            }
+            if (previous != null) {
+                deadBytes += previous.size;
+            }
+            position += size;
+            recovered++;
+        }
+
+        // Clear what is left of a torn write so that it cannot be mistaken for records appended later
+        for (int i = position; i < buffer.capacity() && i < position + RECORD_HEADER_SIZE; i++) {
+            if (buffer.get(i) != 0) {
+                for (int j = position; j < buffer.capacity(); j++) {
+                    buffer.put(j, (byte) 0);
+                }
+                dirty = true;
+                break;
+            }
+        }
+        LOG.info("Recovered " + index.size() + " entries from " + recovered + " records of pac4j store " + path);
+        return position;
+    }
+
+    private int append(final byte type, final long expiresAt, final byte[] keyBytes, final byte[] valueBytes) {
+        assertOpen();
+        final int bodyLength = BODY_HEADER_SIZE + keyBytes.length + (valueBytes != null ? valueBytes.length : 0);
+        final ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.put(type).putLong(expiresAt).putInt(keyBytes.length).put(keyBytes);
+        if (valueBytes != null) {
+            body.put(valueBytes);
+        }
+        body.flip();
+        final CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        final int offset = writePosition;
+        ensureCapacity((long) offset + RECORD_HEADER_SIZE + bodyLength);
+        final ByteBuffer target = buffer.duplicate();
+        target.position(offset);
+        target.putInt(bodyLength).putInt((int) crc.getValue()).put(body);
+        writePosition = target.position();
+        dirty = true;
+        return offset;
+    }
+
+    private void ensureCapacity(final long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new TechnicalException("pac4j store file " + path + " is full");
+        }
+        final long newCapacity = Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity()));
+        try {
+            final MappedByteBuffer previous = buffer;
+            previous.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+            retire(previous);
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    /**
+     * Unmap a buffer no longer used, rather than leaving it mapped until it is garbage collected, unless it is being
+     * flushed, in which case it is unmapped once flushed. Must be called under the lock.
+     */
+    private void retire(final MappedByteBuffer retired) {
+        if (retired != flushing) {
+            unmap(retired);
+        }
+    }
+
+    private void assertOpen() {
+        if (buffer == null) {
+            throw new TechnicalException("pac4j store " + path + " is closed");
+        }
+    }
+
+    private void compactIfNeeded() {
+        synchronized (lock) {
+            if (buffer == null) {
+                return;
+            }
+            final long now = System.currentTimeMillis();
+            final Iterator<Map.Entry<K, Entry<V>>> entries = index.entrySet().iterator();
+            while (entries.hasNext()) {
+                final Entry<V> entry = entries.next().getValue();
+                if (entry.isExpired(now)) {
+                    entries.remove();
+                    deadBytes += entry.size;
+                }
+            }
+
+            if (deadBytes < minCompactionSize || deadBytes < (writePosition - HEADER_SIZE) * compactionRatio) {
+                return;
+            }
+            try {
+                compact();
+            } catch (final IOException e) {
+                throw new TechnicalException(e);
+            }
+        }
+    }
+
+    /**
+     * Copy the live records to a new file which then replaces the current one. Writers are held off meanwhile.
+     */
+    private void compact() throws IOException {
+        final Path compactPath = path.resolveSibling(path.getFileName() + ".compact");
+        final long liveBytes = (writePosition - HEADER_SIZE) - deadBytes;
+        final FileChannel compactChannel = FileChannel.open(compactPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final MappedByteBuffer compactBuffer = compactChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(initialSize, HEADER_SIZE + 2 * liveBytes));
+        compactBuffer.putInt(0, MAGIC).putInt(4, VERSION);
+
+        final ByteBuffer target = compactBuffer.duplicate();
+        target.position(HEADER_SIZE);
+        final Map<K, Entry<V>> moved = new HashMap<>();
+        index.forEach((key, entry) -> {
+            final int offset = target.position();
+            target.put(slice(entry.offset, entry.size));
+            moved.put(key, new Entry<>(offset, entry.size, entry.keyLength, entry.expiresAt, entry.value));
+        });
+        compactBuffer.force();
+        Files.move(compactPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        final FileChannel previousChannel = channel;
+        final MappedByteBuffer previousBuffer = buffer;
+        channel = compactChannel;
+        buffer = compactBuffer;
+        writePosition = target.position();
+        deadBytes = 0;
+        index.putAll(moved);
+        retire(previousBuffer);
+        previousChannel.close();
+        LOG.debug("Compacted pac4j store " + path + " to " + moved.size() + " entries");
+    }
+
+    private byte[] readValue(final Entry<V> entry) {
+        assertOpen();
+        final int valueOffset = entry.offset + RECORD_HEADER_SIZE + BODY_HEADER_SIZE + entry.keyLength;
+        return bytes(valueOffset, entry.offset + entry.size - valueOffset);
+    }
+
+    private ByteBuffer slice(final int offset, final int length) {
+        final ByteBuffer slice = buffer.duplicate();
+        slice.position(offset).limit(offset + length);
+        return slice.slice();
+    }
+
+    private byte[] bytes(final int offset, final int length) {
+        final byte[] bytes = new byte[length];
+        slice(offset, length).get(bytes);
+        return bytes;
+    }
+
+    private byte[] encode(final Object object) {
+        return new JsonArray().add(converter.encodeObject(object)).encode().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Object decode(final byte[] bytes) {
+        return converter.decodeObject(new JsonArray(new String(bytes, StandardCharsets.UTF_8)).getValue(0));
+    }
+
+    private static void unmap(final MappedByteBuffer mapped) {
+        UNMAPPER.accept(mapped);
+    }
+
+    /**
+     * @return the function releasing the mapping of a buffer, through the cleaner of the buffer on Java 8 and
+     *         Unsafe.invokeCleaner on later versions, or doing nothing if neither is accessible, leaving mappings to be
+     *         released once their buffers are garbage collected
+     */
+    private static Consumer<ByteBuffer> unmapper() {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                final Object unsafe = theUnsafe.get(null);
+                return mapped -> invoke(invokeCleaner, unsafe, mapped);
+            } catch (final NoSuchMethodException e) {
+                final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return mapped -> invoke(clean, invoke(cleaner, mapped));
+            }
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Cannot unmap the buffers of pac4j stores, they stay mapped until garbage collected", e);
+            return mapped -> { };
+        }
+    }
+
+    private static Object invoke(final Method method, final Object target, final Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (final ReflectiveOperationException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private static class Entry<V> {
+        private final int offset;
+        private final int size;
+        private final int keyLength;
+        private final long expiresAt;
+        private volatile V value;
+
+        private Entry(final int offset, final int size, final int keyLength, final long expiresAt, final V value) {
+            this.offset = offset;
+            this.size = size;
+            this.keyLength = keyLength;
+            this.expiresAt = expiresAt;
+            this.value = value;
+        }
+
+        private boolean isExpired(final long now) {
+            return expiresAt != 0 && expiresAt <= now;
+        }
+    }
+}
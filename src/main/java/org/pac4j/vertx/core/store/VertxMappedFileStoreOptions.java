@@ -0,0 +1,50 @@
+package org.pac4j.vertx.core.store;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options for a {@link VertxMappedFileStore}.
+ */
+@Accessors(chain = true)
+public class VertxMappedFileStoreOptions {
+
+    /**
+     * Path of the file the store is persisted to, created if it does not exist.
+     */
+    @Getter @Setter
+    private String path = "pac4j-store.dat";
+
+    /**
+     * Time to live in milliseconds of the entries from the time they are set, zero or negative for entries which
+     * never expire. Entries which expired while the node was down are not recovered.
+     */
+    @Getter @Setter
+    private long timeToLive = -1;
+
+    /**
+     * Interval in milliseconds at which writes are flushed to disk. Writes made since the last flush survive a crash
+     * of the process but not of the machine.
+     */
+    @Getter @Setter
+    private long syncInterval = 1000;
+
+    /**
+     * Initial size in bytes of the mapped region, which is doubled whenever it is full.
+     */
+    @Getter @Setter
+    private int initialSize = 1 << 20;
+
+    /**
+     * Proportion of the file taken by expired, removed or overwritten records above which the file is compacted.
+     */
+    @Getter @Setter
+    private double compactionRatio = 0.5;
+
+    /**
+     * Number of bytes taken by expired, removed or overwritten records below which the file is never compacted.
+     */
+    @Getter @Setter
+    private long minCompactionSize = 1 << 20;
+}
@@ -0,0 +1,353 @@
+package org.pac4j.vertx.core.store;
+
+import io.vertx.core.json.JsonArray;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.store.Store;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.core.DefaultJsonConverter;
+import org.pac4j.vertx.core.JsonConverter;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Pac4j store implementation keeping its entries off heap, so that a large volume of short-lived state such as OIDC
+ * states and nonces or cached tokens stays out of the working set of the garbage collector.
+ *
+ * Entries are encoded with the configured {@link JsonConverter} ({@link DefaultJsonConverter} by default) and appended
+ * to slabs of direct memory used in turn. Once the memory budget is used up, the oldest slab is reused and the entries
+ * it still holds are evicted, which for state set with a time to live evicts the entries closest to expiring first.
+ * The index is an open-addressing table of primitive arrays, holding the hash and the location of each entry, so an
+ * entry costs no heap object.
+ */
+public class VertxOffHeapStore<K, V> implements Store<K, V>, Closeable {
+
+    // Each record is its length, the length of its key and its expiry time, followed by the key and the value
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final float MAX_LOAD = 0.75f;
+
+    private final JsonConverter converter;
+    private final int slabSize;
+    private final long timeToLive;
+    private final StoreStats stats = new StoreStats();
+
+    // Guarded by this
+    private ByteBuffer[] slabs;
+    private final int[] slabEnds;
+    private int currentSlab = 0;
+    private int[] hashes;
+    private long[] locations;
+    private long evictions = 0;
+    private volatile int size = 0;
+    private volatile long liveBytes = 0;
+
+    public VertxOffHeapStore() {
+        this(new VertxOffHeapStoreOptions());
+    }
+
+    public VertxOffHeapStore(final VertxOffHeapStoreOptions options) {
+        CommonHelper.assertNotNull("options", options);
+        CommonHelper.assertNotNull("converter", options.getConverter());
+        CommonHelper.assertTrue(options.getSlabSize() > RECORD_HEADER_SIZE, "slabSize must hold a record");
+        CommonHelper.assertTrue(options.getMaxMemory() >= options.getSlabSize(), "maxMemory must hold a slab");
+        this.converter = options.getConverter();
+        this.slabSize = options.getSlabSize();
+        this.timeToLive = options.getTimeToLive();
+        final long slabCount = options.getMaxMemory() / slabSize;
+        CommonHelper.assertTrue(slabCount <= Integer.MAX_VALUE, "maxMemory must be split in fewer slabs");
+        this.slabs = new ByteBuffer[(int) slabCount];
+        this.slabEnds = new int[slabs.length];
+        this.slabs[0] = ByteBuffer.allocateDirect(slabSize);
+        final int indexCapacity = Integer.highestOneBit(Math.max(16, options.getInitialIndexCapacity() - 1) << 1);
+        this.hashes = new int[indexCapacity];
+        this.locations = new long[indexCapacity];
+
+        stats.setEntries(() -> size);
+        stats.setBytes(() -> liveBytes);
+    }
+
+    @Override
+    public Optional<V> get(final K key) {
+        final byte[] keyBytes = encode(key);
+        final byte[] valueBytes;
+        synchronized (this) {
+            final int slot = find(keyBytes, hash(keyBytes));
+            if (slot < 0) {
+                stats.recordRead(false);
+                return Optional.empty();
+            }
+            final ByteBuffer slab = slab(locations[slot]);
+            final int offset = offset(locations[slot]);
+            final long expiresAt = slab.getLong(offset + 8);
+            if (expiresAt != 0 && expiresAt <= System.currentTimeMillis()) {
+                liveBytes -= slab.getInt(offset);
+                removeAt(slot);
+                stats.recordRead(false);
+                return Optional.empty();
+            }
+            final int valueOffset = offset + RECORD_HEADER_SIZE + keyBytes.length;
+            valueBytes = new byte[offset + slab.getInt(offset) - valueOffset];
+            read(slab, valueOffset, valueBytes);
+        }
+        stats.recordRead(true);
+        return Optional.of((V) decode(valueBytes));
+    }
+
+    @Override
+    public void set(final K key, final V value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        final byte[] keyBytes = encode(key);
+        final byte[] valueBytes = encode(value);
+        final int length = RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+        if (length > slabSize) {
+            throw new TechnicalException("Entry of " + length + " bytes does not fit in a slab of " + slabSize
+                    + " bytes");
+        }
+        final long expiresAt = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : 0;
+        final int hash = hash(keyBytes);
+        final int replaced;
+        synchronized (this) {
+            // Allocated first, as it may evict entries from the index
+            final long location = allocate(length);
+            final ByteBuffer slab = slab(location);
+            final int offset = offset(location);
+            slab.putInt(offset, length).putInt(offset + 4, keyBytes.length).putLong(offset + 8, expiresAt);
+            write(slab, offset + RECORD_HEADER_SIZE, keyBytes);
+            write(slab, offset + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+
+            final int slot = find(keyBytes, hash);
+            if (slot >= 0) {
+                replaced = slab(locations[slot]).getInt(offset(locations[slot]));
+                locations[slot] = location;
+            } else {
+                replaced = 0;
+                insertAt(-slot - 1, hash, location);
+            }
+            liveBytes += length - replaced;
+        }
+        stats.recordWrite(length, replaced);
+    }
+
+    @Override
+    public void remove(final K key) {
+        final byte[] keyBytes = encode(key);
+        int removed = 0;
+        synchronized (this) {
+            final int slot = find(keyBytes, hash(keyBytes));
+            if (slot >= 0) {
+                removed = slab(locations[slot]).getInt(offset(locations[slot]));
+                liveBytes -= removed;
+                removeAt(slot);
+            }
+        }
+        stats.recordRemove(removed);
+    }
+
+    /**
+     * @return the stats of this store, whose byte count is the size of the encoded entries held
+     */
+    public StoreStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the number of entries evicted to make room for new ones
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Release the direct memory held by the store, which must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        // Direct buffers are freed once unreachable
+        slabs = new ByteBuffer[0];
+        hashes = new int[0];
+        locations = new long[0];
+        size = 0;
+        liveBytes = 0;
+    }
+
+    private long allocate(final int length) {
+        if (slabEnds[currentSlab] + length > slabSize) {
+            currentSlab = (currentSlab + 1) % slabs.length;
+            if (slabs[currentSlab] == null) {
+                slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+            } else {
+                evict(currentSlab);
+            }
+        }
+        final int offset = slabEnds[currentSlab];
+        slabEnds[currentSlab] = offset + length;
+        return ((long) currentSlab << 32) | offset;
+    }
+
+    /**
+     * Remove from the index the entries whose latest record is in a slab, so that the slab can be reused.
+     */
+    private void evict(final int slabIndex) {
+        final ByteBuffer slab = slabs[slabIndex];
+        final long now = System.currentTimeMillis();
+        int offset = 0;
+        while (offset < slabEnds[slabIndex]) {
+            final int length = slab.getInt(offset);
+            final long location = ((long) slabIndex << 32) | offset;
+            final int hash = hash(slab, offset + RECORD_HEADER_SIZE, slab.getInt(offset + 4));
+            // Records replaced by a later one or removed are no longer indexed at their location
+            final int mask = hashes.length - 1;
+            for (int slot = hash & mask; hashes[slot] != 0; slot = (slot + 1) & mask) {
+                if (locations[slot] == location) {
+                    final long expiresAt = slab.getLong(offset + 8);
+                    if (expiresAt == 0 || expiresAt > now) {
+                        evictions++;
+                    }
+                    liveBytes -= length;
+                    removeAt(slot);
+                    break;
+                }
+            }
+            offset += length;
+        }
+        slabEnds[slabIndex] = 0;
+    }
+
+    /**
+     * @return the slot of the key, or minus one minus the free slot where it would be inserted if it is not indexed
+     */
+    private int find(final byte[] keyBytes, final int hash) {
+        final int mask = hashes.length - 1;
+        int slot = hash & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == hash && keyEquals(locations[slot], keyBytes)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private void insertAt(final int slot, final int hash, final long location) {
+        hashes[slot] = hash;
+        locations[slot] = location;
+        size++;
+        if (size > hashes.length * MAX_LOAD) {
+            resize();
+        }
+    }
+
+    /**
+     * Remove a slot, shifting back the following entries of the probe sequence so that no tombstone is needed.
+     */
+    private void removeAt(final int removed) {
+        final int mask = hashes.length - 1;
+        int free = removed;
+        int slot = removed;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (hashes[slot] == 0) {
+                break;
+            }
+            final int home = hashes[slot] & mask;
+            // Entries whose home slot lies cyclically between the free slot and their own slot stay where they are
+            final boolean stays = free <= slot ? free < home && home <= slot : free < home || home <= slot;
+            if (!stays) {
+                hashes[free] = hashes[slot];
+                locations[free] = locations[slot];
+                free = slot;
+            }
+        }
+        hashes[free] = 0;
+        locations[free] = 0;
+        size--;
+    }
+
+    private void resize() {
+        final int[] oldHashes = hashes;
+        final long[] oldLocations = locations;
+        hashes = new int[oldHashes.length << 1];
+        locations = new long[oldLocations.length << 1];
+        final int mask = hashes.length - 1;
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                int slot = oldHashes[i] & mask;
+                while (hashes[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                locations[slot] = oldLocations[i];
+            }
+        }
+    }
+
+    private boolean keyEquals(final long location, final byte[] keyBytes) {
+        final ByteBuffer slab = slab(location);
+        final int offset = offset(location);
+        if (slab.getInt(offset + 4) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (slab.get(offset + RECORD_HEADER_SIZE + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer slab(final long location) {
+        return slabs[(int) (location >>> 32)];
+    }
+
+    private static int offset(final long location) {
+        return (int) location;
+    }
+
+    private static void read(final ByteBuffer slab, final int offset, final byte[] bytes) {
+        final ByteBuffer source = slab.duplicate();
+        source.position(offset);
+        source.get(bytes);
+    }
+
+    private static void write(final ByteBuffer slab, final int offset, final byte[] bytes) {
+        final ByteBuffer target = slab.duplicate();
+        target.position(offset);
+        target.put(bytes);
+    }
+
+    private static int hash(final byte[] bytes) {
+        int hash = 1;
+        for (final byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        return spread(hash);
+    }
+
+    private static int hash(final ByteBuffer slab, final int offset, final int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + slab.get(i);
+        }
+        return spread(hash);
+    }
+
+    private static int spread(final int hash) {
+        final int mixed = hash * 0x9E3779B9;
+        final int spread = mixed ^ (mixed >>> 16);
+        // Zero marks a free slot
+        return spread != 0 ? spread : 1;
+    }
+
+    private byte[] encode(final Object object) {
+        return new JsonArray().add(converter.encodeObject(object)).encode().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Object decode(final byte[] bytes) {
+        return converter.decodeObject(new JsonArray(new String(bytes, StandardCharsets.UTF_8)).getValue(0));
+    }
+}
@@ -0,0 +1,47 @@
+package org.pac4j.vertx.core.store;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.pac4j.vertx.core.DefaultJsonConverter;
+import org.pac4j.vertx.core.JsonConverter;
+
+/**
+ * Options for a {@link VertxOffHeapStore}.
+ */
+@Accessors(chain = true)
+public class VertxOffHeapStoreOptions {
+
+    /**
+     * Maximum number of bytes of direct memory taken by the entries. Once it is all used, the oldest entries are
+     * evicted to make room for new ones.
+     */
+    @Getter @Setter
+    private long maxMemory = 64L << 20;
+
+    /**
+     * Size in bytes of the slabs of direct memory the entries are written to, which is also the maximum size of an
+     * encoded entry. The oldest slab is evicted as a whole when the memory budget is used up.
+     */
+    @Getter @Setter
+    private int slabSize = 1 << 20;
+
+    /**
+     * Time to live in milliseconds of the entries from the time they are set, zero or negative for entries which
+     * only leave the store when evicted.
+     */
+    @Getter @Setter
+    private long timeToLive = -1;
+
+    /**
+     * Converter encoding the keys and values to JSON before they are written off heap.
+     */
+    @Getter @Setter
+    private JsonConverter converter = DefaultJsonConverter.getInstance();
+
+    /**
+     * Initial number of slots of the index, which is doubled whenever it is three quarters full.
+     */
+    @Getter @Setter
+    private int initialIndexCapacity = 1 << 10;
+}
@@ -0,0 +1,193 @@
+package org.pac4j.vertx.core.store;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.pac4j.core.util.CommonHelper;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Time-bucketed set of the identifiers already seen, such as OIDC nonces and states or SAML message IDs, for replay
+ * detection. Unlike a generic pac4j store, identifiers carry no value and are forgotten a whole bucket at a time, so
+ * the cache holds a bounded number of entries whatever the callback rate. Once full, new identifiers are either
+ * reported as seen or accepted without being remembered until the oldest bucket expires, see
+ * {@link VertxReplayCacheOptions#isFailClosed()} for the trade-off.
+ *
+ * In cluster mode the identifiers seen by a node are published to the other nodes over the event bus. Propagation is
+ * asynchronous, so a replay sent to two nodes within the propagation delay may be accepted by both. Identifiers
+ * received from the other nodes are always remembered, as each node bounds the identifiers it publishes.
+ */
+public class VertxReplayCache implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VertxReplayCache.class);
+
+    private static final String NODE = "node";
+    private static final String ID = "id";
+
+    private final Vertx vertx;
+    private final Set<String>[] buckets;
+    // Identifiers seen by this node in each bucket, which are the only ones bounded by maxEntries
+    private final AtomicInteger[] localCounts;
+    private final int maxEntries;
+    private final boolean failClosed;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger localSize = new AtomicInteger();
+    private final AtomicBoolean fullWarned = new AtomicBoolean();
+    // Insertions share the lock, rotations hold it exclusively so that a check never straddles a rotation
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final long timerId;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final String clusterAddress;
+    private final MessageConsumer<JsonObject> consumer;
+    private volatile int current = 0;
+
+    public VertxReplayCache(final Vertx vertx) {
+        this(vertx, new VertxReplayCacheOptions());
+    }
+
+    @SuppressWarnings("unchecked")
+    public VertxReplayCache(final Vertx vertx, final VertxReplayCacheOptions options) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("options", options);
+        CommonHelper.assertTrue(options.getBuckets() > 0, "buckets must be positive");
+        CommonHelper.assertTrue(options.getWindow() >= options.getBuckets(), "window must be at least one millisecond per bucket");
+        this.vertx = vertx;
+        this.maxEntries = options.getMaxEntries();
+        this.failClosed = options.isFailClosed();
+        this.buckets = new Set[options.getBuckets()];
+        this.localCounts = new AtomicInteger[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = ConcurrentHashMap.newKeySet();
+            localCounts[i] = new AtomicInteger();
+        }
+        timerId = vertx.setPeriodic(options.getWindow() / options.getBuckets(), id -> rotate());
+
+        clusterAddress = options.getClusterAddress();
+        if (clusterAddress != null) {
+            consumer = vertx.eventBus().<JsonObject>consumer(clusterAddress, message -> {
+                if (!nodeId.equals(message.body().getString(NODE))) {
+                    insert(message.body().getString(ID), true);
+                }
+            });
+        } else {
+            consumer = null;
+        }
+    }
+
+    /**
+     * Record an identifier as seen, atomically with checking whether it had been seen already.
+     *
+     * @param id the identifier
+     * @return true if the identifier had not been seen within the window, false if this is a replay or if the cache
+     * is full and fails closed
+     */
+    public boolean checkAndInsert(final String id) {
+        CommonHelper.assertNotNull("id", id);
+        final Insertion insertion = insert(id, false);
+        if (insertion == Insertion.SEEN || insertion == Insertion.FULL && failClosed) {
+            return false;
+        }
+        // Identifiers not remembered here for lack of room are still remembered by the other nodes
+        if (clusterAddress != null) {
+            vertx.eventBus().publish(clusterAddress, new JsonObject().put(NODE, nodeId).put(ID, id));
+        }
+        return true;
+    }
+
+    /**
+     * @param id the identifier
+     * @return true if the identifier has been seen within the window
+     */
+    public boolean contains(final String id) {
+        lock.readLock().lock();
+        try {
+            for (final Set<String> bucket : buckets) {
+                if (bucket.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        vertx.cancelTimer(timerId);
+        if (consumer != null) {
+            consumer.unregister();
+        }
+    }
+
+    private Insertion insert(final String id, final boolean remote) {
+        lock.readLock().lock();
+        try {
+            final int newest = current;
+            for (final Set<String> bucket : buckets) {
+                if (bucket.contains(id)) {
+                    return Insertion.SEEN;
+                }
+            }
+            // Full within the window: identifiers cannot be forgotten early without accepting their replays, so new
+            // identifiers are not remembered until the oldest bucket expires
+            if (!remote && localSize.incrementAndGet() > maxEntries) {
+                localSize.decrementAndGet();
+                if (fullWarned.compareAndSet(false, true)) {
+                    LOG.warn("Replay cache is full, " + (failClosed ? "rejecting" : "accepting without remembering")
+                            + " new identifiers until the oldest ones expire");
+                }
+                return Insertion.FULL;
+            }
+            // The add on the newest bucket is what makes concurrent insertions of the same identifier exclusive
+            if (!buckets[newest].add(id)) {
+                if (!remote) {
+                    localSize.decrementAndGet();
+                }
+                return Insertion.SEEN;
+            }
+            if (!remote) {
+                localCounts[newest].incrementAndGet();
+            }
+            size.incrementAndGet();
+            return Insertion.INSERTED;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forget the identifiers of the oldest bucket, which then becomes the newest.
+     */
+    private void rotate() {
+        lock.writeLock().lock();
+        try {
+            final int oldest = (current + 1) % buckets.length;
+            size.addAndGet(-buckets[oldest].size());
+            localSize.addAndGet(-localCounts[oldest].getAndSet(0));
+            buckets[oldest].clear();
+            current = oldest;
+            fullWarned.set(false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private enum Insertion {
+        INSERTED, SEEN, FULL
+    }
+}
@@ -0,0 +1,51 @@
+package org.pac4j.vertx.core.store;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options for a {@link VertxReplayCache}.
+ */
+@Accessors(chain = true)
+public class VertxReplayCacheOptions {
+
+    /**
+     * Time in milliseconds for which an identifier is remembered once seen.
+     */
+    @Getter @Setter
+    private long window = 10 * 60 * 1000;
+
+    /**
+     * Number of time buckets the window is divided into. Identifiers are forgotten a bucket at a time, so are
+     * remembered for at least the window minus the duration of one bucket.
+     */
+    @Getter @Setter
+    private int buckets = 10;
+
+    /**
+     * Maximum number of identifiers seen by this node which are held. Identifiers published by the other nodes of the
+     * cluster are held on top of these, as each node bounds its own. Once reached, new identifiers are handled as
+     * {@link #failClosed} says until the oldest bucket expires, rather than forgetting identifiers still within the
+     * window.
+     */
+    @Getter @Setter
+    private int maxEntries = 1_000_000;
+
+    /**
+     * True to reject new identifiers as replays while the cache is full, false to accept them without remembering
+     * them. Failing closed never lets a replay through, but anyone able to send callbacks with fresh identifiers fast
+     * enough to fill the cache then locks every user out until the oldest bucket expires. Failing open keeps users
+     * able to log in under such a flood, at the cost of not detecting the replays of the identifiers accepted while
+     * the cache is full.
+     */
+    @Getter @Setter
+    private boolean failClosed = true;
+
+    /**
+     * Event bus address on which identifiers seen by this node are published to the other nodes of the cluster, null
+     * to keep the cache local to the node.
+     */
+    @Getter @Setter
+    private String clusterAddress = null;
+}
@@ -0,0 +1,189 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.http.adapter.HttpActionAdapter;
+import org.pac4j.vertx.VertxWebContext;
+
+/**
+ * Execution of the blocking part of a handler on a worker thread, bounded by a deadline. Once the deadline passes the
+ * request is failed with a 504 on the event loop, the worker thread is interrupted if the work is still running, and
+ * the work is skipped altogether if it has not left the worker queue yet. Work writing the response itself must do so
+ * through an action adapter wrapped by {@link #guard}, so that either the work or the deadline writes it, never both.
+ *
+ * @param <T> the result type of the blocking work
+ */
+final class BlockingExecution<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlockingExecution.class);
+
+    private static final int GATEWAY_TIMEOUT = 504;
+    private static final String EXECUTION = "pac4j.blockingExecution";
+
+    private Thread worker;
+    private boolean exited = false;
+    private boolean completed = false;
+    private boolean expired = false;
+    private boolean ended = false;
+    private boolean responding = false;
+
+    private BlockingExecution() {
+    }
+
+    /**
+     * Run blocking work for a request, as {@link Vertx#executeBlocking(Handler, boolean, Handler)} does, failing the
+     * request if the work outlives the timeout. The result handler is not called for work which timed out.
+     *
+     * @param vertx the vertx API
+     * @param routingContext the routing context of the request
+     * @param timeout the deadline in milliseconds, zero or negative for no deadline
+     * @param ordered true if the work must run in order with other blocking work of the same context
+     * @param stats the stats of the handler, recording the requests in flight, their wait for a worker thread and the
+     *              timeouts
+     * @param blockingCode the blocking work
+     * @param resultHandler the handler of the result, called on the event loop
+     * @param <T> the result type of the blocking work
+     */
+    static <T> void executeBlocking(final Vertx vertx, final RoutingContext routingContext, final long timeout,
+                                    final boolean ordered, final HandlerStats stats,
+                                    final Handler<Promise<T>> blockingCode,
+                                    final Handler<AsyncResult<T>> resultHandler) {
+        final long submittedAt = System.nanoTime();
+        stats.recordStart();
+        if (timeout <= 0) {
+            routingContext.remove(EXECUTION);
+            vertx.<T>executeBlocking(promise -> {
+                stats.recordQueueWait(System.nanoTime() - submittedAt);
+                try {
+                    blockingCode.handle(promise);
+                } finally {
+                    // Not left to the result handler, which is not called when the work ends the response itself
+                    stats.recordEnd();
+                }
+            }, ordered, resultHandler);
+            return;
+        }
+
+        final BlockingExecution<T> execution = new BlockingExecution<>();
+        routingContext.put(EXECUTION, execution);
+        final long timerId = vertx.setTimer(timeout, id -> {
+            if (execution.expire()) {
+                if (execution.end()) {
+                    stats.recordEnd();
+                }
+                stats.recordTimeout();
+                LOG.warn("Blocking work for " + routingContext.request().path() + " timed out after " + timeout + "ms");
+                if (!routingContext.response().ended()) {
+                    routingContext.fail(GATEWAY_TIMEOUT);
+                }
+            }
+        });
+
+        vertx.<T>executeBlocking(promise -> {
+            if (!execution.enter()) {
+                promise.fail(new TechnicalException("Deadline passed while queued for a worker thread"));
+                return;
+            }
+            stats.recordQueueWait(System.nanoTime() - submittedAt);
+            try {
+                blockingCode.handle(promise);
+            } finally {
+                execution.exit();
+                vertx.cancelTimer(timerId);
+                if (execution.end()) {
+                    stats.recordEnd();
+                }
+            }
+        }, ordered, asyncResult -> {
+            if (execution.complete()) {
+                vertx.cancelTimer(timerId);
+                resultHandler.handle(asyncResult);
+            }
+        });
+    }
+
+    /**
+     * Wrap the action adapter of a handler running its work through this class, so that the actions its work adapts
+     * are dropped once the deadline has failed the request, and the deadline no longer fails it once the work started
+     * writing the response.
+     *
+     * @param adapter the action adapter of the handler
+     * @param <R> the result type of the adapter
+     * @return the guarded adapter
+     */
+    static <R> HttpActionAdapter<R, VertxWebContext> guard(final HttpActionAdapter<R, VertxWebContext> adapter) {
+        return (action, context) -> {
+            final BlockingExecution<?> execution = context.getVertxRoutingContext().get(EXECUTION);
+            if (execution != null && !execution.respond()) {
+                LOG.debug("Action not adapted, the request already timed out");
+                return null;
+            }
+            return adapter.adapt(action, context);
+        };
+    }
+
+    private synchronized boolean enter() {
+        if (expired) {
+            return false;
+        }
+        worker = Thread.currentThread();
+        return true;
+    }
+
+    private void exit() {
+        synchronized (this) {
+            exited = true;
+            worker = null;
+        }
+        // No interrupt can be delivered any more, clear one which came in late so the worker thread is reused cleanly
+        Thread.interrupted();
+    }
+
+    /**
+     * @return true the first time the request is ended, by its work returning or by its deadline passing
+     */
+    private synchronized boolean end() {
+        if (ended) {
+            return false;
+        }
+        ended = true;
+        return true;
+    }
+
+    private synchronized boolean respond() {
+        if (expired) {
+            return false;
+        }
+        responding = true;
+        return true;
+    }
+
+    private synchronized boolean complete() {
+        if (expired) {
+            return false;
+        }
+        completed = true;
+        return true;
+    }
+
+    /**
+     * The work is considered finished once it has returned, even without completing its promise, as handlers such as
+     * the security handler end the response directly from the worker thread on redirects.
+     */
+    private synchronized boolean expire() {
+        if (completed || exited || responding) {
+            return false;
+        }
+        expired = true;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        return true;
+    }
+}
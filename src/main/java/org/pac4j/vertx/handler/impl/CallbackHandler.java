@@ -12,8 +12,13 @@ import org.pac4j.core.engine.DefaultCallbackLogic;
 import org.pac4j.core.exception.TechnicalException;
 import org.pac4j.core.http.adapter.HttpActionAdapter;
 import org.pac4j.core.util.FindBest;
+import org.pac4j.oidc.client.OidcClient;
+import org.pac4j.vertx.RequestTimings;
 import org.pac4j.vertx.VertxWebContext;
 import org.pac4j.vertx.http.VertxHttpActionAdapter;
+import org.pac4j.vertx.oidc.VertxAsyncOidcCallbackLogic;
+
+import java.util.concurrent.TimeoutException;
 
 /**
  * Callback handler for Vert.x pac4j binding. This handler finishes the stateful authentication process.
@@ -36,6 +41,13 @@ public class CallbackHandler implements Handler<RoutingContext> {
     private final Boolean multiProfile;
     private final Boolean renewSession;
     private final String defaultClient;
+    private final boolean serverTiming;
+    private final long slowRequestThreshold;
+    private final long blockingTimeout;
+    private final VertxAsyncOidcCallbackLogic asyncOidcLogic;
+    private final HandlerStats stats = new HandlerStats();
+    private final CallbackLogic<Void, VertxWebContext> callbackLogic;
+    private final HttpActionAdapter<Void, VertxWebContext> httpActionAdapter;
 
     public CallbackHandler(final Vertx vertx,
                            final SessionStore<VertxWebContext> sessionStore,
@@ -49,23 +61,61 @@ public class CallbackHandler implements Handler<RoutingContext> {
         this.multiProfile = options.getMultiProfile();
         this.renewSession = options.getRenewSession();
         this.defaultClient = options.getDefaultClient();
-
+        this.serverTiming = options.isServerTiming();
+        this.slowRequestThreshold = options.getSlowRequestThreshold();
+        this.blockingTimeout = options.getBlockingTimeout();
+        this.asyncOidcLogic = options.isNonBlockingOidc()
+                ? new VertxAsyncOidcCallbackLogic(vertx, vertx.createHttpClient(options.getOidcHttpClientOptions()))
+                : null;
+        this.callbackLogic = FindBest.callbackLogic(null, config, DefaultCallbackLogic.INSTANCE);
+        this.httpActionAdapter = BlockingExecution.guard(
+                FindBest.httpActionAdapter(null, config, VertxHttpActionAdapter.INSTANCE));
     }
 
     @Override
     public void handle(RoutingContext event) {
 
-        final CallbackLogic<Void, VertxWebContext> bestLogic = FindBest.callbackLogic(null, config, DefaultCallbackLogic.INSTANCE);
-        final HttpActionAdapter<Void, VertxWebContext> bestAdapter = FindBest.httpActionAdapter(null, config, VertxHttpActionAdapter.INSTANCE);
-
+        final RequestTimings timings = serverTiming || slowRequestThreshold >= 0
+                ? RequestTimings.start(event, serverTiming, slowRequestThreshold) : null;
+        final long submitted = System.nanoTime();
         // Can we complete the authentication process here?
         final VertxWebContext webContext = new VertxWebContext(event, sessionStore);
 
-        vertx.executeBlocking(future -> {
-            bestLogic.perform(webContext, config, bestAdapter, defaultUrl, saveInSession, multiProfile, renewSession, defaultClient);
+        // OpenID Connect callbacks can be completed without leaving the event loop, unless the logic was customised
+        final OidcClient<?> oidcClient = asyncOidcLogic != null && config.getCallbackLogic() == null
+                ? asyncOidcLogic.findClient(webContext, config, defaultClient) : null;
+        if (oidcClient != null) {
+            final long recorded = timings != null ? timings.recordedNanos() : 0;
+            stats.recordStart();
+            asyncOidcLogic.perform(webContext, config, httpActionAdapter, defaultUrl, saveInSession, multiProfile,
+                    renewSession, oidcClient, blockingTimeout, asyncResult -> {
+                stats.recordEnd();
+                if (timings != null) {
+                    timings.recordExclusive(RequestTimings.CALLBACK, submitted, recorded);
+                }
+                if (asyncResult.failed() && asyncResult.cause() instanceof TimeoutException) {
+                    LOG.warn(asyncResult.cause().getMessage());
+                    stats.recordTimeout();
+                    event.fail(504);
+                } else if (asyncResult.failed()) {
+                    event.fail(new TechnicalException(asyncResult.cause()));
+                }
+            });
+            return;
+        }
+
+        BlockingExecution.executeBlocking(vertx, event, blockingTimeout, false, stats, future -> {
+            final long started = System.nanoTime();
+            if (timings != null) {
+                timings.record(RequestTimings.QUEUE, submitted);
+            }
+            final long recorded = timings != null ? timings.recordedNanos() : 0;
+            callbackLogic.perform(webContext, config, httpActionAdapter, defaultUrl, saveInSession, multiProfile, renewSession, defaultClient);
+            if (timings != null) {
+                timings.recordExclusive(RequestTimings.CALLBACK, started, recorded);
+            }
             future.complete(null);
         },
-        false,
         asyncResult -> {
             // If we succeeded we're all good here, the job is done either through approving, or redirect, or
             // forbidding
@@ -76,4 +126,8 @@ public class CallbackHandler implements Handler<RoutingContext> {
         });
 
     }
+
+    public HandlerStats getStats() {
+        return stats;
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.pac4j.vertx.handler.impl;
 
+import io.vertx.core.http.HttpClientOptions;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -40,4 +41,38 @@ public class CallbackHandlerOptions {
 
     @Getter @Setter
     private String defaultClient;
+
+    /**
+     * True if a Server-Timing header with the duration of each phase of the request should be added to the response.
+     */
+    @Getter @Setter
+    private boolean serverTiming = false;
+
+    /**
+     * Duration in milliseconds above which a request is logged along with the duration of each of its phases. Negative
+     * to disable the logging of slow requests.
+     */
+    @Getter @Setter
+    private long slowRequestThreshold = -1;
+
+    /**
+     * Deadline in milliseconds for the blocking work of a request, after which the request is failed with a 504 and
+     * the worker thread is interrupted. Also applies to the callbacks completed on the event loop when
+     * {@link #nonBlockingOidc} is set. Zero or negative for no deadline.
+     */
+    @Getter @Setter
+    private long blockingTimeout = -1;
+
+    /**
+     * True if the callbacks of OpenID Connect clients should be completed on the event loop, the requests to the
+     * identity provider going through a non-blocking HTTP client. Other clients are still completed on a worker thread.
+     */
+    @Getter @Setter
+    private boolean nonBlockingOidc = false;
+
+    /**
+     * Options of the HTTP client used to reach the identity providers when {@link #nonBlockingOidc} is set.
+     */
+    @Getter @Setter
+    private HttpClientOptions oidcHttpClientOptions = new HttpClientOptions().setKeepAlive(true);
 }
@@ -0,0 +1,84 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters kept by a pac4j handler, updated as requests go through it.
+ */
+public class HandlerStats {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong totalQueueWait = new AtomicLong();
+    private final AtomicLong maxQueueWait = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @return the number of requests whose blocking work was submitted
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of requests whose blocking work was submitted and has neither returned nor timed out yet
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the mean time in microseconds the blocking work waited for a worker thread
+     */
+    public long getMeanQueueWaitMicros() {
+        final long count = queued.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalQueueWait.get() / count);
+    }
+
+    /**
+     * @return the longest time in microseconds the blocking work waited for a worker thread
+     */
+    public long getMaxQueueWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxQueueWait.get());
+    }
+
+    /**
+     * @return the number of requests failed because their blocking work did not complete before the deadline
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("requests", getRequests())
+                .put("inFlight", getInFlight())
+                .put("meanQueueWaitMicros", getMeanQueueWaitMicros())
+                .put("maxQueueWaitMicros", getMaxQueueWaitMicros())
+                .put("timeouts", getTimeouts());
+    }
+
+    void recordStart() {
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+    }
+
+    void recordQueueWait(final long nanos) {
+        queued.incrementAndGet();
+        totalQueueWait.addAndGet(nanos);
+        maxQueueWait.accumulateAndGet(nanos, Math::max);
+    }
+
+    void recordEnd() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+}
@@ -0,0 +1,69 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.core.exception.CredentialsException;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.auth.Pac4jUser;
+import org.pac4j.vertx.jwt.VertxJwtBearerAuthenticator;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Handler authenticating requests carrying a JWT bearer token without leaving the event loop. Authenticated requests
+ * get a {@link Pac4jUser} and their profile as a request attribute, where the pac4j profile manager finds it, the
+ * others are rejected with a 401.
+ */
+public class JwtBearerHandler implements Handler<RoutingContext> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JwtBearerHandler.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final VertxJwtBearerAuthenticator authenticator;
+
+    public JwtBearerHandler(final VertxJwtBearerAuthenticator authenticator) {
+        CommonHelper.assertNotNull("authenticator", authenticator);
+        this.authenticator = authenticator;
+    }
+
+    @Override
+    public void handle(final RoutingContext routingContext) {
+        final String authorization = routingContext.request().getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            unauthorized(routingContext);
+            return;
+        }
+
+        authenticator.authenticate(authorization.substring(BEARER_PREFIX.length()).trim(), asyncResult -> {
+            if (asyncResult.succeeded()) {
+                final CommonProfile profile = asyncResult.result();
+                final LinkedHashMap<String, CommonProfile> profiles = new LinkedHashMap<>();
+                profiles.put(profile.getClientName(), profile);
+                routingContext.put(Pac4jConstants.USER_PROFILES, profiles);
+                final Pac4jUser user = new Pac4jUser();
+                user.setUserProfiles(profiles);
+                routingContext.setUser(user);
+                routingContext.next();
+            } else if (asyncResult.cause() instanceof CredentialsException) {
+                LOG.debug("Bearer token rejected: " + asyncResult.cause().getMessage());
+                unauthorized(routingContext);
+            } else {
+                routingContext.fail(new TechnicalException(asyncResult.cause()));
+            }
+        });
+    }
+
+    private static void unauthorized(final RoutingContext routingContext) {
+        routingContext.response()
+                .setStatusCode(401)
+                .putHeader("WWW-Authenticate", "Bearer")
+                .end();
+    }
+}
@@ -1,8 +1,10 @@
 package org.pac4j.vertx.handler.impl;
 
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
 import org.pac4j.core.config.Config;
 import org.pac4j.core.context.session.SessionStore;
 import org.pac4j.core.engine.DefaultLogoutLogic;
@@ -10,7 +12,9 @@ import org.pac4j.core.engine.LogoutLogic;
 import org.pac4j.core.exception.TechnicalException;
 import org.pac4j.core.http.adapter.HttpActionAdapter;
 import org.pac4j.core.util.FindBest;
+import org.pac4j.vertx.RequestTimings;
 import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.auth.ClusterLogout;
 import org.pac4j.vertx.http.VertxHttpActionAdapter;
 
 /**
@@ -29,6 +33,13 @@ public class LogoutHandler implements Handler<RoutingContext> {
     private final boolean localLogout;
     private final boolean destroySession;
     private final boolean centralLogout;
+    private final boolean serverTiming;
+    private final long slowRequestThreshold;
+    private final long blockingTimeout;
+    private final HandlerStats stats = new HandlerStats();
+    private final ClusterLogout clusterLogout;
+    private final LogoutLogic<Void, VertxWebContext> logoutLogic;
+    private final HttpActionAdapter<Void, VertxWebContext> httpActionAdapter;
 
     /**
      * Construct based on the option values provided
@@ -41,6 +52,23 @@ public class LogoutHandler implements Handler<RoutingContext> {
     public LogoutHandler(final Vertx vertx,
                          final SessionStore<VertxWebContext> sessionStore ,
                          final LogoutHandlerOptions options, final Config config) {
+        this(vertx, sessionStore, options, config, null);
+    }
+
+    /**
+     * Construct based on the option values provided, publishing the logouts to the other nodes of the cluster before
+     * performing them
+     *
+     * @param vertx the vertx API
+     * @param sessionStore the session store
+     * @param options - the options to configure this handler
+     * @param config the pac4j configuration
+     * @param clusterLogout the publisher of the logouts, null to only log out on this node
+     */
+    public LogoutHandler(final Vertx vertx,
+                         final SessionStore<VertxWebContext> sessionStore,
+                         final LogoutHandlerOptions options, final Config config,
+                         final ClusterLogout clusterLogout) {
         this.defaultUrl = options.getDefaultUrl();
         this.logoutUrlPattern = options.getLogoutUrlPattern();
         this.config = config;
@@ -49,21 +77,52 @@ public class LogoutHandler implements Handler<RoutingContext> {
         this.localLogout = options.isLocalLogout();
         this.destroySession = options.isDestroySession();
         this.centralLogout = options.isCentralLogout();
+        this.serverTiming = options.isServerTiming();
+        this.slowRequestThreshold = options.getSlowRequestThreshold();
+        this.blockingTimeout = options.getBlockingTimeout();
+        this.clusterLogout = clusterLogout;
+        this.logoutLogic = FindBest.logoutLogic(null, config, DefaultLogoutLogic.INSTANCE);
+        this.httpActionAdapter = BlockingExecution.guard(
+                FindBest.httpActionAdapter(null, config, VertxHttpActionAdapter.INSTANCE));
     }
 
     @Override
     public void handle(final RoutingContext routingContext) {
 
-        final LogoutLogic<Void, VertxWebContext> bestLogic = FindBest.logoutLogic(null, config, DefaultLogoutLogic.INSTANCE);
-        final HttpActionAdapter<Void, VertxWebContext> bestAdapter = FindBest.httpActionAdapter(null, config, VertxHttpActionAdapter.INSTANCE);
-
+        final RequestTimings timings = serverTiming || slowRequestThreshold >= 0
+                ? RequestTimings.start(routingContext, serverTiming, slowRequestThreshold) : null;
+        final long submitted = System.nanoTime();
         final VertxWebContext webContext = new VertxWebContext(routingContext, sessionStore);
 
-        vertx.executeBlocking(future -> {
-                    bestLogic.perform(webContext, config, bestAdapter, defaultUrl, logoutUrlPattern, localLogout, destroySession, centralLogout);
+        final Session session = routingContext.session();
+        if (clusterLogout != null && session != null && (localLogout || destroySession)) {
+            // The other nodes have applied the logout, or the acknowledgement timeout elapsed, once this completes
+            final Context context = vertx.getOrCreateContext();
+            clusterLogout.logout(session.id(), destroySession).onComplete(published -> context.runOnContext(v ->
+                    performLogout(routingContext, webContext, timings, submitted)));
+        } else {
+            performLogout(routingContext, webContext, timings, submitted);
+        }
+    }
+
+    public HandlerStats getStats() {
+        return stats;
+    }
+
+    private void performLogout(final RoutingContext routingContext, final VertxWebContext webContext,
+                               final RequestTimings timings, final long submitted) {
+        BlockingExecution.executeBlocking(vertx, routingContext, blockingTimeout, false, stats, future -> {
+                    final long started = System.nanoTime();
+                    if (timings != null) {
+                        timings.record(RequestTimings.QUEUE, submitted);
+                    }
+                    final long recorded = timings != null ? timings.recordedNanos() : 0;
+                    logoutLogic.perform(webContext, config, httpActionAdapter, defaultUrl, logoutUrlPattern, localLogout, destroySession, centralLogout);
+                    if (timings != null) {
+                        timings.recordExclusive(RequestTimings.LOGOUT, started, recorded);
+                    }
                     future.complete(null);
                 },
-                false,
                 asyncResult -> {
                     // If we succeeded we're all good here, the job is done either through approving, or redirect, or
                     // forbidding
@@ -72,6 +131,5 @@ public class LogoutHandler implements Handler<RoutingContext> {
                         routingContext.fail(new TechnicalException(asyncResult.cause()));
                     }
                 });
-
     }
 }
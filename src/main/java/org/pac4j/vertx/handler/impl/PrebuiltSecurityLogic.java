@@ -0,0 +1,236 @@
+package org.pac4j.vertx.handler.impl;
+
+import org.pac4j.core.authorization.authorizer.Authorizer;
+import org.pac4j.core.authorization.authorizer.CsrfAuthorizer;
+import org.pac4j.core.authorization.authorizer.DefaultAuthorizers;
+import org.pac4j.core.authorization.authorizer.IsAnonymousAuthorizer;
+import org.pac4j.core.authorization.authorizer.IsAuthenticatedAuthorizer;
+import org.pac4j.core.authorization.authorizer.IsFullyAuthenticatedAuthorizer;
+import org.pac4j.core.authorization.authorizer.IsRememberedAuthorizer;
+import org.pac4j.core.authorization.checker.DefaultAuthorizationChecker;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.client.finder.ClientFinder;
+import org.pac4j.core.client.finder.DefaultSecurityClientFinder;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.engine.DefaultSecurityLogic;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.matching.checker.DefaultMatchingChecker;
+import org.pac4j.core.matching.matcher.Matcher;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.VertxWebContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies of the default pac4j security logic whose clients, matchers and authorizers are resolved from the
+ * configuration once, when a handler is built, rather than on every request by parsing their names and looking each
+ * of them up. Requests forcing a client through a request parameter, and client finders or checkers replaced in the
+ * logic, still go through the resolution performed by pac4j.
+ */
+final class PrebuiltSecurityLogic {
+
+    // Names of the matchers built into pac4j, which take precedence over the matchers of the configuration
+    private static final Set<String> BUILT_IN_MATCHERS = new HashSet<>(Arrays.asList("hsts", "nosniff", "noframe",
+            "xssprotection", "nocache", "securityheaders", "csrftoken", "allowajaxrequests"));
+    private static final String NO_MATCHER = "none";
+    // Authorizers built into pac4j by lower case name, which take precedence over the authorizers of the configuration
+    private static final Map<String, Authorizer> BUILT_IN_AUTHORIZERS = new HashMap<>();
+
+    static {
+        BUILT_IN_AUTHORIZERS.put(DefaultAuthorizers.CSRF_CHECK.toLowerCase(), new CsrfAuthorizer());
+        BUILT_IN_AUTHORIZERS.put(DefaultAuthorizers.IS_ANONYMOUS.toLowerCase(), new IsAnonymousAuthorizer());
+        BUILT_IN_AUTHORIZERS.put(DefaultAuthorizers.IS_AUTHENTICATED.toLowerCase(), new IsAuthenticatedAuthorizer());
+        BUILT_IN_AUTHORIZERS.put(DefaultAuthorizers.IS_FULLY_AUTHENTICATED.toLowerCase(),
+                new IsFullyAuthenticatedAuthorizer());
+        BUILT_IN_AUTHORIZERS.put(DefaultAuthorizers.IS_REMEMBERED.toLowerCase(), new IsRememberedAuthorizer());
+    }
+
+    private PrebuiltSecurityLogic() {
+    }
+
+    /**
+     * @param base the logic whose settings are copied
+     * @param config the pac4j configuration
+     * @param clientNames the names of the clients of the handler
+     * @param matcherNames the names of the matchers of the handler
+     * @param authorizerNames the names of the authorizers of the handler
+     * @return a logic performing as the base one, with the clients, matchers and authorizers of the handler resolved
+     */
+    static DefaultSecurityLogic<Void, VertxWebContext> of(final DefaultSecurityLogic<Void, VertxWebContext> base,
+                                                         final Config config, final String clientNames,
+                                                         final String matcherNames, final String authorizerNames) {
+        final DefaultSecurityLogic<Void, VertxWebContext> logic = new DefaultSecurityLogic<>();
+        logic.setProfileStorageDecision(base.getProfileStorageDecision());
+        logic.setSavedRequestHandler(base.getSavedRequestHandler());
+        logic.setErrorUrl(base.getErrorUrl());
+        if (base.getProfileManagerFactory() != null) {
+            logic.setProfileManagerFactory(base.getProfileManagerFactory());
+        }
+        logic.setClientFinder(base.getClientFinder());
+        logic.setMatchingChecker(base.getMatchingChecker());
+        logic.setAuthorizationChecker(base.getAuthorizationChecker());
+
+        if (base.getClientFinder().getClass() != DefaultSecurityClientFinder.class) {
+            // The clients found may not be those resolved here, on which default matchers and authorizers depend
+            return logic;
+        }
+        final ResolvedClientFinder clientFinder = new ResolvedClientFinder(
+                (DefaultSecurityClientFinder) base.getClientFinder(), config.getClients(), clientNames);
+        logic.setClientFinder(clientFinder);
+        if (base.getMatchingChecker().getClass() == DefaultMatchingChecker.class) {
+            logic.setMatchingChecker(new ResolvedMatchingChecker(matcherNames, config.getMatchers(),
+                    clientFinder.resolved));
+        }
+        if (base.getAuthorizationChecker().getClass() == DefaultAuthorizationChecker.class) {
+            logic.setAuthorizationChecker(new ResolvedAuthorizationChecker(authorizerNames, config.getAuthorizers(),
+                    clientFinder.resolved));
+        }
+        return logic;
+    }
+
+    private static final class ResolvedClientFinder implements ClientFinder {
+
+        private final DefaultSecurityClientFinder finder;
+        private final List<Client<? extends Credentials>> resolved;
+
+        private ResolvedClientFinder(final DefaultSecurityClientFinder finder, final Clients clients,
+                                     final String clientNames) {
+            CommonHelper.assertNotNull("clients", clients);
+            this.finder = finder;
+            String names = clientNames;
+            if (names == null) {
+                names = clients.getDefaultSecurityClients();
+                if (names == null && clients.findAllClients().size() == 1) {
+                    names = clients.getClients().get(0).getName();
+                }
+            }
+            final List<Client<? extends Credentials>> found = new ArrayList<>();
+            if (CommonHelper.isNotBlank(names)) {
+                for (final String name : names.split(Pac4jConstants.ELEMENT_SEPARATOR)) {
+                    clients.findClient(name).ifPresent(found::add);
+                }
+            }
+            this.resolved = Collections.unmodifiableList(found);
+        }
+
+        @Override
+        public List<Client<? extends Credentials>> find(final Clients clients, final WebContext context,
+                                                        final String clientNames) {
+            if (context.getRequestParameter(finder.getClientNameParameter()).isPresent()
+                    || context.getRequestParameter(Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER).isPresent()) {
+                return finder.find(clients, context, clientNames);
+            }
+            return resolved;
+        }
+    }
+
+    private static final class ResolvedMatchingChecker extends DefaultMatchingChecker {
+
+        private final List<Client<? extends Credentials>> clients;
+        private final String[] names;
+        // Null for the matchers built into pac4j, which are checked by the default checker
+        private final Matcher[] matchers;
+
+        private ResolvedMatchingChecker(final String matcherNames, final Map<String, Matcher> matchersMap,
+                                        final List<Client<? extends Credentials>> clients) {
+            this.clients = clients;
+            final String names = CommonHelper.isBlank(matcherNames) ? computeDefaultMatchers(clients) : matcherNames;
+            final Map<String, Matcher> allMatchers = buildAllMatchers(matchersMap);
+            final List<String> resolvedNames = new ArrayList<>();
+            final List<Matcher> resolvedMatchers = new ArrayList<>();
+            for (final String name : names.split(Pac4jConstants.ELEMENT_SEPARATOR)) {
+                final String trimmed = name.trim();
+                if (NO_MATCHER.equalsIgnoreCase(trimmed)) {
+                    continue;
+                }
+                resolvedNames.add(trimmed);
+                resolvedMatchers.add(BUILT_IN_MATCHERS.contains(trimmed.toLowerCase()) ? null
+                        : find(allMatchers, trimmed));
+            }
+            this.names = resolvedNames.toArray(new String[0]);
+            this.matchers = resolvedMatchers.toArray(new Matcher[0]);
+        }
+
+        @Override
+        public boolean matches(final WebContext context, final String matcherNames,
+                               final Map<String, Matcher> matchersMap,
+                               final List<Client<? extends Credentials>> currentClients) {
+            if (currentClients != clients) {
+                return super.matches(context, matcherNames, matchersMap, currentClients);
+            }
+            for (int i = 0; i < matchers.length; i++) {
+                final boolean matches = matchers[i] != null ? matchers[i].matches(context)
+                        : super.matches(context, names[i], Collections.emptyMap(), currentClients);
+                if (!matches) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static Matcher find(final Map<String, Matcher> matchers, final String name) {
+            for (final Map.Entry<String, Matcher> entry : matchers.entrySet()) {
+                if (CommonHelper.areEqualsIgnoreCaseAndTrim(entry.getKey(), name)) {
+                    return entry.getValue();
+                }
+            }
+            throw new TechnicalException("Unknown matcher: " + name);
+        }
+    }
+
+    private static final class ResolvedAuthorizationChecker extends DefaultAuthorizationChecker {
+
+        private final List<Client<? extends Credentials>> clients;
+        private final List<Authorizer> authorizers;
+
+        private ResolvedAuthorizationChecker(final String authorizerNames, final Map<String, Authorizer> authorizersMap,
+                                             final List<Client<? extends Credentials>> clients) {
+            this.clients = clients;
+            final String names = CommonHelper.isBlank(authorizerNames) ? computeDefaultAuthorizers(clients)
+                    : authorizerNames;
+            final List<Authorizer> resolved = new ArrayList<>();
+            for (final String name : names.split(Pac4jConstants.ELEMENT_SEPARATOR)) {
+                final String trimmed = name.trim();
+                if (DefaultAuthorizers.NONE.equalsIgnoreCase(trimmed)) {
+                    continue;
+                }
+                final Authorizer builtIn = BUILT_IN_AUTHORIZERS.get(trimmed.toLowerCase());
+                resolved.add(builtIn != null ? builtIn : find(authorizersMap, trimmed));
+            }
+            this.authorizers = Collections.unmodifiableList(resolved);
+        }
+
+        @Override
+        public boolean isAuthorized(final WebContext context, final List<UserProfile> profiles,
+                                    final String authorizerNames, final Map<String, Authorizer> authorizersMap,
+                                    final List<Client<? extends Credentials>> currentClients) {
+            if (currentClients != clients) {
+                return super.isAuthorized(context, profiles, authorizerNames, authorizersMap, currentClients);
+            }
+            return isAuthorized(context, profiles, authorizers);
+        }
+
+        private static Authorizer find(final Map<String, Authorizer> authorizers, final String name) {
+            if (authorizers != null) {
+                for (final Map.Entry<String, Authorizer> entry : authorizers.entrySet()) {
+                    if (CommonHelper.areEqualsIgnoreCaseAndTrim(entry.getKey(), name)) {
+                        return entry.getValue();
+                    }
+                }
+            }
+            throw new TechnicalException("Unknown authorizer: " + name);
+        }
+    }
+}
@@ -8,20 +8,25 @@ import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.impl.AuthHandlerImpl;
+import org.pac4j.core.authorization.checker.AuthorizationChecker;
 import org.pac4j.core.config.Config;
 import org.pac4j.core.context.session.SessionStore;
 import org.pac4j.core.engine.DefaultSecurityLogic;
 import org.pac4j.core.engine.SecurityLogic;
 import org.pac4j.core.exception.TechnicalException;
 import org.pac4j.core.http.adapter.HttpActionAdapter;
+import org.pac4j.core.matching.checker.MatchingChecker;
 import org.pac4j.core.util.CommonHelper;
 import org.pac4j.core.util.FindBest;
+import org.pac4j.vertx.RequestTimings;
 import org.pac4j.vertx.VertxProfileManager;
 import org.pac4j.vertx.VertxWebContext;
 import org.pac4j.vertx.auth.Pac4jAuthProvider;
 import org.pac4j.vertx.context.session.VertxSessionStore;
 import org.pac4j.vertx.http.VertxHttpActionAdapter;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * @author Jeremy Prime
  * @since 2.0.0
@@ -30,6 +35,10 @@ public class SecurityHandler extends AuthHandlerImpl {
 
     private static final Logger LOG = LoggerFactory.getLogger(SecurityHandler.class);
 
+    // Only one in this many authorised requests is logged, to keep logging off the hot path
+    private static final int AUTHORISED_LOG_SAMPLE_RATE = 100;
+    private static final AtomicLong AUTHORISED_COUNT = new AtomicLong();
+
     protected final Config config;
 
     protected final String clientNames;
@@ -38,6 +47,12 @@ public class SecurityHandler extends AuthHandlerImpl {
     protected final boolean multiProfile;
     protected final Vertx vertx;
     private final SessionStore<VertxWebContext> sessionStore;
+    private final boolean serverTiming;
+    private final long slowRequestThreshold;
+    private final long blockingTimeout;
+    private final SecurityLogic<Void, VertxWebContext> securityLogic;
+    private final HttpActionAdapter<Void, VertxWebContext> httpActionAdapter;
+    private final HandlerStats stats = new HandlerStats();
 
     static {
         Config.defaultProfileManagerFactory("VertxProfileManager", ctx -> new VertxProfileManager((VertxWebContext) ctx));
@@ -60,32 +75,53 @@ public class SecurityHandler extends AuthHandlerImpl {
         authorizerName = options.getAuthorizers();
         matcherName = options.getMatchers();
         multiProfile = options.isMultiProfile();
+        serverTiming = options.isServerTiming();
+        slowRequestThreshold = options.getSlowRequestThreshold();
+        blockingTimeout = options.getBlockingTimeout();
         this.vertx = vertx;
         this.sessionStore = sessionStore;
         this.config = config;
+        this.securityLogic = resolveSecurityLogic();
+        this.httpActionAdapter = BlockingExecution.guard(
+                FindBest.httpActionAdapter(null, config, VertxHttpActionAdapter.INSTANCE));
     }
 
     // Port of Pac4J auth to a handler in vert.x 3.
     @Override
     public void handle(final RoutingContext routingContext) {
 
-        final SecurityLogic<Void, VertxWebContext> bestLogic = FindBest.securityLogic(null, config, DefaultSecurityLogic.INSTANCE);
-        final HttpActionAdapter<Void, VertxWebContext> bestAdapter = FindBest.httpActionAdapter(null, config, VertxHttpActionAdapter.INSTANCE);
-
+        final RequestTimings timings = isTimed()
+                ? RequestTimings.start(routingContext, serverTiming, slowRequestThreshold) : null;
+        final long submitted = System.nanoTime();
         final VertxWebContext webContext = new VertxWebContext(routingContext, sessionStore);
 
-        vertx.executeBlocking(future -> bestLogic.perform(webContext, config,
-            (ctx, profiles, parameters) -> {
-                // This is what should occur if we are authenticated and authorized to view the requested
-                // resource
-                future.complete();
-                return null;
-            },
-            bestAdapter,
-            clientNames,
-            authorizerName,
-            matcherName,
-            multiProfile),
+        BlockingExecution.executeBlocking(vertx, routingContext, blockingTimeout, true, stats, future -> {
+            final long started = System.nanoTime();
+            if (timings != null) {
+                timings.record(RequestTimings.QUEUE, submitted);
+            }
+            // The session load, matchers and authorizers are recorded as phases of their own
+            final long recorded = timings != null ? timings.recordedNanos() : 0;
+            securityLogic.perform(webContext, config,
+                (ctx, profiles, parameters) -> {
+                    // This is what should occur if we are authenticated and authorized to view the requested
+                    // resource
+                    if (timings != null) {
+                        timings.recordExclusive(RequestTimings.SECURITY, started, recorded);
+                    }
+                    future.complete();
+                    return null;
+                },
+                httpActionAdapter,
+                clientNames,
+                authorizerName,
+                matcherName,
+                multiProfile);
+            if (timings != null && !future.future().isComplete()) {
+                // Access was not granted, the response has been ended by the action adapter
+                timings.recordExclusive(RequestTimings.SECURITY, started, recorded);
+            }
+        },
         asyncResult -> {
             // If we succeeded we're all good here, the job is done either through approving, or redirect, or
             // forbidding
@@ -93,7 +129,9 @@ public class SecurityHandler extends AuthHandlerImpl {
             if (asyncResult.failed()) {
                 unexpectedFailure(routingContext, asyncResult.cause());
             } else {
-                LOG.info("Authorised to view resource " + routingContext.request().path());
+                if (LOG.isDebugEnabled() && AUTHORISED_COUNT.getAndIncrement() % AUTHORISED_LOG_SAMPLE_RATE == 0) {
+                    LOG.debug("Authorised to view resource " + routingContext.request().path());
+                }
                 routingContext.next();
             }
         });
@@ -101,6 +139,39 @@ public class SecurityHandler extends AuthHandlerImpl {
     }
 
 
+    public HandlerStats getStats() {
+        return stats;
+    }
+
+    private boolean isTimed() {
+        return serverTiming || slowRequestThreshold >= 0;
+    }
+
+    /**
+     * Resolve the security logic once for all requests. The default logic is copied with the clients, matchers and
+     * authorizers of this handler resolved, and its matcher and authorizer checks timed if requested.
+     */
+    private SecurityLogic<Void, VertxWebContext> resolveSecurityLogic() {
+        final SecurityLogic<Void, VertxWebContext> found = FindBest.securityLogic(null, config,
+                DefaultSecurityLogic.INSTANCE);
+        if (found.getClass() != DefaultSecurityLogic.class) {
+            return found;
+        }
+        final DefaultSecurityLogic<Void, VertxWebContext> logic = PrebuiltSecurityLogic.of(
+                (DefaultSecurityLogic<Void, VertxWebContext>) found, config, clientNames, matcherName, authorizerName);
+        if (isTimed()) {
+            final MatchingChecker matchingChecker = logic.getMatchingChecker();
+            final AuthorizationChecker authorizationChecker = logic.getAuthorizationChecker();
+            logic.setMatchingChecker((context, matchers, matchersMap, clients) ->
+                    RequestTimings.time(context, RequestTimings.MATCHERS,
+                            () -> matchingChecker.matches(context, matchers, matchersMap, clients)));
+            logic.setAuthorizationChecker((context, profiles, authorizers, authorizersMap, clients) ->
+                    RequestTimings.time(context, RequestTimings.AUTHORIZERS,
+                            () -> authorizationChecker.isAuthorized(context, profiles, authorizers, authorizersMap, clients)));
+        }
+        return logic;
+    }
+
     protected void unexpectedFailure(final RoutingContext context, Throwable failure) {
         context.fail(toTechnicalException(failure));
     }
@@ -24,4 +24,23 @@ public class SecurityHandlerOptions {
     @Getter @Setter
     private boolean multiProfile = false;
 
+    /**
+     * True if a Server-Timing header with the duration of each phase of the request should be added to the response.
+     */
+    @Getter @Setter
+    private boolean serverTiming = false;
+
+    /**
+     * Duration in milliseconds above which a request is logged along with the duration of each of its phases. Negative
+     * to disable the logging of slow requests.
+     */
+    @Getter @Setter
+    private long slowRequestThreshold = -1;
+
+    /**
+     * Deadline in milliseconds for the blocking work of a request, after which the request is failed with a 504 and
+     * the worker thread is interrupted. Zero or negative for no deadline.
+     */
+    @Getter @Setter
+    private long blockingTimeout = -1;
 }
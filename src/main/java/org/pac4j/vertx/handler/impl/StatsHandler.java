@@ -0,0 +1,75 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.auth.Pac4JUserProfiles;
+import org.pac4j.vertx.core.store.StoreStats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-only handler serving a JSON snapshot of the stats of the registered handlers and stores, of registered gauges
+ * (e.g. the size of a replay cache) and of the profile serialization of this node. Every figure is read from counters
+ * kept up to date as requests go through, so serving the snapshot never scans a store.
+ *
+ * The snapshot is not protected in any way, the route it is mounted on should be.
+ */
+public class StatsHandler implements Handler<RoutingContext> {
+
+    private final Map<String, HandlerStats> handlers = new ConcurrentHashMap<>();
+    private final Map<String, StoreStats> stores = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<?>> gauges = new ConcurrentHashMap<>();
+
+    public StatsHandler addHandler(final String name, final HandlerStats stats) {
+        CommonHelper.assertNotBlank("name", name);
+        CommonHelper.assertNotNull("stats", stats);
+        handlers.put(name, stats);
+        return this;
+    }
+
+    public StatsHandler addStore(final String name, final StoreStats stats) {
+        CommonHelper.assertNotBlank("name", name);
+        CommonHelper.assertNotNull("stats", stats);
+        stores.put(name, stats);
+        return this;
+    }
+
+    /**
+     * @param name the name of the gauge
+     * @param gauge the supplier of its value, which must be cheap to call and return a JSON compatible value
+     * @return this handler
+     */
+    public StatsHandler addGauge(final String name, final Supplier<?> gauge) {
+        CommonHelper.assertNotBlank("name", name);
+        CommonHelper.assertNotNull("gauge", gauge);
+        gauges.put(name, gauge);
+        return this;
+    }
+
+    public JsonObject snapshot() {
+        final JsonObject handlersJson = new JsonObject();
+        handlers.forEach((name, stats) -> handlersJson.put(name, stats.toJson()));
+        final JsonObject storesJson = new JsonObject();
+        stores.forEach((name, stats) -> storesJson.put(name, stats.toJson()));
+        final JsonObject gaugesJson = new JsonObject();
+        gauges.forEach((name, gauge) -> gaugesJson.put(name, gauge.get()));
+        return new JsonObject()
+                .put("handlers", handlersJson)
+                .put("stores", storesJson)
+                .put("gauges", gaugesJson)
+                .put("profileSerialization", Pac4JUserProfiles.getSerializationStats().toJson());
+    }
+
+    @Override
+    public void handle(final RoutingContext routingContext) {
+        routingContext.response()
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .putHeader(HttpHeaders.CACHE_CONTROL, "no-store")
+                .end(snapshot().encode());
+    }
+}
@@ -0,0 +1,94 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.config.TenantConfigRegistry;
+import org.pac4j.vertx.config.TenantResolver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Handler resolving the tenant of each request and delegating to a handler built for the configuration of that tenant,
+ * such as a {@link SecurityHandler}, {@link CallbackHandler} or {@link LogoutHandler}. Requests for which no tenant
+ * or an unknown tenant is resolved are failed with a 404.
+ *
+ * The tenant is kept in the routing context under {@link TenantResolver#TENANT_KEY}, so that the pac4j entries of a
+ * session shared by several tenants, such as its profiles, are held separately for each tenant: a session
+ * authenticated at one tenant is not authenticated at the others.
+ *
+ * Delegate handlers are built on the first request of a tenant and kept for as long as the configuration of the
+ * tenant is not evicted from the registry.
+ */
+public class TenantHandler implements Handler<RoutingContext> {
+
+    private static final int NOT_FOUND = 404;
+
+    private final TenantConfigRegistry registry;
+    private final TenantResolver resolver;
+    private final Function<Config, Handler<RoutingContext>> handlerFactory;
+    // Guarded by itself, bounded like the registry so that handlers of evicted tenants do not accumulate
+    private final LinkedHashMap<String, Delegate> delegates;
+
+    public TenantHandler(final TenantConfigRegistry registry, final TenantResolver resolver,
+                         final Function<Config, Handler<RoutingContext>> handlerFactory) {
+        CommonHelper.assertNotNull("registry", registry);
+        CommonHelper.assertNotNull("resolver", resolver);
+        CommonHelper.assertNotNull("handlerFactory", handlerFactory);
+        this.registry = registry;
+        this.resolver = resolver;
+        this.handlerFactory = handlerFactory;
+        this.delegates = new LinkedHashMap<String, Delegate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Delegate> eldest) {
+                return size() > registry.getMaxTenants();
+            }
+        };
+    }
+
+    @Override
+    public void handle(final RoutingContext routingContext) {
+        final String tenant = resolver.resolve(routingContext);
+        if (tenant == null) {
+            routingContext.fail(NOT_FOUND);
+            return;
+        }
+        registry.getConfig(tenant, asyncResult -> {
+            if (asyncResult.failed()) {
+                routingContext.fail(new TechnicalException(asyncResult.cause()));
+            } else if (asyncResult.result() == null) {
+                routingContext.fail(NOT_FOUND);
+            } else {
+                routingContext.put(TenantResolver.TENANT_KEY, tenant);
+                delegateFor(tenant, asyncResult.result()).handle(routingContext);
+            }
+        });
+    }
+
+    private Handler<RoutingContext> delegateFor(final String tenant, final Config config) {
+        synchronized (delegates) {
+            final Delegate delegate = delegates.get(tenant);
+            // A configuration evicted then built again by the registry needs a new handler
+            if (delegate != null && delegate.config == config) {
+                return delegate.handler;
+            }
+            final Handler<RoutingContext> handler = handlerFactory.apply(config);
+            delegates.put(tenant, new Delegate(config, handler));
+            return handler;
+        }
+    }
+
+    private static class Delegate {
+        private final Config config;
+        private final Handler<RoutingContext> handler;
+
+        private Delegate(final Config config, final Handler<RoutingContext> handler) {
+            this.config = config;
+            this.handler = handler;
+        }
+    }
+}
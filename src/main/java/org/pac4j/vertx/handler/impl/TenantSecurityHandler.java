@@ -0,0 +1,25 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.Vertx;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.auth.Pac4jAuthProvider;
+import org.pac4j.vertx.config.TenantConfigRegistry;
+import org.pac4j.vertx.config.TenantResolver;
+
+/**
+ * Security handler for multi-tenant applications, applying a {@link SecurityHandler} built with the configuration of
+ * the tenant each request is addressed to. Tenant configurations are built lazily and cached by the registry, so
+ * neither startup time nor memory grow with the number of tenants.
+ */
+public class TenantSecurityHandler extends TenantHandler {
+
+    public TenantSecurityHandler(final Vertx vertx,
+                                 final SessionStore<VertxWebContext> sessionStore,
+                                 final TenantConfigRegistry registry,
+                                 final TenantResolver resolver,
+                                 final Pac4jAuthProvider authProvider,
+                                 final SecurityHandlerOptions options) {
+        super(registry, resolver, config -> new SecurityHandler(vertx, sessionStore, config, authProvider, options));
+    }
+}
@@ -0,0 +1,67 @@
+package org.pac4j.vertx.jwt;
+
+import io.vertx.core.http.HttpClientOptions;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Options for a {@link VertxJwtBearerAuthenticator}.
+ */
+@Accessors(chain = true)
+public class JwtBearerOptions {
+
+    /**
+     * URL of the JSON Web Key set holding the keys the tokens are signed with.
+     */
+    @Getter @Setter
+    private String jwksUri;
+
+    /**
+     * Expected issuer of the tokens, null to accept any issuer.
+     */
+    @Getter @Setter
+    private String issuer;
+
+    /**
+     * Audience the tokens must be intended for, null to accept any audience.
+     */
+    @Getter @Setter
+    private String audience;
+
+    /**
+     * Maximum clock skew in seconds allowed when checking the expiration and not-before times of the tokens.
+     */
+    @Getter @Setter
+    private int maxClockSkew = 60;
+
+    /**
+     * Interval in milliseconds at which the key set is fetched again in the background.
+     */
+    @Getter @Setter
+    private long keysRefreshInterval = 5 * 60 * 1000;
+
+    /**
+     * Minimum time in milliseconds between two fetches of the key set triggered by tokens signed with an unknown key.
+     */
+    @Getter @Setter
+    private long minKeysRefreshInterval = 30 * 1000;
+
+    /**
+     * Claim holding the roles of the user, null if the tokens carry no roles.
+     */
+    @Getter @Setter
+    private String rolesClaim;
+
+    /**
+     * Client name given to the profiles built from the tokens.
+     */
+    @Getter @Setter
+    private String clientName = "JwtBearerClient";
+
+    /**
+     * Options of the HTTP client the key set is fetched with.
+     */
+    @Getter @Setter
+    private HttpClientOptions httpClientOptions = new HttpClientOptions().setKeepAlive(true);
+}
@@ -0,0 +1,214 @@
+package org.pac4j.vertx.jwt;
+
+import com.nimbusds.jose.Algorithm;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.pac4j.core.exception.CredentialsException;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.vertx.oidc.VertxJwkSetCache;
+import org.pac4j.vertx.oidc.VertxNimbusHttpClient;
+
+import java.io.Closeable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authenticates signed JWT bearer tokens on the event loop. The key set is fetched without blocking and refreshed in
+ * the background, and one verifier is kept per key id, so a token signed with a known key is verified without any
+ * I/O or thread hop. A token signed with an unknown key triggers a fetch of the key set, at most once per refresh
+ * interval.
+ *
+ * Tokens without a key id are only accepted when the key set holds a single key. Keys whose use is stated are only
+ * used if it is signing, and keys whose algorithm is stated only verify tokens signed with that algorithm.
+ */
+public class VertxJwtBearerAuthenticator implements Closeable {
+
+    private final Vertx vertx;
+    private final JwtBearerOptions options;
+    private final VertxJwkSetCache keys;
+    private final DefaultJWTClaimsVerifier<SecurityContext> claimsVerifier;
+    private final long timerId;
+
+    private volatile Verifiers verifiers = new Verifiers(null);
+
+    public VertxJwtBearerAuthenticator(final Vertx vertx, final JwtBearerOptions options) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("options", options);
+        CommonHelper.assertNotBlank("jwksUri", options.getJwksUri());
+        this.vertx = vertx;
+        this.options = options;
+        try {
+            this.keys = new VertxJwkSetCache(vertx,
+                    new VertxNimbusHttpClient(vertx.createHttpClient(options.getHttpClientOptions())),
+                    new URL(options.getJwksUri()), options.getKeysRefreshInterval(), options.getMinKeysRefreshInterval());
+        } catch (final MalformedURLException e) {
+            throw new TechnicalException(e);
+        }
+
+        final JWTClaimsSet exactMatch = options.getIssuer() != null
+                ? new JWTClaimsSet.Builder().issuer(options.getIssuer()).build() : null;
+        this.claimsVerifier = new DefaultJWTClaimsVerifier<>(options.getAudience(), exactMatch,
+                new HashSet<>(Collections.singletonList("exp")));
+        this.claimsVerifier.setMaxClockSkew(options.getMaxClockSkew());
+
+        // Keep the key set fresh so that requests do not wait for it
+        keys.getKeys(null, fetched -> { });
+        this.timerId = vertx.setPeriodic(options.getKeysRefreshInterval(), id -> keys.getKeys(null, fetched -> { }));
+    }
+
+    /**
+     * Authenticate a token. The handler is called synchronously unless the key set has to be fetched.
+     *
+     * @param token the serialized token
+     * @param handler the handler receiving the profile built from the claims of the token, or a
+     *                {@link CredentialsException} if the token is not valid
+     */
+    public void authenticate(final String token, final Handler<AsyncResult<CommonProfile>> handler) {
+        final SignedJWT jwt;
+        try {
+            jwt = SignedJWT.parse(token);
+        } catch (final ParseException e) {
+            handler.handle(Future.failedFuture(new CredentialsException("Cannot parse the token: " + e.getMessage())));
+            return;
+        }
+        final String keyId = jwt.getHeader().getKeyID();
+        final JWKSet current = keys.current();
+        if (current != null && (keyId == null || current.getKeyByKeyId(keyId) != null)) {
+            handler.handle(verify(jwt, current));
+        } else {
+            keys.getKeys(keyId, fetched -> handler.handle(fetched.succeeded()
+                    ? verify(jwt, fetched.result()) : Future.failedFuture(fetched.cause())));
+        }
+    }
+
+    /**
+     * @return the client name of the profiles built by this authenticator
+     */
+    public String getClientName() {
+        return options.getClientName();
+    }
+
+    @Override
+    public void close() {
+        vertx.cancelTimer(timerId);
+    }
+
+    private AsyncResult<CommonProfile> verify(final SignedJWT jwt, final JWKSet keySet) {
+        try {
+            final KeyVerifier key = verifier(keySet, jwt.getHeader().getKeyID());
+            if (key == null) {
+                throw new CredentialsException("Unknown signing key: " + jwt.getHeader().getKeyID());
+            }
+            if (key.algorithm != null && !key.algorithm.equals(jwt.getHeader().getAlgorithm())) {
+                throw new CredentialsException("Token signed with " + jwt.getHeader().getAlgorithm()
+                        + " by a key for " + key.algorithm);
+            }
+            if (!key.verifier.supportedJWSAlgorithms().contains(jwt.getHeader().getAlgorithm())
+                    || !jwt.verify(key.verifier)) {
+                throw new CredentialsException("Invalid token signature");
+            }
+            final JWTClaimsSet claims = jwt.getJWTClaimsSet();
+            claimsVerifier.verify(claims, null);
+            return Future.succeededFuture(profile(claims));
+        } catch (final CredentialsException e) {
+            return Future.failedFuture(e);
+        } catch (final Exception e) {
+            return Future.failedFuture(new CredentialsException("Invalid token: " + e.getMessage()));
+        }
+    }
+
+    private KeyVerifier verifier(final JWKSet keySet, final String keyId) throws JOSEException {
+        Verifiers cached = verifiers;
+        if (cached.keySet != keySet) {
+            // The key set was refreshed, its keys may have changed
+            cached = new Verifiers(keySet);
+            verifiers = cached;
+        }
+        final String id = keyId != null ? keyId : "";
+        KeyVerifier verifier = cached.byKeyId.get(id);
+        if (verifier == null) {
+            final JWK key = keyId != null ? keySet.getKeyByKeyId(keyId)
+                    : keySet.getKeys().size() == 1 ? keySet.getKeys().get(0) : null;
+            if (key == null) {
+                return null;
+            }
+            if (key.getKeyUse() != null && !KeyUse.SIGNATURE.equals(key.getKeyUse())) {
+                throw new CredentialsException("Key " + key.getKeyID() + " is not a signing key");
+            }
+            if (key instanceof RSAKey) {
+                verifier = new KeyVerifier(key.getAlgorithm(), new RSASSAVerifier((RSAKey) key));
+            } else if (key instanceof ECKey) {
+                verifier = new KeyVerifier(key.getAlgorithm(), new ECDSAVerifier((ECKey) key));
+            } else {
+                return null;
+            }
+            cached.byKeyId.put(id, verifier);
+        }
+        return verifier;
+    }
+
+    private CommonProfile profile(final JWTClaimsSet claims) {
+        final CommonProfile profile = new CommonProfile();
+        profile.setId(claims.getSubject());
+        profile.setClientName(options.getClientName());
+        for (final Map.Entry<String, Object> claim : claims.getClaims().entrySet()) {
+            if (!"sub".equals(claim.getKey())) {
+                profile.addAttribute(claim.getKey(), claim.getValue());
+            }
+        }
+        if (options.getRolesClaim() != null) {
+            final Object roles = claims.getClaim(options.getRolesClaim());
+            if (roles instanceof Collection) {
+                ((Collection<?>) roles).forEach(role -> profile.addRole(String.valueOf(role)));
+            } else if (roles instanceof String) {
+                profile.addRole((String) roles);
+            }
+        }
+        return profile;
+    }
+
+    private static final class Verifiers {
+
+        private final JWKSet keySet;
+        private final Map<String, KeyVerifier> byKeyId = new ConcurrentHashMap<>();
+
+        private Verifiers(final JWKSet keySet) {
+            this.keySet = keySet;
+        }
+    }
+
+    private static final class KeyVerifier {
+
+        // The algorithm the key is intended for, if stated
+        private final Algorithm algorithm;
+        private final JWSVerifier verifier;
+
+        private KeyVerifier(final Algorithm algorithm, final JWSVerifier verifier) {
+            this.algorithm = algorithm;
+            this.verifier = verifier;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.pac4j.vertx.matching;
+
+import io.vertx.ext.web.Session;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.matching.matcher.csrf.CsrfTokenGenerator;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.VertxWebContext;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * CSRF token generator reusing the token of a session until it is older than the rotation interval, so that the
+ * session is only written when the token rotates. The issue time of a token is appended to it, so that rotating it
+ * takes a single session write. It is used through a
+ * {@link org.pac4j.core.matching.matcher.csrf.CsrfTokenGeneratorMatcher} added to the configuration under a name of
+ * its own, as the built-in "csrfToken" matcher always uses the default pac4j generator.
+ *
+ * Tokens are drawn from a {@link SecureRandom} per thread, so that the event loops and worker threads generating them
+ * never contend for a shared instance. A request bearing a token generated before a rotation is rejected by the
+ * {@link org.pac4j.core.authorization.authorizer.CsrfAuthorizer}, so the interval should exceed the time pages are
+ * expected to stay open.
+ */
+public class VertxCsrfTokenGenerator implements CsrfTokenGenerator {
+
+    private static final int TOKEN_BYTES = 16;
+    // Not part of the URL-safe Base64 alphabet of the random part
+    private static final char ISSUED_AT_SEPARATOR = '.';
+    private static final long DEFAULT_ROTATION_INTERVAL = 4 * 60 * 60 * 1000;
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final long rotationInterval;
+
+    public VertxCsrfTokenGenerator() {
+        this(DEFAULT_ROTATION_INTERVAL);
+    }
+
+    /**
+     * @param rotationInterval time in milliseconds after which the token of a session is replaced, zero or negative
+     *                         for a token kept for the whole session
+     */
+    public VertxCsrfTokenGenerator(final long rotationInterval) {
+        this.rotationInterval = rotationInterval;
+    }
+
+    @Override
+    public String get(final WebContext context) {
+        final Optional<String> token = currentToken(context);
+        if (token.isPresent()) {
+            return token.get();
+        }
+        final Session session = context instanceof VertxWebContext ? ((VertxWebContext) context).getVertxSession() : null;
+        if (session == null) {
+            // No other request can share the token
+            return rotate(context);
+        }
+        // Concurrent requests of a session rotating its token at the same time must agree on the new one
+        synchronized (session) {
+            final Optional<String> rotated = currentToken(context);
+            return rotated.isPresent() ? rotated.get() : rotate(context);
+        }
+    }
+
+    private static String rotate(final WebContext context) {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.get().nextBytes(bytes);
+        final String newToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes)
+                + ISSUED_AT_SEPARATOR + System.currentTimeMillis();
+        context.getSessionStore().set(context, Pac4jConstants.CSRF_TOKEN, newToken);
+        return newToken;
+    }
+
+    /**
+     * @return the token of the session, empty if there is none or if it is due to rotate
+     */
+    private Optional<String> currentToken(final WebContext context) {
+        final SessionStore<WebContext> sessionStore = context.getSessionStore();
+        final Optional<Object> token = sessionStore.get(context, Pac4jConstants.CSRF_TOKEN);
+        if (!token.isPresent() || !(token.get() instanceof String)) {
+            return Optional.empty();
+        }
+        final String value = (String) token.get();
+        if (rotationInterval > 0) {
+            // Tokens set by another generator have no issue time and are replaced
+            final long issuedAt = issuedAt(value);
+            if (issuedAt < 0 || System.currentTimeMillis() - issuedAt >= rotationInterval) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(value);
+    }
+
+    /**
+     * @return the issue time of a token, -1 if it has none
+     */
+    private static long issuedAt(final String token) {
+        final int separator = token.lastIndexOf(ISSUED_AT_SEPARATOR);
+        if (separator < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(separator + 1));
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package org.pac4j.vertx.oidc;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.AuthorizationCode;
+import com.nimbusds.oauth2.sdk.AuthorizationCodeGrant;
+import com.nimbusds.oauth2.sdk.TokenErrorResponse;
+import com.nimbusds.oauth2.sdk.TokenRequest;
+import com.nimbusds.oauth2.sdk.TokenResponse;
+import com.nimbusds.oauth2.sdk.auth.ClientAuthentication;
+import com.nimbusds.oauth2.sdk.auth.Secret;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import com.nimbusds.oauth2.sdk.id.ClientID;
+import com.nimbusds.oauth2.sdk.pkce.CodeVerifier;
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.openid.connect.sdk.Nonce;
+import com.nimbusds.openid.connect.sdk.OIDCTokenResponse;
+import com.nimbusds.openid.connect.sdk.OIDCTokenResponseParser;
+import com.nimbusds.openid.connect.sdk.UserInfoErrorResponse;
+import com.nimbusds.openid.connect.sdk.UserInfoRequest;
+import com.nimbusds.openid.connect.sdk.UserInfoResponse;
+import com.nimbusds.openid.connect.sdk.UserInfoSuccessResponse;
+import com.nimbusds.openid.connect.sdk.claims.IDTokenClaimsSet;
+import com.nimbusds.openid.connect.sdk.op.OIDCProviderMetadata;
+import com.nimbusds.openid.connect.sdk.token.OIDCTokens;
+import com.nimbusds.openid.connect.sdk.validators.IDTokenValidator;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.pac4j.core.authorization.generator.AuthorizationGenerator;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.client.IndirectClient;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.engine.DefaultCallbackLogic;
+import org.pac4j.core.exception.CredentialsException;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.http.adapter.HttpActionAdapter;
+import org.pac4j.core.profile.AttributeLocation;
+import org.pac4j.core.profile.ProfileHelper;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.profile.definition.ProfileDefinition;
+import org.pac4j.core.util.CommonHelper;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.oidc.client.OidcClient;
+import org.pac4j.oidc.config.OidcConfiguration;
+import org.pac4j.oidc.credentials.OidcCredentials;
+import org.pac4j.oidc.credentials.authenticator.OidcAuthenticator;
+import org.pac4j.oidc.profile.OidcProfile;
+import org.pac4j.oidc.profile.creator.OidcProfileCreator;
+import org.pac4j.vertx.VertxWebContext;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Callback logic completing the authentication of OpenID Connect clients on the event loop. The code exchange, the
+ * retrieval of the provider keys and the user info request go through a non-blocking Vert.x {@link HttpClient},
+ * otherwise the steps are those of the pac4j {@link DefaultCallbackLogic}, {@link OidcAuthenticator} and
+ * {@link OidcProfileCreator}.
+ *
+ * The blocking discovery of the provider metadata still happens once, on a worker thread, when a client is first
+ * used. The session identifier of the provider is also recorded on a worker thread, the store of the logout handler
+ * possibly blocking. Clients with a customised authenticator or profile creator are completed by the blocking logic.
+ */
+public class VertxAsyncOidcCallbackLogic extends DefaultCallbackLogic<Void, VertxWebContext> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VertxAsyncOidcCallbackLogic.class);
+
+    private final Vertx vertx;
+    private final VertxNimbusHttpClient httpClient;
+    private final Map<OidcClient<?>, ClientSupport> supports = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public VertxAsyncOidcCallbackLogic(final Vertx vertx, final HttpClient httpClient) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        this.vertx = vertx;
+        this.httpClient = new VertxNimbusHttpClient(httpClient);
+    }
+
+    /**
+     * @param context the web context of the callback
+     * @param config the security configuration
+     * @param defaultClient the client to use when the callback does not name one
+     * @return the OpenID Connect client the callback is for, null if it is for another kind of client or if the
+     *         clients are not all initialised yet, the blocking logic initialising them on a worker thread
+     */
+    public OidcClient<?> findClient(final VertxWebContext context, final Config config, final String defaultClient) {
+        final Clients clients = config.getClients();
+        if (clients == null) {
+            return null;
+        }
+        // Looking for the client initialises the indirect clients, which fetches the provider metadata
+        for (final Client<? extends Credentials> client : clients.findAllClients()) {
+            if (client instanceof IndirectClient && !((IndirectClient<?>) client).isInitialized()) {
+                return null;
+            }
+        }
+        final List<Client<? extends Credentials>> found = getClientFinder().find(clients, context, defaultClient);
+        return found.size() == 1 && found.get(0) instanceof OidcClient ? (OidcClient<?>) found.get(0) : null;
+    }
+
+    /**
+     * Complete the callback for an OpenID Connect client.
+     *
+     * @param context the web context of the callback
+     * @param config the security configuration
+     * @param httpActionAdapter the adapter of the resulting action
+     * @param defaultUrl the url to redirect to when none was requested originally
+     * @param saveInSession whether the profile is saved in the session
+     * @param multiProfile whether several profiles are kept
+     * @param renewSession whether the session is renewed
+     * @param client the client found by {@link #findClient}
+     * @param timeout deadline in milliseconds after which the handler is failed with a {@link TimeoutException} and
+     *                no action is adapted anymore, zero or negative for no deadline
+     * @param handler the handler notified once the action has been adapted
+     */
+    public void perform(final VertxWebContext context, final Config config,
+                        final HttpActionAdapter<Void, VertxWebContext> httpActionAdapter,
+                        final String defaultUrl, final Boolean saveInSession, final Boolean multiProfile,
+                        final Boolean renewSession, final OidcClient<?> client, final long timeout,
+                        final Handler<AsyncResult<Void>> handler) {
+        final String url = defaultUrl != null ? defaultUrl : Pac4jConstants.DEFAULT_URL_VALUE;
+        final boolean save = saveInSession == null || saveInSession;
+        final boolean multi = multiProfile != null && multiProfile;
+        final boolean renew = renewSession == null || renewSession;
+
+        final Deadline deadline = new Deadline();
+        final long timerId = timeout > 0 ? vertx.setTimer(timeout, id -> {
+            if (deadline.expire()) {
+                handler.handle(Future.failedFuture(new TimeoutException("Callback of client " + client.getName()
+                        + " not completed within " + timeout + " ms")));
+            }
+        }) : -1;
+        // Whatever completes first, the logic or the timer, is the only one to write the response
+        final Handler<AsyncResult<Void>> completion = result -> {
+            if (deadline.claim()) {
+                if (timerId >= 0) {
+                    vertx.cancelTimer(timerId);
+                }
+                handler.handle(result);
+            }
+        };
+
+        support(client).onComplete(supported -> {
+            if (supported.succeeded() && !supported.result().isSupported()) {
+                final HttpActionAdapter<Void, VertxWebContext> adapter =
+                        (action, ctx) -> deadline.claim() ? httpActionAdapter.adapt(action, ctx) : null;
+                vertx.<Void>executeBlocking(future -> future.complete(super.perform(context, config, adapter,
+                        defaultUrl, saveInSession, multiProfile, renewSession, client.getName())), false, completion);
+                return;
+            }
+            Future<Optional<UserProfile>> authenticated;
+            try {
+                authenticated = supported.succeeded()
+                        ? authenticate(supported.result(), context) : Future.failedFuture(supported.cause());
+            } catch (final RuntimeException e) {
+                authenticated = Future.failedFuture(e);
+            }
+            authenticated.onComplete(profile -> {
+                if (!deadline.claim()) {
+                    LOG.debug("Callback of client " + client.getName() + " completed after its deadline");
+                    return;
+                }
+                try {
+                    try {
+                        if (profile.failed()) {
+                            throw profile.cause() instanceof Exception
+                                    ? (Exception) profile.cause() : new TechnicalException(profile.cause());
+                        }
+                        LOG.debug("profile: " + profile.result());
+                        if (profile.result().isPresent()) {
+                            saveUserProfile(context, config, profile.result().get(), save, multi, renew);
+                        }
+                        httpActionAdapter.adapt(redirectToOriginallyRequestedUrl(context, url), context);
+                    } catch (final Exception e) {
+                        handleException(e, httpActionAdapter, context);
+                    }
+                    completion.handle(Future.succeededFuture());
+                } catch (final RuntimeException e) {
+                    completion.handle(Future.failedFuture(e));
+                }
+            });
+        });
+    }
+
+    private Future<ClientSupport> support(final OidcClient<?> client) {
+        final ClientSupport support = supports.get(client);
+        if (support != null) {
+            return Future.succeededFuture(support);
+        }
+        final Promise<ClientSupport> promise = Promise.promise();
+        // Initialising the client fetches the provider metadata
+        vertx.<ClientSupport>executeBlocking(future -> {
+            client.init();
+            future.complete(new ClientSupport(client));
+        }, false, initialised -> {
+            if (initialised.succeeded()) {
+                supports.put(client, initialised.result());
+            }
+            promise.handle(initialised);
+        });
+        return promise.future();
+    }
+
+    private Future<Optional<UserProfile>> authenticate(final ClientSupport support, final VertxWebContext context) {
+        final OidcClient<?> client = support.client;
+        Optional<OidcCredentials> credentials;
+        try {
+            credentials = (Optional<OidcCredentials>) client.getCredentialsExtractor().extract(context);
+        } catch (final CredentialsException e) {
+            LOG.info("Failed to retrieve or validate credentials: " + e.getMessage());
+            credentials = Optional.empty();
+        }
+        final SessionStore<VertxWebContext> sessionStore = context.getSessionStore();
+        final String attempted = client.getName() + IndirectClient.ATTEMPTED_AUTHENTICATION_SUFFIX;
+        if (!credentials.isPresent()) {
+            sessionStore.set(context, attempted, "true");
+            return Future.succeededFuture(Optional.empty());
+        } else if (sessionStore.get(context, attempted).isPresent()) {
+            sessionStore.set(context, attempted, "");
+        }
+
+        return exchangeCode(support, credentials.get(), context)
+                .compose(validated -> createProfile(support, validated, context))
+                .map(profile -> {
+                    Optional<UserProfile> generated = Optional.of(profile);
+                    profile.setClientName(client.getName());
+                    for (final AuthorizationGenerator generator : client.getAuthorizationGenerators()) {
+                        if (generated.isPresent()) {
+                            generated = generator.generate(context, generated.get());
+                        }
+                    }
+                    return generated;
+                });
+    }
+
+    private Future<OidcCredentials> exchangeCode(final ClientSupport support, final OidcCredentials credentials,
+                                                 final VertxWebContext context) {
+        final AuthorizationCode code = credentials.getCode();
+        if (code == null) {
+            return Future.succeededFuture(credentials);
+        }
+        final OidcClient<?> client = support.client;
+        final HTTPRequest request;
+        try {
+            final CodeVerifier verifier = (CodeVerifier) support.configuration.getValueRetriever()
+                    .retrieve(client.getCodeVerifierSessionAttributeName(), client, context).orElse(null);
+            final AuthorizationCodeGrant grant = new AuthorizationCodeGrant(code,
+                    new URI(client.computeFinalCallbackUrl(context)), verifier);
+            final URI tokenEndpoint = support.metadata.getTokenEndpointURI();
+            final TokenRequest tokenRequest = support.clientAuthentication != null
+                    ? new TokenRequest(tokenEndpoint, support.clientAuthentication, grant)
+                    : new TokenRequest(tokenEndpoint, new ClientID(support.configuration.getClientId()), grant);
+            request = tokenRequest.toHTTPRequest();
+            support.configuration.configureHttpRequest(request);
+        } catch (final Exception e) {
+            return Future.failedFuture(new TechnicalException(e));
+        }
+
+        return httpClient.send(request).map(response -> {
+            final TokenResponse tokenResponse = parseTokenResponse(response);
+            if (!tokenResponse.indicatesSuccess()) {
+                throw new TechnicalException("Bad token response, error="
+                        + ((TokenErrorResponse) tokenResponse).getErrorObject());
+            }
+            final OIDCTokens tokens = ((OIDCTokenResponse) tokenResponse).getOIDCTokens();
+            credentials.setAccessToken(tokens.getAccessToken());
+            credentials.setRefreshToken(tokens.getRefreshToken());
+            if (tokens.getIDToken() != null) {
+                credentials.setIdToken(tokens.getIDToken());
+            }
+            return credentials;
+        });
+    }
+
+    private Future<OidcProfile> createProfile(final ClientSupport support, final OidcCredentials credentials,
+                                              final VertxWebContext context) {
+        final JWT idToken = credentials.getIdToken();
+        if (idToken == null) {
+            return Future.failedFuture(new TechnicalException("No ID token returned for client " + support.client.getName()));
+        }
+        final Promise<Void> keys = Promise.promise();
+        if (support.keys != null) {
+            final String keyId = idToken instanceof SignedJWT ? ((SignedJWT) idToken).getHeader().getKeyID() : null;
+            support.keys.getKeys(keyId, fetched -> keys.handle(fetched.mapEmpty()));
+        } else {
+            keys.complete();
+        }
+
+        return keys.future().compose(v -> {
+            final AccessToken accessToken = credentials.getAccessToken();
+            final OidcProfile profile = (OidcProfile) support.profileDefinition.newProfile();
+            if (accessToken != null) {
+                profile.setAccessToken(accessToken);
+            }
+            profile.setIdTokenString(idToken.getParsedString());
+            if (credentials.getRefreshToken() != null && !credentials.getRefreshToken().getValue().isEmpty()) {
+                profile.setRefreshToken(credentials.getRefreshToken());
+            }
+
+            final Nonce nonce = support.configuration.isUseNonce()
+                    ? new Nonce((String) context.getSessionStore()
+                        .get(context, support.client.getNonceSessionAttributeName()).orElse(null))
+                    : null;
+            final IDTokenClaimsSet claimsSet = support.validate(idToken, nonce);
+            profile.setId(ProfileHelper.sanitizeIdentifier(profile, claimsSet.getSubject()));
+
+            return fetchUserInfo(support, accessToken, profile).compose(u -> {
+                completeProfile(support, profile, idToken);
+                return recordSession(support, claimsSet, context).map(profile);
+            });
+        });
+    }
+
+    private Future<Void> fetchUserInfo(final ClientSupport support, final AccessToken accessToken,
+                                       final OidcProfile profile) {
+        final URI userInfoEndpoint = support.metadata.getUserInfoEndpointURI();
+        if (userInfoEndpoint == null || accessToken == null) {
+            return Future.succeededFuture();
+        }
+        final HTTPRequest request = new UserInfoRequest(userInfoEndpoint, (BearerAccessToken) accessToken).toHTTPRequest();
+        support.configuration.configureHttpRequest(request);
+        return httpClient.send(request).map(response -> {
+            final UserInfoResponse userInfoResponse = parseUserInfoResponse(response);
+            if (userInfoResponse instanceof UserInfoErrorResponse) {
+                LOG.error("Bad User Info response, error=" + ((UserInfoErrorResponse) userInfoResponse).getErrorObject());
+            } else {
+                final JWTClaimsSet userInfoClaims = userInfoClaims((UserInfoSuccessResponse) userInfoResponse);
+                support.profileDefinition.convertAndAdd(profile, userInfoClaims.getClaims(), null);
+            }
+            return null;
+        });
+    }
+
+    private void completeProfile(final ClientSupport support, final OidcProfile profile, final JWT idToken) {
+        final Map<String, Object> idTokenClaims;
+        try {
+            idTokenClaims = idToken.getJWTClaimsSet().getClaims();
+        } catch (final Exception e) {
+            throw new TechnicalException(e);
+        }
+        // Add the attributes of the ID token which do not already exist
+        for (final Map.Entry<String, Object> entry : idTokenClaims.entrySet()) {
+            if (!"sub".equals(entry.getKey()) && profile.getAttribute(entry.getKey()) == null) {
+                support.profileDefinition.convertAndAdd(profile, AttributeLocation.PROFILE_ATTRIBUTE, entry.getKey(),
+                        entry.getValue());
+            }
+        }
+        profile.setTokenExpirationAdvance(support.configuration.getTokenExpirationAdvance());
+    }
+
+    private Future<Void> recordSession(final ClientSupport support, final IDTokenClaimsSet claimsSet,
+                                       final VertxWebContext context) {
+        final String sid = (String) claimsSet.getClaim(Pac4jConstants.OIDC_CLAIM_SESSIONID);
+        if (CommonHelper.isBlank(sid)) {
+            return Future.succeededFuture();
+        }
+        final Promise<Void> promise = Promise.promise();
+        // The logout handler writes to its store, which may block
+        vertx.<Void>executeBlocking(future -> {
+            support.configuration.findLogoutHandler().recordSession(context, sid);
+            future.complete();
+        }, false, promise);
+        return promise.future();
+    }
+
+    private static TokenResponse parseTokenResponse(final HTTPResponse response) {
+        try {
+            return OIDCTokenResponseParser.parse(response);
+        } catch (final Exception e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private static UserInfoResponse parseUserInfoResponse(final HTTPResponse response) {
+        try {
+            return UserInfoResponse.parse(response);
+        } catch (final Exception e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private static JWTClaimsSet userInfoClaims(final UserInfoSuccessResponse response) {
+        try {
+            return response.getUserInfo() != null
+                    ? response.getUserInfo().toJWTClaimsSet() : response.getUserInfoJWT().getJWTClaimsSet();
+        } catch (final Exception e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    /**
+     * Arbitrates between the completion of a callback and its deadline, the first one claiming the response.
+     */
+    private static final class Deadline {
+
+        private static final int PENDING = 0;
+        private static final int COMPLETED = 1;
+        private static final int EXPIRED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        /**
+         * @return true if the logic owns the response, possibly since an earlier call
+         */
+        private boolean claim() {
+            return state.compareAndSet(PENDING, COMPLETED) || state.get() == COMPLETED;
+        }
+
+        /**
+         * @return true if the deadline expired before the logic claimed the response
+         */
+        private boolean expire() {
+            return state.compareAndSet(PENDING, EXPIRED);
+        }
+    }
+
+    /**
+     * What is needed to complete the callback of one client, built once the client is initialised.
+     */
+    private final class ClientSupport {
+
+        private final OidcClient<?> client;
+        private final OidcConfiguration configuration;
+        private final OIDCProviderMetadata metadata;
+        private final ProfileDefinition<?> profileDefinition;
+        private final ClientAuthentication clientAuthentication;
+        private final VertxJwkSetCache keys;
+        private final List<IDTokenValidator> validators = new ArrayList<>();
+
+        private ClientSupport(final OidcClient<?> client) {
+            this.client = client;
+            this.configuration = client.getConfiguration();
+            this.metadata = configuration.findProviderMetadata();
+            if (client.getAuthenticator() instanceof OidcAuthenticator
+                    && client.getProfileCreator() != null
+                    && client.getProfileCreator().getClass() == OidcProfileCreator.class) {
+                this.profileDefinition = ((OidcProfileCreator<?>) client.getProfileCreator()).getProfileDefinition();
+                this.clientAuthentication = ((OidcAuthenticator) client.getAuthenticator()).getClientAuthentication();
+            } else {
+                this.profileDefinition = null;
+                this.clientAuthentication = null;
+            }
+            try {
+                this.keys = metadata.getJWKSetURI() != null
+                        ? new VertxJwkSetCache(vertx, httpClient, metadata.getJWKSetURI().toURL(), -1, 30 * 1000)
+                        : null;
+            } catch (final MalformedURLException e) {
+                throw new TechnicalException(e);
+            }
+
+            // Same validators as the pac4j TokenValidator, the keys being retrieved beforehand
+            final List<JWSAlgorithm> metadataAlgorithms = metadata.getIDTokenJWSAlgs();
+            CommonHelper.assertTrue(CommonHelper.isNotEmpty(metadataAlgorithms),
+                    "There must at least one JWS algorithm supported on the OpenID Connect provider side");
+            final JWSAlgorithm preferred = configuration.getPreferredJwsAlgorithm();
+            final List<JWSAlgorithm> algorithms = metadataAlgorithms.contains(preferred)
+                    ? Collections.singletonList(preferred) : metadataAlgorithms;
+            final ClientID clientId = new ClientID(configuration.getClientId());
+            for (final JWSAlgorithm algorithm : algorithms) {
+                final IDTokenValidator validator;
+                if ("none".equals(algorithm.getName())) {
+                    validator = new IDTokenValidator(metadata.getIssuer(), clientId);
+                } else if (CommonHelper.isNotBlank(configuration.getSecret())
+                        && JWSAlgorithm.Family.HMAC_SHA.contains(algorithm)) {
+                    validator = new IDTokenValidator(metadata.getIssuer(), clientId, algorithm,
+                            new Secret(configuration.getSecret()));
+                } else {
+                    CommonHelper.assertNotNull("jwksUri", keys);
+                    validator = new IDTokenValidator(metadata.getIssuer(), clientId,
+                            new JWSVerificationKeySelector<>(algorithm, keys.source()), null);
+                }
+                validator.setMaxClockSkew(configuration.getMaxClockSkew());
+                validators.add(validator);
+            }
+        }
+
+        private boolean isSupported() {
+            return profileDefinition != null;
+        }
+
+        private IDTokenClaimsSet validate(final JWT idToken, final Nonce nonce) {
+            Exception failure = null;
+            for (final IDTokenValidator validator : validators) {
+                try {
+                    return validator.validate(idToken, nonce);
+                } catch (final BadJOSEException | JOSEException e) {
+                    failure = e;
+                }
+            }
+            throw new TechnicalException(failure);
+        }
+    }
+}
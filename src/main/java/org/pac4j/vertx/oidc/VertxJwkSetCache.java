@@ -0,0 +1,143 @@
+package org.pac4j.vertx.oidc;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.util.CommonHelper;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON Web Key set of an identity provider, fetched without blocking and cached. The set is fetched again once its
+ * time to live has elapsed, or when a key it does not hold is looked for, at most once per refresh interval.
+ * Concurrent lookups needing a fetch share the same one.
+ */
+public class VertxJwkSetCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VertxJwkSetCache.class);
+
+    private final Vertx vertx;
+    private final VertxNimbusHttpClient httpClient;
+    private final URL url;
+    private final long timeToLive;
+    private final long minRefreshInterval;
+
+    private volatile JWKSet keys;
+    private volatile long fetchedAt;
+    private volatile long attemptedAt;
+    private List<Waiter> waiters;
+
+    public VertxJwkSetCache(final Vertx vertx, final VertxNimbusHttpClient httpClient, final URL url,
+                            final long timeToLive, final long minRefreshInterval) {
+        CommonHelper.assertNotNull("vertx", vertx);
+        CommonHelper.assertNotNull("httpClient", httpClient);
+        CommonHelper.assertNotNull("url", url);
+        this.vertx = vertx;
+        this.httpClient = httpClient;
+        this.url = url;
+        this.timeToLive = timeToLive;
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    /**
+     * @return the key set last fetched, null if none was fetched yet
+     */
+    public JWKSet current() {
+        return keys;
+    }
+
+    /**
+     * @return a key source selecting from the key set last fetched, for use by the Nimbus verifiers
+     */
+    public JWKSource<SecurityContext> source() {
+        return (selector, context) -> {
+            final JWKSet current = keys;
+            return current != null ? selector.select(current) : new ArrayList<>();
+        };
+    }
+
+    /**
+     * Get the key set, fetching it if it was not fetched yet, has expired, or does not hold the given key.
+     *
+     * @param keyId the id of the key needed, null if any key will do
+     * @param handler the handler receiving the key set, called on the context of the caller
+     */
+    public void getKeys(final String keyId, final Handler<AsyncResult<JWKSet>> handler) {
+        final JWKSet current = keys;
+        final long now = System.currentTimeMillis();
+        final boolean expired = timeToLive >= 0 && now - fetchedAt > timeToLive;
+        final boolean missing = keyId != null && current != null && current.getKeyByKeyId(keyId) == null;
+        if (current != null && ((!expired && !missing) || now - attemptedAt < minRefreshInterval)) {
+            handler.handle(Future.succeededFuture(current));
+            return;
+        }
+
+        final boolean fetch;
+        synchronized (this) {
+            fetch = waiters == null;
+            if (fetch) {
+                waiters = new ArrayList<>();
+            }
+            waiters.add(new Waiter(vertx.getOrCreateContext(), handler));
+        }
+        if (fetch) {
+            attemptedAt = now;
+            httpClient.send(new HTTPRequest(HTTPRequest.Method.GET, url), response -> {
+                AsyncResult<JWKSet> result;
+                try {
+                    if (response.failed()) {
+                        throw new TechnicalException(response.cause());
+                    }
+                    response.result().ensureStatusCode(200);
+                    final JWKSet fetched = JWKSet.parse(response.result().getContent());
+                    keys = fetched;
+                    fetchedAt = System.currentTimeMillis();
+                    result = Future.succeededFuture(fetched);
+                } catch (final Exception e) {
+                    LOG.warn("Unable to fetch the keys from " + url + ": " + e.getMessage());
+                    // Keep using the keys already known, if any
+                    result = current != null ? Future.succeededFuture(current) : Future.failedFuture(e);
+                }
+                final List<Waiter> done;
+                synchronized (this) {
+                    done = waiters;
+                    waiters = null;
+                }
+                final AsyncResult<JWKSet> outcome = result;
+                done.forEach(waiter -> waiter.context.runOnContext(v -> waiter.handler.handle(outcome)));
+            });
+        }
+    }
+
+    /**
+     * @param keyId the id of a key
+     * @return the key of that id in the key set last fetched, if any
+     */
+    public JWK getKey(final String keyId) {
+        final JWKSet current = keys;
+        return current != null ? current.getKeyByKeyId(keyId) : null;
+    }
+
+    private static final class Waiter {
+
+        private final Context context;
+        private final Handler<AsyncResult<JWKSet>> handler;
+
+        private Waiter(final Context context, final Handler<AsyncResult<JWKSet>> handler) {
+            this.context = context;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.pac4j.vertx.oidc;
+
+import com.nimbusds.oauth2.sdk.http.HTTPRequest;
+import com.nimbusds.oauth2.sdk.http.HTTPResponse;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import org.pac4j.core.util.CommonHelper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends the HTTP requests built by the Nimbus OAuth 2.0 / OpenID Connect SDK through a non-blocking Vert.x
+ * {@link HttpClient}, whose connection pool keeps the connections to the identity provider alive between requests.
+ */
+public class VertxNimbusHttpClient {
+
+    private final HttpClient httpClient;
+
+    public VertxNimbusHttpClient(final HttpClient httpClient) {
+        CommonHelper.assertNotNull("httpClient", httpClient);
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Send a request, the handler being called on the context of the caller.
+     *
+     * @param request the request to send
+     * @param handler the handler receiving the response
+     */
+    public void send(final HTTPRequest request, final Handler<AsyncResult<HTTPResponse>> handler) {
+        final Promise<HTTPResponse> promise = Promise.promise();
+        promise.future().onComplete(handler);
+
+        final HttpMethod method = HttpMethod.valueOf(request.getMethod().name());
+        final boolean queryInBody = method == HttpMethod.POST || method == HttpMethod.PUT;
+        final HttpClientRequest clientRequest = httpClient.requestAbs(method, url(request, !queryInBody));
+        for (final Map.Entry<String, List<String>> header : ((Map<String, List<String>>) request.getHeaderMap()).entrySet()) {
+            clientRequest.putHeader(header.getKey(), header.getValue());
+        }
+        final long timeout = (long) request.getConnectTimeout() + request.getReadTimeout();
+        if (timeout > 0) {
+            clientRequest.setTimeout(timeout);
+        }
+        clientRequest.exceptionHandler(promise::tryFail);
+        clientRequest.handler(response -> {
+            response.exceptionHandler(promise::tryFail);
+            response.bodyHandler(body -> {
+                try {
+                    final HTTPResponse httpResponse = new HTTPResponse(response.statusCode());
+                    httpResponse.setStatusMessage(response.statusMessage());
+                    for (final String name : response.headers().names()) {
+                        httpResponse.setHeader(name, response.headers().getAll(name).toArray(new String[0]));
+                    }
+                    final String contentType = response.getHeader(HttpHeaders.CONTENT_TYPE);
+                    if (contentType != null) {
+                        httpResponse.setContentType(contentType);
+                    }
+                    if (body.length() > 0) {
+                        httpResponse.setContent(body.toString(StandardCharsets.UTF_8));
+                    }
+                    promise.tryComplete(httpResponse);
+                } catch (final Exception e) {
+                    promise.tryFail(e);
+                }
+            });
+        });
+
+        if (queryInBody && request.getQuery() != null) {
+            clientRequest.end(request.getQuery());
+        } else {
+            clientRequest.end();
+        }
+    }
+
+    /**
+     * Send a request.
+     *
+     * @param request the request to send
+     * @return the future response
+     */
+    public Future<HTTPResponse> send(final HTTPRequest request) {
+        final Promise<HTTPResponse> promise = Promise.promise();
+        send(request, promise);
+        return promise.future();
+    }
+
+    private static String url(final HTTPRequest request, final boolean withQuery) {
+        final String url = request.getURL().toString();
+        if (!withQuery || CommonHelper.isBlank(request.getQuery())) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + request.getQuery();
+    }
+}
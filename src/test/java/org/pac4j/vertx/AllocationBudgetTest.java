@@ -0,0 +1,159 @@
+package org.pac4j.vertx;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.vertx.auth.Pac4jAuthProvider;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+import org.pac4j.vertx.handler.impl.SecurityHandler;
+import org.pac4j.vertx.handler.impl.SecurityHandlerOptions;
+
+/**
+ * Checks the bytes allocated per request by the web context and the security handler against the budgets checked in
+ * as allocation-budgets.properties, so that a change allocating more on these paths has to raise its budget.
+ */
+@RunWith(VertxUnitRunner.class)
+public class AllocationBudgetTest {
+
+    private static final int WARM_UP = 2000;
+    private static final int ITERATIONS = 5000;
+    private static final String RESOURCE = "/protected/resource?page=1&sort=name";
+    private static final String WORKER_THREADS = "vert.x-worker-thread";
+    private static final Logger LOG = LoggerFactory.getLogger(AllocationBudgetTest.class);
+
+    private Vertx vertx;
+    private HttpServer server;
+    private HttpClient client;
+    private SecurityHandler securityHandler;
+    private VertxSessionStore sessionStore;
+
+    @Before
+    public void setUp(final TestContext context) {
+        AllocationBudgets.assumeSupported();
+        vertx = Vertx.vertx();
+        final LocalSessionStore sessions = LocalSessionStore.create(vertx);
+        sessionStore = new VertxSessionStore(sessions);
+        securityHandler = new SecurityHandler(vertx, sessionStore, new Config(new SoakClient()),
+                new Pac4jAuthProvider(), new SecurityHandlerOptions().setClients(SoakClient.NAME));
+
+        final Router router = Router.router(vertx);
+        router.route().handler(SessionHandler.create(sessions));
+        router.post("/login").handler(rc -> {
+            final CommonProfile profile = new CommonProfile();
+            profile.setId("user");
+            profile.setClientName(SoakClient.NAME);
+            profile.addAttribute("email", "user@example.com");
+            new VertxProfileManager(new VertxWebContext(rc, sessionStore), sessionStore).save(true, profile, false);
+            rc.response().end();
+        });
+        router.get("/context").handler(rc -> rc.response().end(String.valueOf(
+                AllocationBudgets.measure(WARM_UP, ITERATIONS, () -> new VertxWebContext(rc, sessionStore)))));
+        router.get("/protected/*").handler(securityHandler);
+        router.get("/protected/resource").handler(rc -> rc.response().end());
+
+        client = vertx.createHttpClient();
+        server = vertx.createHttpServer().requestHandler(router);
+        server.listen(0, context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        if (vertx != null) {
+            vertx.close(context.asyncAssertSuccess());
+        }
+    }
+
+    @Test
+    public void webContextConstructionStaysWithinBudget(final TestContext context) {
+        final Async async = context.async();
+        request(HttpMethod.GET, "/context?page=1&sort=name", null).onComplete(context.asyncAssertSuccess(reply -> {
+            assertWithinBudget(context, "vertxWebContext.construction", Long.parseLong(reply.body));
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void authenticatedSecurityHandlerPathStaysWithinBudget(final TestContext context) {
+        final Async async = context.async();
+        request(HttpMethod.POST, "/login", null).compose(login -> requests(login.cookie, WARM_UP).compose(warm -> {
+            // The blocking work of the security handler is the only work given to the worker threads
+            final long allocatedBefore = AllocationBudgets.allocatedBytes(WORKER_THREADS);
+            return requests(login.cookie, ITERATIONS).map(measured ->
+                    (AllocationBudgets.allocatedBytes(WORKER_THREADS) - allocatedBefore) / ITERATIONS);
+        })).onComplete(context.asyncAssertSuccess(allocated -> {
+            assertWithinBudget(context, "securityHandler.authenticated", allocated);
+            async.complete();
+        }));
+    }
+
+    private static void assertWithinBudget(final TestContext context, final String path, final long allocated) {
+        final long budget = AllocationBudgets.budget(path);
+        LOG.info(path + " allocates " + allocated + " bytes, for a budget of " + budget);
+        context.assertTrue(allocated <= budget, path + " allocates " + allocated + " bytes, over its budget of "
+                + budget);
+    }
+
+    /**
+     * Request the protected resource a number of times, one request after the other.
+     */
+    private Future<Reply> requests(final String cookie, final int count) {
+        Future<Reply> requests = Future.succeededFuture();
+        for (int i = 0; i < count; i++) {
+            requests = requests.compose(previous -> request(HttpMethod.GET, RESOURCE, cookie)
+                    .compose(reply -> reply.status == 200 ? Future.succeededFuture(reply)
+                            : Future.failedFuture("Protected resource answered " + reply.status)));
+        }
+        return requests;
+    }
+
+    private Future<Reply> request(final HttpMethod method, final String uri, final String cookie) {
+        final Promise<Reply> promise = Promise.promise();
+        final HttpClientRequest request = client.request(method, server.actualPort(), "localhost", uri, response -> {
+            final String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+            final String responseCookie = setCookie != null ? setCookie.split(";", 2)[0] : cookie;
+            response.bodyHandler(body -> promise.complete(
+                    new Reply(response.statusCode(), responseCookie, body.toString())));
+            response.exceptionHandler(promise::tryFail);
+        });
+        request.exceptionHandler(promise::tryFail);
+        request.putHeader(HttpHeaders.ACCEPT, "text/html,application/xhtml+xml");
+        request.putHeader(HttpHeaders.USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64)");
+        if (cookie != null) {
+            request.putHeader(HttpHeaders.COOKIE, cookie);
+        }
+        request.end();
+        return promise.future();
+    }
+
+    private static final class Reply {
+
+        private final int status;
+        private final String cookie;
+        private final String body;
+
+        private Reply(final int status, final String cookie, final String body) {
+            this.status = status;
+            this.cookie = cookie;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.pac4j.vertx;
+
+import org.junit.Assume;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+
+/**
+ * Per-request allocation budgets of the hot paths, checked in as allocation-budgets.properties, and the measurement
+ * of the bytes allocated by a thread through the {@link ThreadMXBean} of the JVM.
+ */
+public final class AllocationBudgets {
+
+    private static final String BUDGETS = "/allocation-budgets.properties";
+    private static final Properties PROPERTIES = load();
+
+    private AllocationBudgets() {
+    }
+
+    /**
+     * @param name the name of the path
+     * @return the bytes a single execution of the path may allocate
+     */
+    public static long budget(final String name) {
+        final String budget = PROPERTIES.getProperty(name);
+        if (budget == null) {
+            throw new IllegalArgumentException("No allocation budget for " + name + " in " + BUDGETS);
+        }
+        return Long.parseLong(budget.trim());
+    }
+
+    /**
+     * Skip the test if the JVM does not count the bytes allocated by each thread.
+     */
+    public static void assumeSupported() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Thread allocation counting is not supported",
+                threads instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled());
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread
+     */
+    public static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @param threadNamePrefix the prefix of the names of the threads
+     * @return the bytes allocated so far by the live threads whose name starts with the prefix
+     */
+    public static long allocatedBytes(final String threadNamePrefix) {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = 0;
+        for (final ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith(threadNamePrefix)) {
+                allocated += Math.max(0, threads.getThreadAllocatedBytes(info.getThreadId()));
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Measure the bytes allocated by the current thread on each execution of a path, once warmed up.
+     *
+     * @param warmUp the executions made before measuring
+     * @param iterations the executions measured
+     * @param path the path
+     * @return the mean bytes allocated by an execution
+     */
+    public static long measure(final int warmUp, final int iterations, final Runnable path) {
+        for (int i = 0; i < warmUp; i++) {
+            path.run();
+        }
+        final long before = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            path.run();
+        }
+        return (allocatedBytes() - before) / iterations;
+    }
+
+    private static Properties load() {
+        final Properties properties = new Properties();
+        try (InputStream in = AllocationBudgets.class.getResourceAsStream(BUDGETS)) {
+            properties.load(in);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Cannot read " + BUDGETS, e);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,28 @@
+package org.pac4j.vertx;
+
+import org.pac4j.core.client.IndirectClient;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.exception.http.RedirectionActionHelper;
+
+import java.util.Optional;
+
+/**
+ * Indirect client of the tests, whose users are logged in by saving their profile in the session directly.
+ */
+public class SoakClient extends IndirectClient<Credentials> {
+
+    public static final String NAME = "SoakClient";
+
+    public SoakClient() {
+        setName(NAME);
+        setCallbackUrl("/callback");
+    }
+
+    @Override
+    protected void clientInit() {
+        defaultRedirectionActionBuilder(ctx ->
+                Optional.of(RedirectionActionHelper.buildRedirectUrlAction(ctx, "/login")));
+        defaultCredentialsExtractor(ctx -> Optional.empty());
+        defaultAuthenticator((credentials, ctx) -> { });
+    }
+}
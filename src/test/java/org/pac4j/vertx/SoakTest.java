@@ -0,0 +1,306 @@
+package org.pac4j.vertx;
+
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.Timeout;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.oidc.profile.OidcProfile;
+import org.pac4j.vertx.auth.Pac4jAuthProvider;
+import org.pac4j.vertx.auth.TokenRefreshOptions;
+import org.pac4j.vertx.auth.TokenRefreshScheduler;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+import org.pac4j.vertx.core.store.VertxLocalMapStore;
+import org.pac4j.vertx.core.store.VertxMapStoreBase;
+import org.pac4j.vertx.handler.impl.LogoutHandler;
+import org.pac4j.vertx.handler.impl.LogoutHandlerOptions;
+import org.pac4j.vertx.handler.impl.SecurityHandler;
+import org.pac4j.vertx.handler.impl.SecurityHandlerOptions;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Soak test of the handlers deployed in several verticles, whose requests are spread across the event loops. Each
+ * round logs users in, updates their profiles one request after the other, then logs them out. The run checks that no
+ * profile update is lost, that no authenticated session, tracked token refresh or expired store entry is left behind,
+ * and that the heap and throughput stay flat from one round to the next.
+ *
+ * The run is short by default. The soak profile runs it for longer, and the soak.rounds, soak.users and soak.updates
+ * system properties tune it.
+ */
+@RunWith(VertxUnitRunner.class)
+public class SoakTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SoakTest.class);
+
+    private static final int ROUNDS = Integer.getInteger("soak.rounds", 6);
+    private static final int USERS = Integer.getInteger("soak.users", 50);
+    private static final int UPDATES = Integer.getInteger("soak.updates", 10);
+    private static final int VERTICLES = 4;
+
+    private static final String SESSIONS = "pac4j-soak-sessions";
+    private static final String COUNTER = "counter";
+    private static final long STATE_TIME_TO_LIVE = 200;
+    // Sessions expire quickly, so that those created by the requests made after logging out do not pile up
+    private static final long SESSION_TIMEOUT = 2000;
+    private static final long LEFTOVER_DEADLINE = 10000;
+    // The heap may grow by this much between the first and the last round, beyond which it is taken as a leak
+    private static final long HEAP_GROWTH_ALLOWANCE = 16 * 1024 * 1024;
+
+    @Rule
+    public Timeout timeout = Timeout.seconds(Integer.getInteger("soak.timeout", 600));
+
+    private Vertx vertx;
+    private HttpClient client;
+    private TokenRefreshScheduler scheduler;
+    private int port;
+
+    @Before
+    public void setUp(final TestContext context) throws IOException {
+        vertx = Vertx.vertx();
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        // Tokens expire long after the run, so that the scheduler only tracks and untracks sessions
+        scheduler = new TokenRefreshScheduler(vertx, LocalSessionStore.create(vertx, SESSIONS),
+                new Config(new SoakClient()).getClients(), new TokenRefreshOptions());
+        VertxProfileManager.setTokenRefreshScheduler(scheduler);
+        // Every request opens a new connection, which the verticles are handed in turn
+        client = vertx.createHttpClient(new HttpClientOptions().setKeepAlive(false).setMaxPoolSize(USERS));
+        vertx.deployVerticle(SoakVerticle.class.getName(), new DeploymentOptions().setInstances(VERTICLES)
+                .setConfig(new JsonObject().put("port", port)), context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        VertxProfileManager.setTokenRefreshScheduler(null);
+        scheduler.close();
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void profilesSessionsAndStoreEntriesSurviveSustainedLoad(final TestContext context) {
+        final long[] heap = new long[ROUNDS];
+        final double[] throughput = new double[ROUNDS];
+        final Async rounds = context.async();
+        runRounds(context, 0, heap, throughput, rounds);
+        rounds.awaitSuccess();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            LOG.info("Soak round " + round + ": " + (long) throughput[round] + " requests/s, "
+                    + heap[round] / 1024 + " KB of heap used");
+        }
+        // The first round warms up the code paths, so the later rounds are compared to the second one
+        final int reference = ROUNDS > 2 ? 1 : 0;
+        context.assertTrue(heap[ROUNDS - 1] <= heap[reference] + HEAP_GROWTH_ALLOWANCE,
+                "heap grew from " + heap[reference] + " to " + heap[ROUNDS - 1] + " bytes");
+        context.assertTrue(throughput[ROUNDS - 1] >= throughput[reference] / 2,
+                "throughput fell from " + throughput[reference] + " to " + throughput[ROUNDS - 1] + " requests/s");
+
+        final Async leftovers = context.async();
+        awaitNoLeftovers(context, System.currentTimeMillis() + LEFTOVER_DEADLINE, leftovers);
+    }
+
+    private void runRounds(final TestContext context, final int round, final long[] heap, final double[] throughput,
+                           final Async rounds) {
+        if (round == ROUNDS) {
+            rounds.complete();
+            return;
+        }
+        final long started = System.nanoTime();
+        final List<Future> users = new ArrayList<>();
+        for (int user = 0; user < USERS; user++) {
+            users.add(runUser("user-" + round + "-" + user));
+        }
+        CompositeFuture.all(users).onComplete(context.asyncAssertSuccess(done -> {
+            // Each user logs in, updates its profile, logs out and checks it can no longer get in
+            final long requests = (long) USERS * (UPDATES + 3);
+            throughput[round] = requests * 1e9 / (System.nanoTime() - started);
+            vertx.<Long>executeBlocking(promise -> promise.complete(usedHeap()), context.asyncAssertSuccess(used -> {
+                heap[round] = used;
+                runRounds(context, round + 1, heap, throughput, rounds);
+            }));
+        }));
+    }
+
+    private Future<Void> runUser(final String userId) {
+        return request(HttpMethod.POST, "/login?user=" + userId, null)
+                .compose(login -> {
+                    final String cookie = login.cookie;
+                    Future<Reply> updates = Future.succeededFuture(login);
+                    for (int update = 1; update <= UPDATES; update++) {
+                        final String expected = String.valueOf(update);
+                        updates = updates.compose(previous -> request(HttpMethod.GET, "/protected/increment", cookie)
+                                .compose(reply -> expected.equals(reply.body) ? Future.succeededFuture(reply)
+                                        : Future.failedFuture("Update " + expected + " of " + userId
+                                        + " read back as " + reply.status + " " + reply.body)));
+                    }
+                    return updates
+                            .compose(updated -> request(HttpMethod.GET, "/logout", cookie))
+                            .compose(logout -> request(HttpMethod.GET, "/protected/increment", cookie))
+                            .compose(afterLogout -> afterLogout.status == 302 ? Future.<Void>succeededFuture()
+                                    : Future.failedFuture(userId + " still authenticated after logout: "
+                                    + afterLogout.status));
+                });
+    }
+
+    private Future<Reply> request(final HttpMethod method, final String uri, final String cookie) {
+        final Promise<Reply> promise = Promise.promise();
+        final HttpClientRequest request = client.request(method, port, "localhost", uri, response -> {
+            final String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+            final String responseCookie = setCookie != null ? setCookie.split(";", 2)[0] : cookie;
+            response.bodyHandler(body -> promise.complete(
+                    new Reply(response.statusCode(), responseCookie, body.toString())));
+            response.exceptionHandler(promise::tryFail);
+        });
+        request.exceptionHandler(promise::tryFail);
+        if (cookie != null) {
+            request.putHeader(HttpHeaders.COOKIE, cookie);
+        }
+        request.end();
+        return promise.future();
+    }
+
+    /**
+     * Wait for the sessions to be removed and the store entries to expire, failing once the deadline has passed. The
+     * sessions of the users logged out are removed straight away. The requests made after logging out are redirected
+     * to log in, which keeps the requested URL in a new session holding no profile, removed once it times out.
+     */
+    private void awaitNoLeftovers(final TestContext context, final long deadline, final Async leftovers) {
+        final LocalMap<String, Session> sessions = vertx.sharedData().getLocalMap(SESSIONS);
+        final long authenticatedSessions = sessions.values().stream()
+                .filter(session -> session.get(Pac4jConstants.USER_PROFILES) != null)
+                .count();
+        final int storeEntries = vertx.sharedData().getLocalMap(VertxMapStoreBase.PAC4J_SHARED_DATA_KEY).size();
+        if (authenticatedSessions > 0) {
+            context.fail(authenticatedSessions + " authenticated sessions left behind");
+        } else if (sessions.isEmpty() && storeEntries == 0 && scheduler.size() == 0) {
+            leftovers.complete();
+        } else if (System.currentTimeMillis() > deadline) {
+            context.fail(sessions.size() + " sessions, " + storeEntries + " store entries and " + scheduler.size()
+                    + " tracked token refreshes left behind");
+        } else {
+            vertx.setTimer(STATE_TIME_TO_LIVE, id -> awaitNoLeftovers(context, deadline, leftovers));
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static final class Reply {
+
+        private final int status;
+        private final String cookie;
+        private final String body;
+
+        private Reply(final int status, final String cookie, final String body) {
+            this.status = status;
+            this.cookie = cookie;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Serves the logins, profile updates and logouts of the soak test. Logins save an OpenID Connect profile with a
+     * refresh token in the session, and leave a state entry in a store to expire.
+     */
+    public static class SoakVerticle extends AbstractVerticle {
+
+        private VertxLocalMapStore<String, String> stateStore;
+
+        @Override
+        public void start(final Promise<Void> startPromise) {
+            final LocalSessionStore sessions = LocalSessionStore.create(vertx, SESSIONS);
+            final VertxSessionStore sessionStore = new VertxSessionStore(sessions);
+            final Config config = new Config(new SoakClient());
+            stateStore = new VertxLocalMapStore<>(vertx, STATE_TIME_TO_LIVE);
+
+            final Router router = Router.router(vertx);
+            router.route().handler(SessionHandler.create(sessions).setSessionTimeout(SESSION_TIMEOUT));
+            router.post("/login").handler(rc -> {
+                final OidcProfile profile = new OidcProfile();
+                profile.setId(rc.request().getParam("user"));
+                profile.setClientName(SoakClient.NAME);
+                profile.setAccessToken(new BearerAccessToken(TimeUnit.HOURS.toSeconds(1), null));
+                profile.setRefreshToken(new RefreshToken());
+                profile.addAttribute(COUNTER, 0);
+                new VertxProfileManager(new VertxWebContext(rc, sessionStore), sessionStore)
+                        .save(true, profile, false);
+                stateStore.set("state:" + rc.session().id(), profile.getId());
+                rc.response().end();
+            });
+            router.get("/protected/*").handler(new SecurityHandler(vertx, sessionStore, config,
+                    new Pac4jAuthProvider(), new SecurityHandlerOptions().setClients(SoakClient.NAME)));
+            router.get("/protected/increment").handler(rc -> {
+                final VertxProfileManager manager =
+                        new VertxProfileManager(new VertxWebContext(rc, sessionStore), sessionStore);
+                final OidcProfile profile = (OidcProfile) manager.get(true).get();
+                final int counter = (Integer) profile.getAttribute(COUNTER) + 1;
+                // Saved as a new profile, so that a lost save is not hidden by an update of the profile in place
+                final OidcProfile updated = new OidcProfile();
+                updated.build(profile.getId(), profile.getAttributes());
+                updated.setClientName(profile.getClientName());
+                updated.addAttribute(COUNTER, counter);
+                manager.save(true, updated, false);
+                rc.response().end(String.valueOf(counter));
+            });
+            router.get("/logout").handler(new LogoutHandler(vertx, sessionStore,
+                    new LogoutHandlerOptions().setDestroySession(true), config));
+
+            vertx.createHttpServer().requestHandler(router)
+                    .listen(config().getInteger("port"), listening -> {
+                        if (listening.succeeded()) {
+                            startPromise.complete();
+                        } else {
+                            startPromise.fail(listening.cause());
+                        }
+                    });
+        }
+
+        @Override
+        public void stop() {
+            stateStore.close();
+        }
+    }
+}
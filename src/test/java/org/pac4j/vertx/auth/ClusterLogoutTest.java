@@ -0,0 +1,64 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class ClusterLogoutTest {
+
+    private static final long ACK_TIMEOUT = 5000;
+
+    private Vertx vertx;
+    private ClusterLogoutOptions options;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        options = new ClusterLogoutOptions().setAckTimeout(ACK_TIMEOUT);
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void instancesOfTheSameNodeDoNotAcknowledgeEachOther(final TestContext context) {
+        final ClusterLogout publisher = new ClusterLogout(vertx, null, options);
+        final ClusterLogout sameNode = new ClusterLogout(vertx, null, options);
+        sameNode.addListener(sessions -> context.fail("Logout applied by an instance of the publishing node"));
+        final long start = System.currentTimeMillis();
+
+        publisher.logout("session", true).onComplete(context.asyncAssertSuccess(acks -> {
+            context.assertEquals(0, acks);
+            context.assertTrue(System.currentTimeMillis() - start < ACK_TIMEOUT);
+        }));
+    }
+
+    @Test
+    public void countsTheAcknowledgementsOfEachPresentNodeOnce(final TestContext context) {
+        final ClusterLogout publisher = new ClusterLogout(vertx, null, options.setAckTimeout(500));
+        // Another node running two instances, emulated on the event bus
+        for (int i = 0; i < 2; i++) {
+            vertx.eventBus().<JsonObject>consumer(options.getAddress(), message -> vertx.eventBus().send(
+                    message.body().getString("replyTo"),
+                    new JsonObject().put("batch", message.body().getLong("batch")).put("node", "other")));
+        }
+        // A third node which never acknowledges, so that the logout waits for acknowledgements until it times out
+        vertx.eventBus().publish(options.getAddress() + ".presence", new JsonObject().put("node", "other"));
+        vertx.eventBus().publish(options.getAddress() + ".presence", new JsonObject().put("node", "third"));
+        final Async async = context.async();
+
+        vertx.setTimer(50, id -> publisher.logout("session", true).onComplete(context.asyncAssertSuccess(acks -> {
+            context.assertEquals(1, acks);
+            async.complete();
+        })));
+    }
+}
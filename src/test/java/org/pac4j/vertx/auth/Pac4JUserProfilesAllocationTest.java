@@ -0,0 +1,68 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pac4j.vertx.AllocationBudgets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bytes allocated by the round trips of session profiles through their serialized form against the budgets
+ * checked in as allocation-budgets.properties.
+ */
+public class Pac4JUserProfilesAllocationTest {
+
+    private static final int WARM_UP = 2000;
+    private static final int ITERATIONS = 5000;
+    private static final Logger LOG = LoggerFactory.getLogger(Pac4JUserProfilesAllocationTest.class);
+
+    @Before
+    public void assumeSupported() {
+        AllocationBudgets.assumeSupported();
+    }
+
+    @After
+    public void resetSerializationOptions() {
+        Pac4JUserProfiles.setSerializationOptions(new ProfileSerializationOptions());
+    }
+
+    @Test
+    public void jsonRoundTripStaysWithinBudget() {
+        assertRoundTripWithinBudget("pac4jUserProfiles.roundTrip.json", new ProfileSerializationOptions());
+    }
+
+    @Test
+    public void perProfileRoundTripStaysWithinBudget() {
+        assertRoundTripWithinBudget("pac4jUserProfiles.roundTrip.perProfile",
+                new ProfileSerializationOptions().setPerProfile(true));
+    }
+
+    @Test
+    public void compressedRoundTripStaysWithinBudget() {
+        assertRoundTripWithinBudget("pac4jUserProfiles.roundTrip.compressed",
+                new ProfileSerializationOptions().setCompress(true).setCompressionThreshold(0));
+    }
+
+    private static void assertRoundTripWithinBudget(final String path, final ProfileSerializationOptions options) {
+        Pac4JUserProfiles.setSerializationOptions(options);
+        final Pac4JUserProfiles profiles = new Pac4JUserProfiles(Pac4jUserTest.profiles(0));
+
+        final long allocated = AllocationBudgets.measure(WARM_UP, ITERATIONS, () -> {
+            final Buffer buffer = Buffer.buffer();
+            profiles.writeToBuffer(buffer);
+            final Pac4JUserProfiles read = new Pac4JUserProfiles();
+            read.readFromBuffer(0, buffer);
+            // Profiles read in the per-profile format are only decoded when accessed
+            assertEquals("user0", read.get("OidcClient").getId());
+        });
+
+        final long budget = AllocationBudgets.budget(path);
+        LOG.info(path + " allocates " + allocated + " bytes, for a budget of " + budget);
+        assertTrue(path + " allocates " + allocated + " bytes, over its budget of " + budget, allocated <= budget);
+    }
+}
@@ -0,0 +1,47 @@
+package org.pac4j.vertx.auth;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class Pac4JUserProfilesCodecTest {
+
+    private final Pac4JUserProfilesCodec codec = new Pac4JUserProfilesCodec();
+
+    @After
+    public void resetSerializationOptions() {
+        Pac4JUserProfiles.setSerializationOptions(new ProfileSerializationOptions());
+    }
+
+    @Test
+    public void localDeliveriesReceiveAnImmutableView() {
+        final Pac4JUserProfiles sent = new Pac4JUserProfiles(Pac4jUserTest.profiles(0));
+
+        final Map<String, CompactProfile> received = codec.transform(sent);
+
+        assertEquals(sent.keySet(), received.keySet());
+        assertEquals("user0", received.get("OidcClient").getId());
+        try {
+            received.remove("FormClient");
+        } catch (final UnsupportedOperationException e) {
+            assertEquals(2, sent.size());
+            return;
+        }
+        throw new AssertionError("Received profiles are modifiable");
+    }
+
+    @Test
+    public void localDeliveriesAreNotProjected() {
+        final Pac4JUserProfiles sent = new Pac4JUserProfiles(Pac4jUserTest.profiles(0));
+        final Object email = sent.get("OidcClient").getAttribute("email");
+        assertNotNull(email);
+        Pac4JUserProfiles.setSerializationOptions(new ProfileSerializationOptions()
+                .setProjection(new ProfileProjection().exclude("email")));
+
+        assertEquals(email, codec.transform(sent).get("OidcClient").getAttribute("email"));
+    }
+}
@@ -0,0 +1,62 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.client.direct.AnonymousClient;
+import org.pac4j.core.exception.CredentialsException;
+
+import java.util.Collections;
+
+@RunWith(VertxUnitRunner.class)
+public class Pac4jAuthProviderTest {
+
+    private static final String ANONYMOUS = AnonymousClient.class.getSimpleName();
+
+    private Vertx vertx;
+    private Clients clients;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        clients = new Clients(new AnonymousClient());
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void rejectsClientsWhichAreNotAllowed(final TestContext context) {
+        final Pac4jAuthProvider provider = new Pac4jAuthProvider(vertx, clients, new Pac4jAuthProviderOptions());
+
+        provider.authenticate(new JsonObject().put(Pac4jAuthProvider.CLIENT, ANONYMOUS),
+                context.asyncAssertFailure(e -> context.assertTrue(e instanceof CredentialsException)));
+    }
+
+    @Test
+    public void rejectsTheDefaultClientWhenNotAllowed(final TestContext context) {
+        final Pac4jAuthProvider provider = new Pac4jAuthProvider(vertx, clients,
+                new Pac4jAuthProviderOptions().setDefaultClient(ANONYMOUS));
+
+        provider.authenticate(new JsonObject(),
+                context.asyncAssertFailure(e -> context.assertTrue(e instanceof CredentialsException)));
+    }
+
+    @Test
+    public void authenticatesAgainstAllowedClients(final TestContext context) {
+        final Pac4jAuthProvider provider = new Pac4jAuthProvider(vertx, clients,
+                new Pac4jAuthProviderOptions().setAllowedClients(Collections.singleton(ANONYMOUS)));
+
+        provider.authenticate(new JsonObject().put(Pac4jAuthProvider.CLIENT, ANONYMOUS),
+                context.asyncAssertSuccess(user -> context.assertTrue(
+                        ((Pac4jUser) user).pac4jUserProfiles().containsKey(ANONYMOUS))));
+    }
+}
@@ -0,0 +1,163 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.After;
+import org.junit.Test;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.oidc.profile.OidcProfile;
+import org.pac4j.vertx.core.DefaultJsonConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Pac4jUserTest {
+
+    @After
+    public void resetSerializationOptions() {
+        Pac4JUserProfiles.setSerializationOptions(new ProfileSerializationOptions());
+    }
+
+    @Test
+    public void changesToTheProfilesHandedOutAreKept() {
+        final Pac4jUser user = new Pac4jUser();
+        user.setUserProfiles(profiles(0));
+
+        final Map<String, CommonProfile> profiles = user.pac4jUserProfiles();
+        profiles.get("OidcClient").addPermission("admin");
+        profiles.remove("FormClient");
+
+        assertSame(profiles, user.pac4jUserProfiles());
+        assertEquals(Arrays.asList("OidcClient"), Arrays.asList(user.principal().fieldNames().toArray()));
+        final Pac4jUser read = roundTrip(user);
+        assertEquals(1, read.compactProfiles().size());
+        assertTrue(read.compactProfiles().get("OidcClient").hasPermission("admin"));
+    }
+
+    @Test
+    public void profilesSetAfterBeingHandedOutReplaceThoseOfTheMapHandedOut() {
+        final Pac4jUser user = new Pac4jUser();
+        user.setUserProfiles(profiles(0));
+        final Map<String, CommonProfile> profiles = user.pac4jUserProfiles();
+
+        user.setUserProfiles(profiles(1));
+
+        assertEquals("user1", profiles.get("OidcClient").getId());
+        user.setUserProfiles(profiles);
+        assertEquals(2, user.pac4jUserProfiles().size());
+    }
+
+    @Test
+    public void usersAreWrittenAsTheirProfilesAre() {
+        for (final boolean perProfile : new boolean[] {false, true}) {
+            Pac4JUserProfiles.setSerializationOptions(new ProfileSerializationOptions().setPerProfile(perProfile));
+            final Pac4jUser user = new Pac4jUser();
+            user.setUserProfiles(profiles(0));
+
+            final Buffer expected = Buffer.buffer();
+            new Pac4JUserProfiles(profiles(0)).writeToBuffer(expected);
+            final Pac4JUserProfiles expectedProfiles = new Pac4JUserProfiles();
+            expectedProfiles.readFromBuffer(0, expected);
+
+            assertEquals(encode(expectedProfiles), encode(roundTrip(user).pac4jUserProfiles()));
+        }
+    }
+
+    @Test
+    public void compactProfilesShareNothingWhichCanChange() {
+        final Date authTime = new Date(1000);
+        final List<String> groups = new ArrayList<>(Arrays.asList("staff"));
+        final Map<String, Object> address = new LinkedHashMap<>();
+        address.put("country", "FR");
+        final LinkedHashMap<String, CommonProfile> profiles = profiles(0);
+        final CommonProfile profile = profiles.get("OidcClient");
+        profile.addAttribute("auth_time", authTime);
+        profile.addAttribute("groups", groups);
+        profile.addAttribute("address", address);
+        final Pac4jUser user = new Pac4jUser();
+        user.setUserProfiles(profiles);
+
+        final CompactProfile compact = user.compactProfiles().get("OidcClient");
+        authTime.setTime(2000);
+        groups.add("admin");
+        address.put("country", "DE");
+
+        assertEquals(new Date(1000), compact.getAttribute("auth_time"));
+        assertEquals(Arrays.asList("staff"), compact.getAttribute("groups"));
+        assertEquals("FR", ((Map<?, ?>) compact.getAttribute("address")).get("country"));
+        assertUnsupported(() -> ((Date) compact.getAttribute("auth_time")).setTime(0));
+        assertUnsupported(() -> ((List<Object>) compact.getAttribute("groups")).add("admin"));
+        assertUnsupported(() -> ((Map<Object, Object>) compact.getAttribute("address")).clear());
+    }
+
+    @Test
+    public void localDeliveriesReceiveCopiesOfTheProfiles() {
+        final Pac4jUser user = new Pac4jUser();
+        user.setUserProfiles(profiles(0));
+
+        final Pac4jUser received = new Pac4jUserCodec().transform(user);
+        received.pac4jUserProfiles().get("OidcClient").addPermission("admin");
+
+        assertEquals(encode(profiles(0)), encode(user.pac4jUserProfiles()));
+        assertTrue(received.pac4jUserProfiles().get("OidcClient").getPermissions().contains("admin"));
+    }
+
+    static LinkedHashMap<String, CommonProfile> profiles(final int n) {
+        final OidcProfile oidcProfile = new OidcProfile();
+        oidcProfile.setId("user" + n);
+        oidcProfile.setClientName("OidcClient");
+        oidcProfile.addAttribute("email", "user" + n + "@example.com");
+        oidcProfile.addAttribute("given_name", "Given" + n);
+        oidcProfile.addAttribute("family_name", "Family" + n);
+        oidcProfile.addAttribute("preferred_username", "user" + n);
+        oidcProfile.addAttribute("locale", "en");
+        oidcProfile.addAttribute("email_verified", Boolean.TRUE);
+        oidcProfile.addAttribute("sub", "subject-" + n);
+        oidcProfile.addAttribute("iss", "https://issuer.example.com");
+        oidcProfile.addRole("user");
+        oidcProfile.addPermission("read");
+
+        final CommonProfile formProfile = new CommonProfile();
+        formProfile.setId("user" + n);
+        formProfile.setClientName("FormClient");
+        formProfile.addAttribute("username", "user" + n);
+        formProfile.addRole("user");
+
+        final LinkedHashMap<String, CommonProfile> profiles = new LinkedHashMap<>();
+        profiles.put(oidcProfile.getClientName(), oidcProfile);
+        profiles.put(formProfile.getClientName(), formProfile);
+        return profiles;
+    }
+
+    private static Pac4jUser roundTrip(final Pac4jUser user) {
+        final Buffer buffer = Buffer.buffer();
+        user.writeToBuffer(buffer);
+        final Pac4jUser read = new Pac4jUser();
+        read.readFromBuffer(0, buffer);
+        return read;
+    }
+
+    private static String encode(final Map<String, CommonProfile> profiles) {
+        final StringBuilder encoded = new StringBuilder();
+        profiles.forEach((name, profile) ->
+                encoded.append(name).append(DefaultJsonConverter.getInstance().encodeObject(profile)));
+        return encoded.toString();
+    }
+
+    private static void assertUnsupported(final Runnable change) {
+        try {
+            change.run();
+            fail("Changed a compact profile");
+        } catch (final UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
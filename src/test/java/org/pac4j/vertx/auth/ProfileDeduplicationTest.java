@@ -0,0 +1,156 @@
+package org.pac4j.vertx.auth;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.store.Store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class ProfileDeduplicationTest {
+
+    private Vertx vertx;
+    private EventLoopCheckingStore store;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        store = new EventLoopCheckingStore();
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        Pac4JUserProfiles.setSerializationOptions(new ProfileSerializationOptions());
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void cachesTheMostRecentlyUsedProfilesOnly(final TestContext context) {
+        final ProfileDeduplication deduplication = new ProfileDeduplication(vertx, store, 60000, 2);
+
+        final byte[] first = deduplication.store(json("first"));
+        deduplication.store(json("second"));
+        deduplication.fetch(first);
+        deduplication.store(json("third"));
+
+        context.assertEquals(2, deduplication.size());
+        context.assertEquals(3, store.writes.get());
+        // The second profile was evicted, the first was used since
+        deduplication.store(json("first"));
+        context.assertEquals(3, store.writes.get());
+        deduplication.store(json("second"));
+        context.assertEquals(4, store.writes.get());
+    }
+
+    @Test
+    public void storesOnAWorkerWhenWrittenOnTheEventLoop(final TestContext context) {
+        final ProfileDeduplication deduplication = new ProfileDeduplication(vertx, store);
+        final Async async = context.async();
+
+        vertx.runOnContext(v -> {
+            final byte[] key = deduplication.store(json("profile"));
+            // Served from the cache while the store is being written
+            context.assertEquals("{\"name\":\"profile\"}", new String(deduplication.fetch(key), StandardCharsets.UTF_8));
+            vertx.setPeriodic(10, id -> {
+                if (store.writes.get() == 1) {
+                    vertx.cancelTimer(id);
+                    context.assertEquals(0, store.eventLoopCalls.get());
+                    async.complete();
+                }
+            });
+        });
+    }
+
+    @Test
+    public void doesNotFetchOnTheEventLoop(final TestContext context) {
+        final byte[] key = new ProfileDeduplication(vertx, store).store(json("profile"));
+        final ProfileDeduplication otherNode = new ProfileDeduplication(vertx, store);
+        final Async async = context.async();
+
+        vertx.runOnContext(v -> {
+            try {
+                otherNode.fetch(key);
+                context.fail("Fetched on the event loop");
+            } catch (final TechnicalException e) {
+                context.assertEquals(0, store.eventLoopCalls.get());
+            }
+            vertx.executeBlocking(promise -> promise.complete(otherNode.fetch(key)),
+                    context.asyncAssertSuccess(json -> {
+                        context.assertEquals("{\"name\":\"profile\"}", new String((byte[]) json, StandardCharsets.UTF_8));
+                        async.complete();
+                    }));
+        });
+    }
+
+    @Test
+    public void storesTheProfilesSavedToTheSessionBeforeTheSessionIsWritten(final TestContext context) {
+        final ProfileDeduplication deduplication = new ProfileDeduplication(vertx, store);
+        Pac4JUserProfiles.setSerializationOptions(new ProfileSerializationOptions()
+                .setDeduplicate(true).setDeduplication(deduplication));
+        final Async async = context.async();
+
+        vertx.executeBlocking(promise -> promise.complete(Pac4JUserProfiles.forSession(Pac4jUserTest.profiles(0))),
+                context.asyncAssertSuccess(profiles -> {
+                    context.assertEquals(2, store.writes.get());
+                    // Written on the event loop without storing the profiles again
+                    final Buffer buffer = Buffer.buffer();
+                    ((Pac4JUserProfiles) profiles).writeToBuffer(buffer);
+                    context.assertEquals(2, store.writes.get());
+
+                    final Pac4JUserProfiles read = new Pac4JUserProfiles();
+                    read.readFromBuffer(0, buffer);
+                    context.assertEquals("user0", read.get("OidcClient").getId());
+                    context.assertEquals(0, store.eventLoopCalls.get());
+                    async.complete();
+                }));
+    }
+
+    private static byte[] json(final String name) {
+        return ("{\"name\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class EventLoopCheckingStore implements Store<String, String> {
+
+        private final Map<String, String> entries = new ConcurrentHashMap<>();
+        private final AtomicInteger writes = new AtomicInteger();
+        private final AtomicInteger eventLoopCalls = new AtomicInteger();
+
+        @Override
+        public Optional<String> get(final String key) {
+            checkThread();
+            return Optional.ofNullable(entries.get(key));
+        }
+
+        @Override
+        public void set(final String key, final String value) {
+            checkThread();
+            entries.put(key, value);
+            writes.incrementAndGet();
+        }
+
+        @Override
+        public void remove(final String key) {
+            checkThread();
+            entries.remove(key);
+        }
+
+        private void checkThread() {
+            if (Context.isOnEventLoopThread()) {
+                eventLoopCalls.incrementAndGet();
+            }
+        }
+    }
+}
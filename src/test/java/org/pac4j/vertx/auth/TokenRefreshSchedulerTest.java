@@ -0,0 +1,251 @@
+package org.pac4j.vertx.auth;
+
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.oidc.client.OidcClient;
+import org.pac4j.oidc.config.OidcConfiguration;
+import org.pac4j.oidc.profile.OidcProfile;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class TokenRefreshSchedulerTest {
+
+    private static final String CLIENT_NAME = "OidcClient";
+
+    private Vertx vertx;
+    private LocalSessionStore sessions;
+    private ObservedSessionStore observed;
+    private TokenRefreshScheduler scheduler;
+    private Session session;
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private volatile Runnable onTokenRequest = () -> { };
+
+    @Before
+    public void setUp(final TestContext context) {
+        vertx = Vertx.vertx();
+        sessions = LocalSessionStore.create(vertx);
+        observed = new ObservedSessionStore(sessions);
+        final OidcConfiguration configuration = new OidcConfiguration();
+        configuration.setClientId("client");
+        configuration.setSecret("secret");
+        final OidcClient<OidcConfiguration> oidcClient = new OidcClient<>(configuration);
+        scheduler = new TokenRefreshScheduler(vertx, observed, new Clients(oidcClient), new TokenRefreshOptions()
+                .setJitter(0)
+                .setCheckInterval(20));
+
+        final Router router = Router.router(vertx);
+        router.get("/.well-known/openid-configuration").handler(rc -> {
+            final String issuer = "http://localhost:" + rc.request().localAddress().port();
+            rc.response().end(new JsonObject()
+                    .put("issuer", issuer)
+                    .put("authorization_endpoint", issuer + "/authorize")
+                    .put("token_endpoint", issuer + "/token")
+                    .put("jwks_uri", issuer + "/jwks")
+                    .put("response_types_supported", new JsonArray().add("code"))
+                    .put("subject_types_supported", new JsonArray().add("public"))
+                    .put("id_token_signing_alg_values_supported", new JsonArray().add("RS256"))
+                    .encode());
+        });
+        router.post("/token").handler(rc -> {
+            tokenRequests.incrementAndGet();
+            onTokenRequest.run();
+            rc.response().putHeader(HttpHeaders.CONTENT_TYPE, "application/json").end(new JsonObject()
+                    .put("access_token", "refreshed")
+                    .put("token_type", "Bearer")
+                    .put("expires_in", 3600)
+                    .put("refresh_token", "refresh-2")
+                    .encode());
+        });
+
+        final HttpServer server = vertx.createHttpServer().requestHandler(router);
+        server.listen(0, context.asyncAssertSuccess(listened -> {
+            configuration.setDiscoveryURI("http://localhost:" + listened.actualPort()
+                    + "/.well-known/openid-configuration");
+            oidcClient.setCallbackUrl("http://localhost:" + listened.actualPort() + "/callback");
+            session = sessions.createSession(60 * 1000);
+            session.put(Pac4jConstants.USER_PROFILES, profiles("expiring"));
+            sessions.put(session, context.asyncAssertSuccess());
+        }));
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        scheduler.close();
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void refreshesProfilesAboutToExpire(final TestContext context) {
+        final Async async = context.async();
+
+        scheduler.track(session.id(), profiles("expiring"));
+        observed.stored.future().onComplete(context.asyncAssertSuccess(stored -> {
+            final OidcProfile profile = profile(stored);
+            context.assertEquals("refreshed", profile.getAccessToken().getValue());
+            context.assertEquals("refresh-2", profile.getRefreshToken().getValue());
+            context.assertEquals(1, tokenRequests.get());
+            // Until the refreshed token is about to expire in turn
+            context.assertEquals(1, scheduler.size());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void retriesStoringSessionsWrittenElsewhereSinceLoaded(final TestContext context) {
+        final Async async = context.async();
+        observed.rejections.set(1);
+
+        scheduler.track(session.id(), profiles("expiring"));
+        observed.stored.future().onComplete(context.asyncAssertSuccess(stored -> {
+            context.assertEquals("refreshed", profile(stored).getAccessToken().getValue());
+            context.assertEquals(2, observed.puts.get());
+            context.assertEquals(1, tokenRequests.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void keepsProfilesSavedWhileBeingRefreshed(final TestContext context) {
+        final Async async = context.async();
+        onTokenRequest = () -> session.put(Pac4jConstants.USER_PROFILES, profiles("saved"));
+
+        scheduler.track(session.id(), profiles("expiring"));
+        vertx.setTimer(1000, id -> {
+            context.assertEquals(1, tokenRequests.get());
+            context.assertEquals("saved", profile(session).getAccessToken().getValue());
+            context.assertEquals(0, observed.puts.get());
+            context.assertEquals(0, scheduler.size());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void untrackedSessionsAreNotRefreshed(final TestContext context) {
+        final Async async = context.async();
+
+        scheduler.track(session.id(), profiles("expiring"));
+        context.assertEquals(1, scheduler.size());
+        scheduler.untrack(session.id());
+        vertx.setTimer(300, id -> {
+            context.assertEquals(0, tokenRequests.get());
+            context.assertEquals("expiring", profile(session).getAccessToken().getValue());
+            context.assertEquals(0, scheduler.size());
+            async.complete();
+        });
+    }
+
+    private static Pac4JUserProfiles profiles(final String accessToken) {
+        final OidcProfile profile = new OidcProfile();
+        profile.setId("user");
+        profile.setClientName(CLIENT_NAME);
+        // Expiring within the minute ahead of their expiry in which profiles are refreshed by default
+        profile.setAccessToken(new BearerAccessToken(accessToken, 1, null));
+        profile.setRefreshToken(new RefreshToken("refresh"));
+        final Pac4JUserProfiles profiles = new Pac4JUserProfiles();
+        profiles.put(CLIENT_NAME, profile);
+        return profiles;
+    }
+
+    private static OidcProfile profile(final Session session) {
+        return (OidcProfile) ((Pac4JUserProfiles) session.get(Pac4jConstants.USER_PROFILES)).get(CLIENT_NAME);
+    }
+
+    /**
+     * Session store counting the sessions put into it, which rejects a given number of them as a clustered store does
+     * sessions written by another node since they were loaded.
+     */
+    private static final class ObservedSessionStore implements SessionStore {
+
+        private final SessionStore delegate;
+        private final AtomicInteger rejections = new AtomicInteger();
+        private final AtomicInteger puts = new AtomicInteger();
+        private final Promise<Session> stored = Promise.promise();
+
+        private ObservedSessionStore(final SessionStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void put(final Session session, final Handler<AsyncResult<Void>> resultHandler) {
+            puts.incrementAndGet();
+            if (rejections.getAndDecrement() > 0) {
+                resultHandler.handle(Future.failedFuture("Version mismatch"));
+                return;
+            }
+            delegate.put(session, put -> {
+                resultHandler.handle(put);
+                if (put.succeeded()) {
+                    stored.tryComplete(session);
+                }
+            });
+        }
+
+        @Override
+        public SessionStore init(final Vertx vertx, final JsonObject options) {
+            return delegate.init(vertx, options);
+        }
+
+        @Override
+        public long retryTimeout() {
+            return delegate.retryTimeout();
+        }
+
+        @Override
+        public Session createSession(final long timeout) {
+            return delegate.createSession(timeout);
+        }
+
+        @Override
+        public Session createSession(final long timeout, final int length) {
+            return delegate.createSession(timeout, length);
+        }
+
+        @Override
+        public void get(final String id, final Handler<AsyncResult<Session>> resultHandler) {
+            delegate.get(id, resultHandler);
+        }
+
+        @Override
+        public void delete(final String id, final Handler<AsyncResult<Void>> resultHandler) {
+            delegate.delete(id, resultHandler);
+        }
+
+        @Override
+        public void clear(final Handler<AsyncResult<Void>> resultHandler) {
+            delegate.clear(resultHandler);
+        }
+
+        @Override
+        public void size(final Handler<AsyncResult<Integer>> resultHandler) {
+            delegate.size(resultHandler);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
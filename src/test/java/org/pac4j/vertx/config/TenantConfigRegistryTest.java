@@ -0,0 +1,75 @@
+package org.pac4j.vertx.config;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.config.Config;
+import org.pac4j.vertx.SoakClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class TenantConfigRegistryTest {
+
+    private Vertx vertx;
+    private final AtomicInteger builds = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void remembersUnknownTenantsWithoutEvictingKnownOnes(final TestContext context) {
+        final TenantConfigRegistry registry = registry(new TenantConfigRegistryOptions().setMaxTenants(1));
+        final Async async = context.async();
+
+        registry.getConfig("known", context.asyncAssertSuccess(known -> {
+            context.assertNotNull(known);
+            registry.getConfig("unknown", context.asyncAssertSuccess(first -> {
+                context.assertNull(first);
+                registry.getConfig("unknown", context.asyncAssertSuccess(second -> {
+                    context.assertNull(second);
+                    context.assertEquals(2, builds.get());
+                    context.assertEquals(1, registry.size());
+                    registry.getConfig("known", context.asyncAssertSuccess(again -> {
+                        context.assertEquals(known, again);
+                        context.assertEquals(2, builds.get());
+                        registry.close();
+                        async.complete();
+                    }));
+                }));
+            }));
+        }));
+    }
+
+    @Test
+    public void asksForUnknownTenantsAgainOnceTheirTtlElapsed(final TestContext context) {
+        final TenantConfigRegistry registry = registry(new TenantConfigRegistryOptions().setUnknownTenantTtl(50));
+        final Async async = context.async();
+
+        registry.getConfig("unknown", context.asyncAssertSuccess(first -> vertx.setTimer(100, id ->
+                registry.getConfig("unknown", context.asyncAssertSuccess(second -> {
+                    context.assertEquals(2, builds.get());
+                    registry.close();
+                    async.complete();
+                })))));
+    }
+
+    private TenantConfigRegistry registry(final TenantConfigRegistryOptions options) {
+        return new TenantConfigRegistry(vertx, tenant -> {
+            builds.incrementAndGet();
+            return "known".equals(tenant) ? new Config(new SoakClient()) : null;
+        }, options);
+    }
+}
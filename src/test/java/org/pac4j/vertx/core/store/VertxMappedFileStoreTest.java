@@ -0,0 +1,131 @@
+package org.pac4j.vertx.core.store;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+@RunWith(VertxUnitRunner.class)
+public class VertxMappedFileStoreTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        vertx = Vertx.vertx();
+        path = folder.getRoot().toPath().resolve("store.dat");
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void recoversTheEntriesOfTheFileAfterARestart(final TestContext context) {
+        VertxMappedFileStore<String, String> store = open(new VertxMappedFileStoreOptions());
+        store.set("kept", "1");
+        store.set("overwritten", "2");
+        store.set("overwritten", "3");
+        store.set("removed", "4");
+        store.remove("removed");
+        store.close();
+
+        store = open(new VertxMappedFileStoreOptions());
+        context.assertEquals(Optional.of("1"), store.get("kept"));
+        context.assertEquals(Optional.of("3"), store.get("overwritten"));
+        context.assertEquals(Optional.empty(), store.get("removed"));
+        store.close();
+    }
+
+    @Test
+    public void discardsRecordsTornByACrash(final TestContext context) throws IOException {
+        VertxMappedFileStore<String, String> store = open(new VertxMappedFileStoreOptions());
+        store.set("written", "1");
+        store.set("torn", "2");
+        store.close();
+        // As if the process died before the last record was fully written
+        corruptLastByte();
+
+        store = open(new VertxMappedFileStoreOptions());
+        context.assertEquals(Optional.of("1"), store.get("written"));
+        context.assertEquals(Optional.empty(), store.get("torn"));
+        // What is left of the torn record is not mistaken for the records appended after it
+        store.set("appended", "3");
+        store.close();
+
+        store = open(new VertxMappedFileStoreOptions());
+        context.assertEquals(Optional.of("1"), store.get("written"));
+        context.assertEquals(Optional.of("3"), store.get("appended"));
+        store.close();
+    }
+
+    @Test
+    public void compactsTheFileOnceMostOfItIsDead(final TestContext context) throws IOException {
+        final Async async = context.async();
+        final VertxMappedFileStoreOptions options = new VertxMappedFileStoreOptions()
+                .setInitialSize(1024)
+                .setMinCompactionSize(0)
+                .setSyncInterval(20);
+        final VertxMappedFileStore<String, String> store = open(options);
+        for (int i = 0; i < 1000; i++) {
+            store.set("key", "value" + i);
+        }
+        store.set("other", "value");
+        final long grown = Files.size(path);
+
+        final long timerId = vertx.setPeriodic(20, id -> {
+            try {
+                if (Files.size(path) < grown) {
+                    vertx.cancelTimer(id);
+                    context.assertEquals(Optional.of("value999"), store.get("key"));
+                    store.close();
+
+                    final VertxMappedFileStore<String, String> reopened = open(options);
+                    context.assertEquals(Optional.of("value999"), reopened.get("key"));
+                    context.assertEquals(Optional.of("value"), reopened.get("other"));
+                    reopened.close();
+                    async.complete();
+                }
+            } catch (final IOException e) {
+                context.fail(e);
+            }
+        });
+        vertx.setTimer(5000, id -> {
+            vertx.cancelTimer(timerId);
+            context.fail("File of " + grown + " bytes not compacted");
+        });
+    }
+
+    private VertxMappedFileStore<String, String> open(final VertxMappedFileStoreOptions options) {
+        return new VertxMappedFileStore<>(vertx, options.setPath(path.toString()));
+    }
+
+    private void corruptLastByte() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long position = file.length() - 1;
+            file.seek(position);
+            while (file.read() == 0) {
+                file.seek(--position);
+            }
+            file.seek(position);
+            file.write(0);
+        }
+    }
+}
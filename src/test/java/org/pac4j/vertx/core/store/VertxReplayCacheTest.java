@@ -0,0 +1,95 @@
+package org.pac4j.vertx.core.store;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class VertxReplayCacheTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void rejectsNewIdentifiersWhenFullWithoutForgettingTheOthers(final TestContext context) {
+        final VertxReplayCache cache = new VertxReplayCache(vertx, new VertxReplayCacheOptions().setMaxEntries(2));
+
+        context.assertTrue(cache.checkAndInsert("first"));
+        context.assertTrue(cache.checkAndInsert("second"));
+        context.assertFalse(cache.checkAndInsert("third"));
+
+        context.assertEquals(2, cache.size());
+        context.assertTrue(cache.contains("first"));
+        context.assertFalse(cache.checkAndInsert("first"));
+        context.assertFalse(cache.contains("third"));
+        cache.close();
+    }
+
+    @Test
+    public void acceptsNewIdentifiersOnceTheOldestExpire(final TestContext context) {
+        final VertxReplayCache cache = new VertxReplayCache(vertx, new VertxReplayCacheOptions()
+                .setWindow(200).setBuckets(2).setMaxEntries(1));
+        context.assertTrue(cache.checkAndInsert("first"));
+        context.assertFalse(cache.checkAndInsert("second"));
+        final Async async = context.async();
+
+        vertx.setTimer(500, id -> {
+            context.assertTrue(cache.checkAndInsert("second"));
+            cache.close();
+            async.complete();
+        });
+    }
+
+    @Test
+    public void acceptsNewIdentifiersWithoutRememberingThemWhenFullAndFailingOpen(final TestContext context) {
+        final VertxReplayCache cache = new VertxReplayCache(vertx, new VertxReplayCacheOptions().setMaxEntries(1)
+                .setFailClosed(false));
+
+        context.assertTrue(cache.checkAndInsert("first"));
+        context.assertTrue(cache.checkAndInsert("second"));
+
+        context.assertEquals(1, cache.size());
+        context.assertFalse(cache.checkAndInsert("first"));
+        context.assertFalse(cache.contains("second"));
+        cache.close();
+    }
+
+    @Test
+    public void remembersTheIdentifiersOfOtherNodesWhetherFullOrNot(final TestContext context) {
+        final VertxReplayCacheOptions options = new VertxReplayCacheOptions().setMaxEntries(1)
+                .setClusterAddress("pac4j.replay");
+        final VertxReplayCache full = new VertxReplayCache(vertx, options);
+        final VertxReplayCache empty = new VertxReplayCache(vertx, options);
+        final VertxReplayCache other = new VertxReplayCache(vertx, options);
+        context.assertTrue(full.checkAndInsert("first"));
+        final Async async = context.async();
+
+        vertx.setTimer(100, id -> {
+            context.assertTrue(other.checkAndInsert("second"));
+            vertx.setTimer(100, again -> {
+                context.assertFalse(full.checkAndInsert("second"));
+                context.assertFalse(empty.checkAndInsert("second"));
+                // Identifiers of other nodes do not take the room of those seen by the node
+                context.assertTrue(empty.checkAndInsert("third"));
+                full.close();
+                empty.close();
+                other.close();
+                async.complete();
+            });
+        });
+    }
+}
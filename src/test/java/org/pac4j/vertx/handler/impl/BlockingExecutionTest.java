@@ -0,0 +1,82 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.exception.http.FoundAction;
+import org.pac4j.core.http.adapter.HttpActionAdapter;
+import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.http.VertxHttpActionAdapter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class BlockingExecutionTest {
+
+    private Vertx vertx;
+    private HttpServer server;
+    private HttpClient client;
+    private final AtomicInteger adapted = new AtomicInteger();
+
+    @Before
+    public void setUp(final TestContext context) {
+        vertx = Vertx.vertx();
+        final HttpActionAdapter<Void, VertxWebContext> adapter = BlockingExecution.guard((action, webContext) -> {
+            adapted.incrementAndGet();
+            return VertxHttpActionAdapter.INSTANCE.adapt(action, webContext);
+        });
+
+        final Router router = Router.router(vertx);
+        router.get("/redirect").handler(rc -> BlockingExecution.<Void>executeBlocking(vertx, rc,
+                Long.parseLong(rc.request().getParam("timeout")), false, new HandlerStats(), promise -> {
+                    try {
+                        Thread.sleep(Long.parseLong(rc.request().getParam("work")));
+                    } catch (final InterruptedException e) {
+                        // Carries on regardless, as blocking work ignoring interrupts does
+                    }
+                    adapter.adapt(new FoundAction("/elsewhere"), new VertxWebContext(rc, null));
+                }, result -> context.fail("Work which ended the response has no result")));
+
+        client = vertx.createHttpClient();
+        server = vertx.createHttpServer().requestHandler(router);
+        server.listen(0, context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void workCompletedInTimeWritesTheResponse(final TestContext context) {
+        final Async async = context.async();
+
+        client.getNow(server.actualPort(), "localhost", "/redirect?timeout=1000&work=0", response -> {
+            context.assertEquals(302, response.statusCode());
+            context.assertEquals(1, adapted.get());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void workOutlivingItsDeadlineNoLongerWritesTheResponse(final TestContext context) {
+        final Async async = context.async();
+
+        client.getNow(server.actualPort(), "localhost", "/redirect?timeout=50&work=300", response -> {
+            context.assertEquals(504, response.statusCode());
+            // Once the work is done with its action
+            vertx.setTimer(500, id -> {
+                context.assertEquals(0, adapted.get());
+                async.complete();
+            });
+        });
+    }
+}
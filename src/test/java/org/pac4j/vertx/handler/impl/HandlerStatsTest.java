@@ -0,0 +1,88 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.config.Config;
+import org.pac4j.vertx.SoakClient;
+import org.pac4j.vertx.auth.Pac4jAuthProvider;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+
+@RunWith(VertxUnitRunner.class)
+public class HandlerStatsTest {
+
+    private Vertx vertx;
+    private HttpServer server;
+    private HttpClient client;
+    private SecurityHandler securityHandler;
+    private final HandlerStats timedOutStats = new HandlerStats();
+
+    @Before
+    public void setUp(final TestContext context) {
+        vertx = Vertx.vertx();
+        final LocalSessionStore sessions = LocalSessionStore.create(vertx);
+        securityHandler = new SecurityHandler(vertx, new VertxSessionStore(sessions), new Config(new SoakClient()),
+                new Pac4jAuthProvider(), new SecurityHandlerOptions().setClients(SoakClient.NAME));
+
+        final Router router = Router.router(vertx);
+        router.route().handler(SessionHandler.create(sessions));
+        router.get("/protected").handler(securityHandler);
+        router.get("/protected").handler(rc -> rc.response().end());
+        router.get("/slow").handler(rc -> BlockingExecution.<Void>executeBlocking(vertx, rc, 50, false, timedOutStats,
+                promise -> {
+                    try {
+                        Thread.sleep(5000);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                },
+                result -> context.fail("Result handled after the deadline")));
+
+        client = vertx.createHttpClient();
+        server = vertx.createHttpServer().requestHandler(router);
+        server.listen(0, context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void deniedRequestsAreNoLongerInFlight(final TestContext context) {
+        final Async async = context.async();
+
+        client.getNow(server.actualPort(), "localhost", "/protected", response -> {
+            context.assertEquals(302, response.statusCode());
+            // The response is ended from the worker thread, just before the blocking work returns
+            vertx.setTimer(100, id -> {
+                final HandlerStats stats = securityHandler.getStats();
+                context.assertEquals(1L, stats.getRequests());
+                context.assertEquals(0, stats.getInFlight());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void timedOutRequestsAreNoLongerInFlight(final TestContext context) {
+        final Async async = context.async();
+
+        client.getNow(server.actualPort(), "localhost", "/slow", response -> {
+            context.assertEquals(504, response.statusCode());
+            context.assertEquals(1L, timedOutStats.getTimeouts());
+            context.assertEquals(0, timedOutStats.getInFlight());
+            async.complete();
+        });
+    }
+}
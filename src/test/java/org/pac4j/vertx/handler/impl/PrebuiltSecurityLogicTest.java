@@ -0,0 +1,75 @@
+package org.pac4j.vertx.handler.impl;
+
+import org.junit.Test;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.engine.DefaultSecurityLogic;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.vertx.SoakClient;
+import org.pac4j.vertx.VertxWebContext;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrebuiltSecurityLogicTest {
+
+    private final Config config = new Config(new SoakClient());
+
+    @Test
+    public void resolvesTheAuthorizersOfTheConfigurationAndThoseBuiltIntoPac4j() {
+        final AtomicInteger checks = new AtomicInteger();
+        config.addAuthorizer("custom", (context, profiles) -> checks.incrementAndGet() > 0);
+        final DefaultSecurityLogic<Void, VertxWebContext> logic = PrebuiltSecurityLogic.of(
+                new DefaultSecurityLogic<>(), config, SoakClient.NAME, null, "isAuthenticated, CUSTOM");
+
+        assertTrue(isAuthorized(logic, profile()));
+        assertEquals(1, checks.get());
+    }
+
+    @Test
+    public void checksTheBuiltInAuthorizers() {
+        final DefaultSecurityLogic<Void, VertxWebContext> logic = PrebuiltSecurityLogic.of(
+                new DefaultSecurityLogic<>(), config, SoakClient.NAME, null, "isRemembered");
+
+        assertFalse(isAuthorized(logic, profile()));
+    }
+
+    @Test(expected = TechnicalException.class)
+    public void rejectsUnknownAuthorizersWhenBuilt() {
+        PrebuiltSecurityLogic.of(new DefaultSecurityLogic<>(), config, SoakClient.NAME, null, "unknown");
+    }
+
+    private boolean isAuthorized(final DefaultSecurityLogic<Void, VertxWebContext> logic, final UserProfile profile) {
+        final List<Client<? extends Credentials>> clients = logic.getClientFinder().find(config.getClients(),
+                withoutParameters(), SoakClient.NAME);
+        return logic.getAuthorizationChecker().isAuthorized(null, Collections.singletonList(profile), null,
+                config.getAuthorizers(), clients);
+    }
+
+    private static WebContext withoutParameters() {
+        return (WebContext) Proxy.newProxyInstance(WebContext.class.getClassLoader(),
+                new Class<?>[] {WebContext.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getRequestParameter")) {
+                        return Optional.empty();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static CommonProfile profile() {
+        final CommonProfile profile = new CommonProfile();
+        profile.setId("user");
+        return profile;
+    }
+}
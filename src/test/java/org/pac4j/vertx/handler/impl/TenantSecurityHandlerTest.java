@@ -0,0 +1,109 @@
+package org.pac4j.vertx.handler.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.vertx.SoakClient;
+import org.pac4j.vertx.VertxProfileManager;
+import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.auth.Pac4jAuthProvider;
+import org.pac4j.vertx.config.TenantConfigRegistry;
+import org.pac4j.vertx.config.TenantConfigRegistryOptions;
+import org.pac4j.vertx.config.TenantResolver;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+
+@RunWith(VertxUnitRunner.class)
+public class TenantSecurityHandlerTest {
+
+    private Vertx vertx;
+    private HttpServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp(final TestContext context) {
+        vertx = Vertx.vertx();
+        final LocalSessionStore sessions = LocalSessionStore.create(vertx);
+        final VertxSessionStore sessionStore = new VertxSessionStore(sessions);
+        final TenantConfigRegistry registry = new TenantConfigRegistry(vertx, tenant -> new Config(new SoakClient()),
+                new TenantConfigRegistryOptions());
+        final TenantResolver resolver = TenantResolver.pathSegment(0);
+
+        final Router router = Router.router(vertx);
+        router.route().handler(SessionHandler.create(sessions));
+        router.post("/:tenant/login").handler(new TenantHandler(registry, resolver, config -> rc -> {
+            final CommonProfile profile = new CommonProfile();
+            profile.setId("user");
+            profile.setClientName(SoakClient.NAME);
+            new VertxProfileManager(new VertxWebContext(rc, sessionStore), sessionStore).save(true, profile, false);
+            rc.response().end();
+        }));
+        router.get("/:tenant/protected").handler(new TenantSecurityHandler(vertx, sessionStore, registry, resolver,
+                new Pac4jAuthProvider(), new SecurityHandlerOptions().setClients(SoakClient.NAME)));
+        router.get("/:tenant/protected").handler(rc -> rc.response().end());
+
+        client = vertx.createHttpClient();
+        server = vertx.createHttpServer().requestHandler(router);
+        server.listen(0, context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void sessionAuthenticatedAtOneTenantIsRejectedAtAnother(final TestContext context) {
+        final Async async = context.async();
+
+        request(HttpMethod.POST, "/a/login", null).compose(cookie ->
+                status("/a/protected", cookie).compose(granted -> {
+                    context.assertEquals(200, granted);
+                    return status("/b/protected", cookie);
+                })).onComplete(context.asyncAssertSuccess(other -> {
+                    // Redirected to the login of tenant b
+                    context.assertEquals(302, other);
+                    async.complete();
+                }));
+    }
+
+    private Future<Integer> status(final String uri, final String cookie) {
+        final Promise<Integer> promise = Promise.promise();
+        client.request(HttpMethod.GET, server.actualPort(), "localhost", uri,
+                response -> promise.complete(response.statusCode()))
+                .exceptionHandler(promise::tryFail)
+                .putHeader(HttpHeaders.COOKIE, cookie)
+                .end();
+        return promise.future();
+    }
+
+    private Future<String> request(final HttpMethod method, final String uri, final String cookie) {
+        final Promise<String> promise = Promise.promise();
+        final HttpClientRequest request = client.request(method, server.actualPort(), "localhost", uri, response -> {
+            final String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+            promise.complete(setCookie != null ? setCookie.split(";", 2)[0] : cookie);
+        });
+        request.exceptionHandler(promise::tryFail);
+        if (cookie != null) {
+            request.putHeader(HttpHeaders.COOKIE, cookie);
+        }
+        request.end();
+        return promise.future();
+    }
+}
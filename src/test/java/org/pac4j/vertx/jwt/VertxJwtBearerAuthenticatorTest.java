@@ -0,0 +1,132 @@
+package org.pac4j.vertx.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.exception.CredentialsException;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@RunWith(VertxUnitRunner.class)
+public class VertxJwtBearerAuthenticatorTest {
+
+    private static final String ISSUER = "http://issuer";
+    private static final String AUDIENCE = "api";
+
+    private Vertx vertx;
+    private RSAKey key;
+    private RSAKey encryptionKey;
+    private RSAKey rs384Key;
+    private VertxJwtBearerAuthenticator authenticator;
+
+    @Before
+    public void setUp(final TestContext context) throws JOSEException {
+        vertx = Vertx.vertx();
+        key = new RSAKeyGenerator(2048).keyID("key").keyUse(KeyUse.SIGNATURE).generate();
+        encryptionKey = new RSAKeyGenerator(2048).keyID("encryption").keyUse(KeyUse.ENCRYPTION).generate();
+        rs384Key = new RSAKeyGenerator(2048).keyID("rs384").algorithm(JWSAlgorithm.RS384).generate();
+        final List<JWK> publicKeys = Arrays.asList(key, encryptionKey, rs384Key).stream()
+                .map(RSAKey::toPublicJWK).collect(Collectors.toList());
+
+        vertx.createHttpServer()
+                .requestHandler(request -> request.response().end(new JWKSet(publicKeys).toString()))
+                .listen(0, context.asyncAssertSuccess(server -> authenticator = new VertxJwtBearerAuthenticator(vertx,
+                        new JwtBearerOptions()
+                                .setJwksUri("http://localhost:" + server.actualPort() + "/jwks")
+                                .setIssuer(ISSUER)
+                                .setAudience(AUDIENCE))));
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        authenticator.close();
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void authenticatesAValidToken(final TestContext context) throws JOSEException {
+        final Async async = context.async();
+
+        authenticator.authenticate(sign(key, JWSAlgorithm.RS256, claims -> { }),
+                context.asyncAssertSuccess(profile -> {
+                    context.assertEquals("user", profile.getId());
+                    context.assertEquals(ISSUER, profile.getAttribute("iss"));
+                    async.complete();
+                }));
+    }
+
+    @Test
+    public void rejectsATokenWithAnotherSignature(final TestContext context) throws JOSEException {
+        // Signed with another private key under the id of a known one
+        assertRejected(context, sign(new RSAKeyGenerator(2048).keyID("key").generate(), JWSAlgorithm.RS256,
+                claims -> { }), "Invalid token signature");
+    }
+
+    @Test
+    public void rejectsAnExpiredToken(final TestContext context) throws JOSEException {
+        assertRejected(context, sign(key, JWSAlgorithm.RS256,
+                claims -> claims.expirationTime(new Date(System.currentTimeMillis() - 300 * 1000))),
+                "Expired");
+    }
+
+    @Test
+    public void rejectsATokenSignedWithAnUnknownKey(final TestContext context) throws JOSEException {
+        assertRejected(context, sign(new RSAKeyGenerator(2048).keyID("unknown").generate(), JWSAlgorithm.RS256,
+                claims -> { }), "Unknown signing key");
+    }
+
+    @Test
+    public void rejectsATokenSignedWithAnotherAlgorithmThanThatOfItsKey(final TestContext context)
+            throws JOSEException {
+        assertRejected(context, sign(rs384Key, JWSAlgorithm.RS256, claims -> { }), "by a key for RS384");
+    }
+
+    @Test
+    public void rejectsATokenSignedWithAnEncryptionKey(final TestContext context) throws JOSEException {
+        assertRejected(context, sign(encryptionKey, JWSAlgorithm.RS256, claims -> { }), "not a signing key");
+    }
+
+    private void assertRejected(final TestContext context, final String token, final String reason) {
+        final Async async = context.async();
+
+        authenticator.authenticate(token, context.asyncAssertFailure(failure -> {
+            context.assertTrue(failure instanceof CredentialsException, failure.toString());
+            context.assertTrue(failure.getMessage().contains(reason), failure.getMessage());
+            async.complete();
+        }));
+    }
+
+    private static String sign(final RSAKey signingKey, final JWSAlgorithm algorithm,
+                               final Consumer<JWTClaimsSet.Builder> customizer) throws JOSEException {
+        final JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .audience(AUDIENCE)
+                .subject("user")
+                .expirationTime(new Date(System.currentTimeMillis() + 60 * 1000));
+        customizer.accept(claims);
+        final SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(algorithm).keyID(signingKey.getKeyID()).build(),
+                claims.build());
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+}
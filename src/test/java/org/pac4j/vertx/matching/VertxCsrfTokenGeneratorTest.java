@@ -0,0 +1,145 @@
+package org.pac4j.vertx.matching;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class VertxCsrfTokenGeneratorTest {
+
+    private static final long ROTATION_INTERVAL = 200;
+    private static final int CONCURRENT_REQUESTS = 8;
+
+    private Vertx vertx;
+    private HttpServer server;
+    private HttpClient client;
+    private final AtomicInteger tokenWrites = new AtomicInteger();
+
+    @Before
+    public void setUp(final TestContext context) {
+        vertx = Vertx.vertx();
+        final LocalSessionStore sessions = LocalSessionStore.create(vertx);
+        final VertxSessionStore sessionStore = new VertxSessionStore(sessions) {
+            @Override
+            public void set(final VertxWebContext webContext, final String key, final Object value) {
+                if (Pac4jConstants.CSRF_TOKEN.equals(key)) {
+                    tokenWrites.incrementAndGet();
+                    // Widens the window in which other requests of the session could rotate the token as well
+                    try {
+                        Thread.sleep(50);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.set(webContext, key, value);
+            }
+        };
+        final VertxCsrfTokenGenerator generator = new VertxCsrfTokenGenerator(ROTATION_INTERVAL);
+
+        final Router router = Router.router(vertx);
+        router.route().handler(SessionHandler.create(sessions));
+        router.get("/session").handler(rc -> {
+            rc.session().put("started", true);
+            rc.response().end();
+        });
+        // Run on concurrent workers, as the pac4j logic generating tokens is
+        router.get("/token").blockingHandler(rc ->
+                rc.response().end(generator.get(new VertxWebContext(rc, sessionStore))), false);
+
+        client = vertx.createHttpClient();
+        server = vertx.createHttpServer().requestHandler(router);
+        server.listen(0, context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void reusesTheTokenOfTheSessionWithinTheRotationInterval(final TestContext context) {
+        final Async async = context.async();
+
+        session().compose(cookie -> token(cookie).compose(first -> token(cookie).map(second -> {
+            context.assertEquals(first, second);
+            return second;
+        }))).onComplete(context.asyncAssertSuccess(token -> {
+            context.assertEquals(1, tokenWrites.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void rotatesTheTokenOnceTheRotationIntervalElapsed(final TestContext context) {
+        final Async async = context.async();
+
+        session().compose(cookie -> token(cookie).compose(first -> {
+            final Promise<String> later = Promise.promise();
+            vertx.setTimer(ROTATION_INTERVAL + 50, id -> token(cookie).onComplete(later));
+            return later.future().map(second -> {
+                context.assertNotEquals(first, second);
+                return second;
+            });
+        })).onComplete(context.asyncAssertSuccess(token -> {
+            context.assertEquals(2, tokenWrites.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void concurrentRotationsAgreeOnTheTokenAndWriteItOnce(final TestContext context) {
+        final Async async = context.async();
+
+        session().compose(cookie -> {
+            final List<Future> tokens = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                tokens.add(token(cookie));
+            }
+            return CompositeFuture.all(tokens);
+        }).onComplete(context.asyncAssertSuccess(tokens -> {
+            context.assertEquals(1, new HashSet<>(tokens.list()).size());
+            context.assertEquals(1, tokenWrites.get());
+            async.complete();
+        }));
+    }
+
+    private Future<String> session() {
+        final Promise<String> promise = Promise.promise();
+        client.getNow(server.actualPort(), "localhost", "/session",
+                response -> promise.complete(response.getHeader(HttpHeaders.SET_COOKIE).split(";", 2)[0]));
+        return promise.future();
+    }
+
+    private Future<String> token(final String cookie) {
+        final Promise<String> promise = Promise.promise();
+        final HttpClientRequest request = client.get(server.actualPort(), "localhost", "/token",
+                response -> response.bodyHandler(body -> promise.complete(body.toString())));
+        request.exceptionHandler(promise::tryFail);
+        request.putHeader(HttpHeaders.COOKIE, cookie);
+        request.end();
+        return promise.future();
+    }
+}
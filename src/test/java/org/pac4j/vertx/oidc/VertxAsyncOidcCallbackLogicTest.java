@@ -0,0 +1,240 @@
+package org.pac4j.vertx.oidc;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.oauth2.sdk.id.State;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.pac4j.core.config.Config;
+import org.pac4j.oidc.client.OidcClient;
+import org.pac4j.oidc.config.OidcConfiguration;
+import org.pac4j.vertx.VertxProfileManager;
+import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+import org.pac4j.vertx.handler.impl.CallbackHandler;
+import org.pac4j.vertx.handler.impl.CallbackHandlerOptions;
+
+import java.util.Date;
+import java.util.function.Consumer;
+
+@RunWith(VertxUnitRunner.class)
+public class VertxAsyncOidcCallbackLogicTest {
+
+    private static final String CLIENT_ID = "client";
+    private static final String NONCE = "nonce";
+    private static final String STATE = "state";
+    private static final long TIMEOUT = 2000;
+
+    private Vertx vertx;
+    private HttpServer server;
+    private HttpClient client;
+    private RSAKey key;
+    private String issuer;
+    private volatile String idToken;
+    private volatile boolean tokenEndpointHangs;
+
+    @Before
+    public void setUp(final TestContext context) throws JOSEException {
+        vertx = Vertx.vertx();
+        key = new RSAKeyGenerator(2048).keyID("key").generate();
+        final LocalSessionStore sessions = LocalSessionStore.create(vertx);
+        final VertxSessionStore sessionStore = new VertxSessionStore(sessions);
+        final OidcConfiguration configuration = new OidcConfiguration();
+        configuration.setClientId(CLIENT_ID);
+        configuration.setSecret("secret");
+        configuration.setUseNonce(true);
+        final OidcClient<OidcConfiguration> oidcClient = new OidcClient<>(configuration);
+        final Config config = new Config(oidcClient);
+
+        final Router router = Router.router(vertx);
+        // The identity provider
+        router.get("/.well-known/openid-configuration").handler(rc -> rc.response().end(new JsonObject()
+                .put("issuer", issuer)
+                .put("authorization_endpoint", issuer + "/authorize")
+                .put("token_endpoint", issuer + "/token")
+                .put("jwks_uri", issuer + "/jwks")
+                .put("response_types_supported", new JsonArray().add("code"))
+                .put("subject_types_supported", new JsonArray().add("public"))
+                .put("id_token_signing_alg_values_supported", new JsonArray().add("RS256"))
+                .encode()));
+        router.get("/jwks").handler(rc -> rc.response().end(new JWKSet(key.toPublicJWK()).toString()));
+        router.post("/token").handler(rc -> {
+            if (!tokenEndpointHangs) {
+                rc.response().putHeader(HttpHeaders.CONTENT_TYPE, "application/json").end(new JsonObject()
+                        .put("access_token", "token")
+                        .put("token_type", "Bearer")
+                        .put("id_token", idToken)
+                        .encode());
+            }
+        });
+        // The application
+        router.route().handler(SessionHandler.create(sessions));
+        router.get("/login").handler(rc -> {
+            final VertxWebContext webContext = new VertxWebContext(rc, sessionStore);
+            sessionStore.set(webContext, oidcClient.getStateSessionAttributeName(), new State(STATE));
+            sessionStore.set(webContext, oidcClient.getNonceSessionAttributeName(), NONCE);
+            rc.response().end();
+        });
+        router.get("/callback").handler(new CallbackHandler(vertx, sessionStore, config,
+                new CallbackHandlerOptions().setNonBlockingOidc(true).setBlockingTimeout(TIMEOUT)));
+        router.get("/user").handler(rc -> rc.response().end(
+                new VertxProfileManager(new VertxWebContext(rc, sessionStore), sessionStore).get(true)
+                        .map(profile -> profile.getId()).orElse("")));
+
+        client = vertx.createHttpClient();
+        server = vertx.createHttpServer().requestHandler(router);
+        final Async listening = context.async();
+        server.listen(0, context.asyncAssertSuccess(listened -> {
+            issuer = "http://localhost:" + listened.actualPort();
+            configuration.setDiscoveryURI(issuer + "/.well-known/openid-configuration");
+            oidcClient.setCallbackUrl(issuer + "/callback");
+            // Callbacks complete on the event loop once the client is initialised
+            vertx.executeBlocking(future -> {
+                oidcClient.init();
+                future.complete();
+            }, context.asyncAssertSuccess(initialised -> listening.complete()));
+        }));
+    }
+
+    @After
+    public void tearDown(final TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void authenticatesWithAValidIdToken(final TestContext context) throws JOSEException {
+        idToken = sign(key, claims -> { });
+
+        assertCallback(context, 302, "user");
+    }
+
+    @Test
+    public void rejectsAnIdTokenWithAnotherNonce(final TestContext context) throws JOSEException {
+        idToken = sign(key, claims -> claims.claim("nonce", "other"));
+
+        assertCallback(context, 500, "");
+    }
+
+    @Test
+    public void rejectsAnIdTokenOfAnotherIssuer(final TestContext context) throws JOSEException {
+        idToken = sign(key, claims -> claims.issuer("http://other"));
+
+        assertCallback(context, 500, "");
+    }
+
+    @Test
+    public void rejectsAnIdTokenForAnotherAudience(final TestContext context) throws JOSEException {
+        idToken = sign(key, claims -> claims.audience("other"));
+
+        assertCallback(context, 500, "");
+    }
+
+    @Test
+    public void rejectsAnExpiredIdToken(final TestContext context) throws JOSEException {
+        idToken = sign(key, claims -> claims.issueTime(new Date(System.currentTimeMillis() - 600 * 1000))
+                .expirationTime(new Date(System.currentTimeMillis() - 300 * 1000)));
+
+        assertCallback(context, 500, "");
+    }
+
+    @Test
+    public void rejectsAnIdTokenSignedWithAnUnknownKey(final TestContext context) throws JOSEException {
+        idToken = sign(new RSAKeyGenerator(2048).keyID("other").generate(), claims -> { });
+
+        assertCallback(context, 500, "");
+    }
+
+    @Test
+    public void failsCallbacksWhichAreNotCompletedInTime(final TestContext context) {
+        tokenEndpointHangs = true;
+
+        assertCallback(context, 504, "");
+    }
+
+    private void assertCallback(final TestContext context, final int status, final String user) {
+        final Async async = context.async();
+
+        request("/login", null).compose(cookie -> {
+            final Promise<String> callback = Promise.promise();
+            client.get(server.actualPort(), "localhost",
+                    "/callback?client_name=OidcClient&code=code&state=" + STATE, response -> {
+                        context.assertEquals(status, response.statusCode());
+                        // The session is renewed on login
+                        final String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+                        callback.complete(setCookie != null ? setCookie.split(";", 2)[0] : cookie);
+                    })
+                    .exceptionHandler(callback::tryFail)
+                    .putHeader(HttpHeaders.COOKIE, cookie)
+                    .end();
+            return callback.future().compose(renewed -> body("/user", renewed));
+        }).onComplete(context.asyncAssertSuccess(authenticated -> {
+            context.assertEquals(user, authenticated);
+            async.complete();
+        }));
+    }
+
+    private String sign(final RSAKey signingKey, final Consumer<JWTClaimsSet.Builder> customizer)
+            throws JOSEException {
+        final long now = System.currentTimeMillis();
+        final JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .audience(CLIENT_ID)
+                .subject("user")
+                .issueTime(new Date(now))
+                .expirationTime(new Date(now + 60 * 1000))
+                .claim("nonce", NONCE);
+        customizer.accept(claims);
+        final SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID())
+                .build(), claims.build());
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    private Future<String> body(final String uri, final String cookie) {
+        final Promise<String> promise = Promise.promise();
+        client.get(server.actualPort(), "localhost", uri,
+                response -> response.bodyHandler(body -> promise.complete(body.toString())))
+                .exceptionHandler(promise::tryFail)
+                .putHeader(HttpHeaders.COOKIE, cookie)
+                .end();
+        return promise.future();
+    }
+
+    private Future<String> request(final String uri, final String cookie) {
+        final Promise<String> promise = Promise.promise();
+        final HttpClientRequest request = client.get(server.actualPort(), "localhost", uri, response -> {
+            final String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+            promise.complete(setCookie != null ? setCookie.split(";", 2)[0] : cookie);
+        });
+        request.exceptionHandler(promise::tryFail);
+        if (cookie != null) {
+            request.putHeader(HttpHeaders.COOKIE, cookie);
+        }
+        request.end();
+        return promise.future();
+    }
+}